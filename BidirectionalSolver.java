@@ -0,0 +1,370 @@
+package hw3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import hw3.Solver.IntList;
+
+/**
+ * A {@link Solver} that searches forward from the starting position and
+ * backward from the goal at the same time, always extending the side with the
+ * smaller frontier by one whole layer. Both sides record their states in one
+ * shared map, and the search ends on the layer where a state found by one side
+ * is already known to the other. When the cost of a search grows with the
+ * branching factor to the power of the solution length, each side only needs
+ * to go half as deep.
+ * <p>
+ * Moves are reversible except for exits, so the backward side steps to the
+ * predecessors of a state in two ways: by any legal move that does not make a
+ * lizard exit, which undoes the inverse move, and by putting back a lizard that
+ * has already exited. A lizard is put back in every shape that fits in the free
+ * cells with one end next to a free exit, which are the configurations one
+ * move away from that lizard touching the exit and leaving. The goal itself is
+ * the empty grid.
+ *
+ * @author Muhammad Blal
+ */
+public class BidirectionalSolver extends Solver {
+	/**
+	 * Marks a state of the backward side in the shared map.
+	 */
+	private static final int BACKWARD_SIDE = 1;
+
+	/**
+	 * Number of generated states between checks for an interrupt.
+	 */
+	private static final int INTERRUPT_CHECK = 1024;
+
+	/**
+	 * Constructs a solver with the default budget and symmetry reduction.
+	 */
+	public BidirectionalSolver() {
+		super();
+	}
+
+	/**
+	 * Constructs a solver with the given budget.
+	 *
+	 * @param maxStates maximum number of distinct states per search, both sides
+	 *                  together
+	 * @param symmetry  true to treat equivalent states as one
+	 */
+	public BidirectionalSolver(int maxStates, boolean symmetry) {
+		super(maxStates, symmetry);
+	}
+
+	@Override
+	protected SolverResult search(SolverBoard start) {
+		Search search = new Search(start);
+		return search.run();
+	}
+
+	/**
+	 * The state of one search.
+	 */
+	private class Search {
+		private final SolverBoard start;
+
+		/**
+		 * Every state found, mapped to its index in its side shifted left by one,
+		 * plus BACKWARD_SIDE for the backward side.
+		 */
+		private final HashMap<StateKey, Integer> seen = new HashMap<>();
+
+		/**
+		 * For each side, the states in the order found, their parents and their
+		 * distance from that side's root.
+		 */
+		private final List<ArrayList<StateKey>> keys = List.of(new ArrayList<>(), new ArrayList<>());
+		private final List<IntList> parents = List.of(new IntList(), new IntList());
+		private final List<IntList> depths = List.of(new IntList(), new IntList());
+
+		/**
+		 * For each side, index of the first state of the layer to expand next.
+		 */
+		private final int[] layerStart = new int[2];
+
+		/**
+		 * Number of lizards of each length in the starting position.
+		 */
+		private final int[] lengths;
+
+		private final SolverBoard board;
+		private final SolverBoard child;
+		private final int[] moves;
+		private final int[] walk;
+		private long expanded;
+		private long generated;
+
+		/**
+		 * Best meeting so far: total length and the state on each side.
+		 */
+		private int bestLength = Integer.MAX_VALUE;
+		private int bestForward;
+		private int bestBackward;
+
+		private Search(SolverBoard start) {
+			this.start = start;
+			int longest = 0;
+			for (int i = 0; i < start.getLizardSlots(); i++) {
+				if (start.isAlive(i)) {
+					longest = Math.max(longest, start.getLength(i));
+				}
+			}
+			lengths = new int[longest + 1];
+			for (int i = 0; i < start.getLizardSlots(); i++) {
+				if (start.isAlive(i)) {
+					lengths[start.getLength(i)]++;
+				}
+			}
+			board = start.copy();
+			child = start.copy();
+			moves = new int[8 * start.remaining()];
+			walk = new int[longest];
+		}
+
+		private SolverResult run() {
+			add(0, keyOf(start), -1, 0);
+			if (start.isSolved()) {
+				return result(true, true, List.of(keys.get(0).get(0)));
+			}
+			// The goal is the grid with no lizards left
+			board.clearLizards();
+			add(BACKWARD_SIDE, keyOf(board), -1, 0);
+
+			while (bestLength == Integer.MAX_VALUE) {
+				int forwardFrontier = keys.get(0).size() - layerStart[0];
+				int backwardFrontier = keys.get(BACKWARD_SIDE).size() - layerStart[BACKWARD_SIDE];
+				if (forwardFrontier == 0 || backwardFrontier == 0) {
+					// One side has found every state it can reach without meeting the other
+					return result(false, true, List.of());
+				}
+				int side = forwardFrontier <= backwardFrontier ? 0 : BACKWARD_SIDE;
+				if (!expandLayer(side)) {
+					return result(false, false, List.of());
+				}
+			}
+			return result(true, true, path());
+		}
+
+		/**
+		 * Expands every state of the current layer of one side.
+		 *
+		 * @param side 0 for forward, BACKWARD_SIDE for backward
+		 * @return false if the budget ran out or the thread was interrupted
+		 */
+		private boolean expandLayer(int side) {
+			ArrayList<StateKey> list = keys.get(side);
+			int end = list.size();
+			for (int s = layerStart[side]; s < end; s++) {
+				board.load(list.get(s));
+				expanded++;
+				int depth = depths.get(side).get(s);
+				if (side == 0) {
+					int n = board.moves(moves);
+					for (int i = 0; i < n; i++) {
+						child.copyFrom(board);
+						child.apply(moves[i]);
+						if (!visit(side, s, depth)) {
+							return false;
+						}
+					}
+				} else if (!predecessors(s, depth)) {
+					return false;
+				}
+			}
+			layerStart[side] = end;
+			return true;
+		}
+
+		/**
+		 * Visits every state one move before the loaded backward state.
+		 *
+		 * @param parent index of the loaded state
+		 * @param depth  its distance from the goal
+		 * @return false if the budget ran out or the thread was interrupted
+		 */
+		private boolean predecessors(int parent, int depth) {
+			// Undo a move: moves are their own inverses unless a lizard exits
+			int n = board.moves(moves);
+			for (int i = 0; i < n; i++) {
+				child.copyFrom(board);
+				if (!child.apply(moves[i]) && !visit(BACKWARD_SIDE, parent, depth)) {
+					return false;
+				}
+			}
+
+			// Undo an exit: put back each missing length next to each free exit
+			int[] missing = lengths.clone();
+			for (int i = 0; i < board.getLizardSlots(); i++) {
+				if (board.isAlive(i)) {
+					missing[board.getLength(i)]--;
+				}
+			}
+			int cells = board.getWidth() * board.getHeight();
+			for (int length = 1; length < missing.length; length++) {
+				if (missing[length] <= 0) {
+					continue;
+				}
+				for (int exit = 0; exit < cells; exit++) {
+					if (!board.isExit(exit) || !board.isFree(exit)) {
+						continue;
+					}
+					for (int d = 0; d < 4; d++) {
+						int end = board.neighbor(exit, d);
+						if (board.isFree(end) && !board.isExit(end)) {
+							walk[0] = end;
+							if (!placeLizard(1, length, exit, parent, depth)) {
+								return false;
+							}
+						}
+					}
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Extends a lizard being put back one cell at a time through free cells, and
+		 * visits the state with the lizard added once it has its full length.
+		 *
+		 * @param size   number of cells of the lizard placed so far in walk
+		 * @param length length of the lizard
+		 * @param exit   the exit the lizard leaves through, which its own body must
+		 *               not cover
+		 * @param parent index of the loaded state
+		 * @param depth  its distance from the goal
+		 * @return false if the budget ran out or the thread was interrupted
+		 */
+		private boolean placeLizard(int size, int length, int exit, int parent, int depth) {
+			if (size == length) {
+				if (board.isExit(walk[size - 1])) {
+					return true; // The far end would already be on an exit
+				}
+				child.copyFrom(board);
+				child.addLizard(Arrays.copyOf(walk, length));
+				if (!visit(BACKWARD_SIDE, parent, depth)) {
+					return false;
+				}
+				if (isSymmetryReduced() || length == 1) {
+					return true; // Canonical keys do not tell the two ends apart
+				}
+				int[] reversed = new int[length];
+				for (int k = 0; k < length; k++) {
+					reversed[k] = walk[length - 1 - k];
+				}
+				child.copyFrom(board);
+				child.addLizard(reversed);
+				return visit(BACKWARD_SIDE, parent, depth);
+			}
+			for (int d = 0; d < 4; d++) {
+				int next = board.neighbor(walk[size - 1], d);
+				// The exit is free, but the lizard could not leave through it while covering it
+				if (next == exit || !board.isFree(next) || contains(walk, size, next)) {
+					continue;
+				}
+				walk[size] = next;
+				if (!placeLizard(size + 1, length, exit, parent, depth)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Records the child board as found by one side, noting a meeting if the
+		 * other side already has it.
+		 *
+		 * @param side   the side that found it
+		 * @param parent index of the state it was found from
+		 * @param depth  distance of the parent from the side's root
+		 * @return false if the budget ran out or the thread was interrupted
+		 */
+		private boolean visit(int side, int parent, int depth) {
+			if (++generated % INTERRUPT_CHECK == 0 && Thread.currentThread().isInterrupted()) {
+				return false;
+			}
+			StateKey key = keyOf(child);
+			Integer found = seen.get(key);
+			if (found == null) {
+				if (seen.size() >= getMaxStates()) {
+					return false;
+				}
+				add(side, key, parent, depth + 1);
+				return true;
+			}
+			int other = found & BACKWARD_SIDE;
+			if (other != side) {
+				// The two searches meet on this state
+				int index = found >>> 1;
+				int total = depth + 1 + depths.get(other).get(index);
+				if (total < bestLength) {
+					bestLength = total;
+					bestForward = side == 0 ? parent : index;
+					bestBackward = side == 0 ? index : parent;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Stores a new state of one side.
+		 *
+		 * @param side   the side
+		 * @param key    the state
+		 * @param parent index of the state it was found from, or -1 for a root
+		 * @param depth  distance from the side's root
+		 */
+		private void add(int side, StateKey key, int parent, int depth) {
+			seen.put(key, keys.get(side).size() << 1 | side);
+			keys.get(side).add(key);
+			parents.get(side).add(parent);
+			depths.get(side).add(depth);
+		}
+
+		/**
+		 * Joins the forward chain from the start and the backward chain to the
+		 * goal at the best meeting. Either the last forward state leads into the
+		 * first backward state, or the two are the same state found by both sides
+		 * (the backward one then having been generated from the forward one).
+		 *
+		 * @return keys of the states from the start to the goal
+		 */
+		private List<StateKey> path() {
+			ArrayList<StateKey> path = new ArrayList<>();
+			for (int s = bestForward; s >= 0; s = parents.get(0).get(s)) {
+				path.add(keys.get(0).get(s));
+			}
+			Collections.reverse(path);
+			for (int s = bestBackward; s >= 0; s = parents.get(BACKWARD_SIDE).get(s)) {
+				path.add(keys.get(BACKWARD_SIDE).get(s));
+			}
+			return path;
+		}
+
+		private SolverResult result(boolean solved, boolean complete, List<StateKey> path) {
+			return new SolverResult(solved, complete, replay(start, path), path, expanded, seen.size());
+		}
+	}
+
+	/**
+	 * Private helper method that checks whether a cell is among the first cells of
+	 * a walk.
+	 *
+	 * @param walk the cells
+	 * @param size number of cells to look at
+	 * @param cell the cell
+	 * @return true if found
+	 */
+	private static boolean contains(int[] walk, int size, int cell) {
+		for (int i = 0; i < size; i++) {
+			if (walk[i] == cell) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,549 @@
+package hw3;
+
+import java.util.Arrays;
+
+import api.BodySegment;
+import api.Cell;
+import api.Direction;
+
+/**
+ * A set of cells of a grid stored one bit per cell, row by row
+ * ({@code row * width + col}), 64 cells to a long. Boards of the same size
+ * combine with whole-word and, or and and-not, and shift one step in any
+ * direction with word shifts, so questions such as "which cells can a lizard
+ * reach from this exit" cost a few passes over a handful of longs instead of a
+ * call to {@link LizardGame#isAvailable(int, int)} per cell.
+ * <p>
+ * Walls and exits rarely change, so build their boards once per level with
+ * {@link #walls(LizardGame)} and {@link #exits(LizardGame)} and combine them
+ * with {@link #lizards(LizardGame)}, which only visits lizard segments, after
+ * each move.
+ *
+ * @author Muhammad Blal
+ */
+public class BitBoard {
+	private final int width;
+	private final int height;
+
+	/**
+	 * The cells in the set, one bit per cell. Bits past the last cell are zero.
+	 */
+	private final long[] words;
+
+	/**
+	 * Masks shared by all boards of this size: every cell, every cell but the
+	 * first column, and every cell but the last column.
+	 */
+	private final long[] all;
+	private final long[] notFirstCol;
+	private final long[] notLastCol;
+
+	/**
+	 * Creates an empty board of the given size.
+	 *
+	 * @param width  number of columns
+	 * @param height number of rows
+	 */
+	public BitBoard(int width, int height) {
+		this.width = width;
+		this.height = height;
+		int size = width * height;
+		words = new long[(size + 63) / 64];
+		all = new long[words.length];
+		notFirstCol = new long[words.length];
+		notLastCol = new long[words.length];
+		for (int i = 0; i < size; i++) {
+			all[i >>> 6] |= 1L << i;
+			if (i % width != 0) {
+				notFirstCol[i >>> 6] |= 1L << i;
+			}
+			if (i % width != width - 1) {
+				notLastCol[i >>> 6] |= 1L << i;
+			}
+		}
+	}
+
+	/**
+	 * Creates an empty board sharing the masks of another board.
+	 *
+	 * @param shape a board of the size wanted
+	 */
+	private BitBoard(BitBoard shape) {
+		width = shape.width;
+		height = shape.height;
+		words = new long[shape.words.length];
+		all = shape.all;
+		notFirstCol = shape.notFirstCol;
+		notLastCol = shape.notLastCol;
+	}
+
+	/**
+	 * Gets the walls of a game.
+	 *
+	 * @param game the game
+	 * @return a board of the cells holding a wall
+	 */
+	public static BitBoard walls(LizardGame game) {
+		BitBoard board = new BitBoard(game.getWidth(), game.getHeight());
+		for (int row = 0; row < board.height; row++) {
+			for (int col = 0; col < board.width; col++) {
+				if (game.hasWall(col, row)) {
+					board.set(col, row);
+				}
+			}
+		}
+		return board;
+	}
+
+	/**
+	 * Gets the exits of a game.
+	 *
+	 * @param game the game
+	 * @return a board of the cells holding an exit
+	 */
+	public static BitBoard exits(LizardGame game) {
+		BitBoard board = new BitBoard(game.getWidth(), game.getHeight());
+		for (int row = 0; row < board.height; row++) {
+			for (int col = 0; col < board.width; col++) {
+				if (game.hasExit(col, row)) {
+					board.set(col, row);
+				}
+			}
+		}
+		return board;
+	}
+
+	/**
+	 * Gets the cells covered by lizards, visiting only their segments.
+	 *
+	 * @param game the game
+	 * @return a board of the cells holding a lizard segment
+	 */
+	public static BitBoard lizards(LizardGame game) {
+		BitBoard board = new BitBoard(game.getWidth(), game.getHeight());
+		lizards(game, board);
+		return board;
+	}
+
+	/**
+	 * Replaces the contents of a board with the cells covered by lizards, without
+	 * allocating a board.
+	 *
+	 * @param game  the game
+	 * @param board a board of the game's size to fill
+	 */
+	public static void lizards(LizardGame game, BitBoard board) {
+		board.clear();
+		for (Lizard l : game.getLizards()) {
+			for (BodySegment segment : l.segmentList()) {
+				Cell cell = segment.getCell();
+				board.set(cell.getCol(), cell.getRow());
+			}
+		}
+	}
+
+	/**
+	 * Computes the cells a lizard may move into, the same cells for which
+	 * {@link LizardGame#isAvailable(int, int)} is true.
+	 *
+	 * @param walls   the walls
+	 * @param lizards the cells covered by lizards
+	 * @return a new board of the cells holding neither
+	 */
+	public static BitBoard free(BitBoard walls, BitBoard lizards) {
+		BitBoard free = new BitBoard(walls);
+		for (int i = 0; i < free.words.length; i++) {
+			free.words[i] = walls.all[i] & ~(walls.words[i] | lizards.words[i]);
+		}
+		return free;
+	}
+
+	/**
+	 * Computes the cells that can be reached from the seeds by steps between
+	 * neighbouring passable cells. Each pass floods every row at once as far as it
+	 * can go left and right, then every column up and down, each with a
+	 * logarithmic number of word shifts (a Kogge-Stone fill), so the number of
+	 * passes depends on how often a path turns rather than on its length. That
+	 * pays off on open boards and on mazes up to about 128 by 128; on a 256 by 256
+	 * maze with a quarter of the cells walled the paths turn so often that it is
+	 * no faster than a per-cell search, and the cells of
+	 * {@link #distanceField(BitBoard, BitBoard)} with a distance are the cheaper
+	 * answer.
+	 *
+	 * @param seeds    the starting cells; seeds that are not passable are dropped
+	 * @param passable the cells that may be stepped on
+	 * @return a new board of the reachable cells
+	 */
+	public static BitBoard floodFill(BitBoard seeds, BitBoard passable) {
+		BitBoard reached = seeds.copy().and(passable);
+		long[] before = new long[reached.words.length];
+		long[] pro = new long[reached.words.length];
+		long[] shifted = new long[reached.words.length];
+		int width = reached.width;
+		do {
+			System.arraycopy(reached.words, 0, before, 0, before.length);
+			// A cell in the first column never receives from the left, and so on
+			reached.fill(passable.words, reached.notFirstCol, 1, width, true, pro, shifted);
+			reached.fill(passable.words, reached.notLastCol, 1, width, false, pro, shifted);
+			reached.fill(passable.words, null, width, reached.height, true, pro, shifted);
+			reached.fill(passable.words, null, width, reached.height, false, pro, shifted);
+		} while (!Arrays.equals(before, reached.words));
+		return reached;
+	}
+
+	/**
+	 * Computes the number of steps between neighbouring passable cells from the
+	 * nearest source to every cell, with a breadth-first search that visits each
+	 * reachable cell once. Whether a neighbour is passable and not yet reached is
+	 * a single bit test in a copy of the passable words.
+	 *
+	 * @param sources  the cells at distance 0; sources that are not passable are
+	 *                 dropped
+	 * @param passable the cells that may be stepped on
+	 * @return the distance of each cell by index, or -1 where unreachable
+	 */
+	public static int[] distanceField(BitBoard sources, BitBoard passable) {
+		int width = sources.width;
+		int size = width * sources.height;
+		int[] distance = new int[size];
+		Arrays.fill(distance, -1);
+		// Passable cells not reached yet
+		long[] open = passable.words.clone();
+		int[] queue = new int[passable.cardinality()];
+		int tail = 0;
+		for (int w = 0; w < open.length; w++) {
+			long seeds = sources.words[w] & open[w];
+			open[w] &= ~seeds;
+			for (; seeds != 0; seeds &= seeds - 1) {
+				int cell = (w << 6) + Long.numberOfTrailingZeros(seeds);
+				distance[cell] = 0;
+				queue[tail++] = cell;
+			}
+		}
+		for (int head = 0; head < tail; head++) {
+			int cell = queue[head];
+			int d = distance[cell] + 1;
+			int col = cell % width;
+			if (col > 0) {
+				tail = reach(cell - 1, d, open, distance, queue, tail);
+			}
+			if (col < width - 1) {
+				tail = reach(cell + 1, d, open, distance, queue, tail);
+			}
+			if (cell >= width) {
+				tail = reach(cell - width, d, open, distance, queue, tail);
+			}
+			if (cell + width < size) {
+				tail = reach(cell + width, d, open, distance, queue, tail);
+			}
+		}
+		return distance;
+	}
+
+	/**
+	 * Private helper method that queues a neighbour for the distance field if it
+	 * is passable and not reached yet.
+	 *
+	 * @param cell     index of the neighbour
+	 * @param d        its distance if it is reached now
+	 * @param open     passable cells not reached yet; the cell is removed
+	 * @param distance distance of each cell
+	 * @param queue    the cells in the order reached
+	 * @param tail     number of cells in the queue
+	 * @return the new number of cells in the queue
+	 */
+	private static int reach(int cell, int d, long[] open, int[] distance, int[] queue, int tail) {
+		long bit = 1L << cell;
+		if ((open[cell >>> 6] & bit) == 0) {
+			return tail;
+		}
+		open[cell >>> 6] &= ~bit;
+		distance[cell] = d;
+		queue[tail] = cell;
+		return tail + 1;
+	}
+
+	/**
+	 * @return number of columns
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return number of rows
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @param col column of the cell
+	 * @param row row of the cell
+	 * @return true if the cell is in the set, false otherwise or if outside the
+	 *         grid
+	 */
+	public boolean get(int col, int row) {
+		if (col < 0 || row < 0 || col >= width || row >= height) {
+			return false;
+		}
+		int i = row * width + col;
+		return (words[i >>> 6] & 1L << i) != 0;
+	}
+
+	/**
+	 * Adds a cell to the set.
+	 *
+	 * @param col column of the cell
+	 * @param row row of the cell
+	 */
+	public void set(int col, int row) {
+		int i = row * width + col;
+		words[i >>> 6] |= 1L << i;
+	}
+
+	/**
+	 * Empties the set.
+	 */
+	public void clear() {
+		Arrays.fill(words, 0);
+	}
+
+	/**
+	 * @return an independent copy of this board
+	 */
+	public BitBoard copy() {
+		BitBoard copy = new BitBoard(this);
+		System.arraycopy(words, 0, copy.words, 0, words.length);
+		return copy;
+	}
+
+	/**
+	 * Keeps only the cells also in the other board.
+	 *
+	 * @param other a board of the same size
+	 * @return this board
+	 */
+	public BitBoard and(BitBoard other) {
+		for (int i = 0; i < words.length; i++) {
+			words[i] &= other.words[i];
+		}
+		return this;
+	}
+
+	/**
+	 * Adds the cells of the other board.
+	 *
+	 * @param other a board of the same size
+	 * @return this board
+	 */
+	public BitBoard or(BitBoard other) {
+		for (int i = 0; i < words.length; i++) {
+			words[i] |= other.words[i];
+		}
+		return this;
+	}
+
+	/**
+	 * Removes the cells of the other board.
+	 *
+	 * @param other a board of the same size
+	 * @return this board
+	 */
+	public BitBoard andNot(BitBoard other) {
+		for (int i = 0; i < words.length; i++) {
+			words[i] &= ~other.words[i];
+		}
+		return this;
+	}
+
+	/**
+	 * Replaces the set with every other cell of the grid.
+	 *
+	 * @return this board
+	 */
+	public BitBoard invert() {
+		for (int i = 0; i < words.length; i++) {
+			words[i] = ~words[i] & all[i];
+		}
+		return this;
+	}
+
+	/**
+	 * Moves every cell one step in the given direction, dropping cells that would
+	 * leave the grid.
+	 *
+	 * @param dir the direction
+	 * @return a new board of the moved cells
+	 */
+	public BitBoard shift(Direction dir) {
+		BitBoard shifted = new BitBoard(this);
+		shiftInto(dir, shifted.words);
+		return shifted;
+	}
+
+	/**
+	 * @return true if the set has no cells
+	 */
+	public boolean isEmpty() {
+		for (long w : words) {
+			if (w != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return number of cells in the set
+	 */
+	public int cardinality() {
+		int n = 0;
+		for (long w : words) {
+			n += Long.bitCount(w);
+		}
+		return n;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof BitBoard)) {
+			return false;
+		}
+		BitBoard other = (BitBoard) o;
+		return width == other.width && height == other.height && Arrays.equals(words, other.words);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(words);
+	}
+
+	/**
+	 * Private helper method that floods this set along one direction through the
+	 * given cells, reaching up to span - 1 steps with a doubling shift each round.
+	 *
+	 * @param passable the cells that may be stepped on
+	 * @param receive  cells that may receive from their neighbour in this
+	 *                 direction without wrapping to another row, or null for all
+	 * @param n        number of bit places of one step
+	 * @param span     number of cells in a line along the direction
+	 * @param higher   true to flood towards higher cell indices
+	 * @param pro      scratch array
+	 * @param shifted  scratch array
+	 */
+	private void fill(long[] passable, long[] receive, int n, int span, boolean higher, long[] pro,
+			long[] shifted) {
+		for (int i = 0; i < pro.length; i++) {
+			pro[i] = receive == null ? passable[i] : passable[i] & receive[i];
+		}
+		for (int k = n; k < n * span; k *= 2) {
+			// Cells of pro can now pass a cell along k places in one step
+			shift(words, k, higher, shifted);
+			for (int i = 0; i < words.length; i++) {
+				words[i] |= shifted[i] & pro[i];
+			}
+			shift(pro, k, higher, shifted);
+			for (int i = 0; i < pro.length; i++) {
+				pro[i] &= shifted[i];
+			}
+		}
+	}
+
+	/**
+	 * Private helper method that moves all bits a number of places, dropping bits
+	 * outside the grid.
+	 *
+	 * @param in     the bits
+	 * @param n      number of places
+	 * @param higher true to move towards higher indices
+	 * @param out    array of the same length to overwrite
+	 */
+	private void shift(long[] in, int n, boolean higher, long[] out) {
+		if (higher) {
+			shiftUp(in, null, n, out);
+		} else {
+			shiftDown(in, null, n, out);
+		}
+		for (int i = 0; i < out.length; i++) {
+			out[i] &= all[i];
+		}
+	}
+
+	/**
+	 * Private helper method that writes this set moved one step in the given
+	 * direction. Moving left or right first drops the column that would wrap onto
+	 * the neighbouring row.
+	 *
+	 * @param dir the direction
+	 * @param out array of the same length to overwrite
+	 */
+	private void shiftInto(Direction dir, long[] out) {
+		switch (dir) {
+		case UP:
+			shiftDown(words, null, width, out);
+			break;
+		case DOWN:
+			shiftUp(words, null, width, out);
+			break;
+		case LEFT:
+			shiftDown(words, notFirstCol, 1, out);
+			break;
+		default:
+			shiftUp(words, notLastCol, 1, out);
+		}
+		for (int i = 0; i < out.length; i++) {
+			out[i] &= all[i];
+		}
+	}
+
+	/**
+	 * Private helper method that moves bits towards higher indices.
+	 *
+	 * @param in   the bits
+	 * @param mask bits of in to keep first, or null for all
+	 * @param n    number of places to move, at least 0
+	 * @param out  array of the same length to overwrite
+	 */
+	private static void shiftUp(long[] in, long[] mask, int n, long[] out) {
+		int wordShift = n >>> 6;
+		int bitShift = n & 63;
+		for (int i = out.length - 1; i >= 0; i--) {
+			int src = i - wordShift;
+			long hi = src >= 0 ? word(in, mask, src) : 0;
+			long lo = src - 1 >= 0 ? word(in, mask, src - 1) : 0;
+			out[i] = bitShift == 0 ? hi : hi << bitShift | lo >>> (64 - bitShift);
+		}
+	}
+
+	/**
+	 * Private helper method that moves bits towards lower indices.
+	 *
+	 * @param in   the bits
+	 * @param mask bits of in to keep first, or null for all
+	 * @param n    number of places to move, at least 0
+	 * @param out  array of the same length to overwrite
+	 */
+	private static void shiftDown(long[] in, long[] mask, int n, long[] out) {
+		int wordShift = n >>> 6;
+		int bitShift = n & 63;
+		for (int i = 0; i < out.length; i++) {
+			int src = i + wordShift;
+			long lo = src < in.length ? word(in, mask, src) : 0;
+			long hi = src + 1 < in.length ? word(in, mask, src + 1) : 0;
+			out[i] = bitShift == 0 ? lo : lo >>> bitShift | hi << (64 - bitShift);
+		}
+	}
+
+	/**
+	 * Private helper method that reads one word of bits through a mask.
+	 *
+	 * @param in    the bits
+	 * @param mask  the mask, or null for none
+	 * @param index index of the word
+	 * @return the masked word
+	 */
+	private static long word(long[] in, long[] mask, int index) {
+		return mask == null ? in[index] : in[index] & mask[index];
+	}
+}
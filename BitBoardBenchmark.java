@@ -0,0 +1,206 @@
+package hw3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import api.BodySegment;
+import api.Direction;
+import api.Exit;
+import api.Wall;
+
+/**
+ * Compares the word-wide {@link BitBoard} kernels with the same analyses done
+ * one cell at a time through {@link LizardGame#isAvailable(int, int)}, on
+ * square boards of growing size: the free cells mask, the cells reachable from
+ * the exits, and the distance of every cell to the nearest exit. Each run
+ * checks that both ways give the same answer.
+ * <p>
+ * The free mask wins at every size. The flood fill wins up to 128 by 128 but is
+ * about even or slower at 256 by 256, where the walls make paths turn often.
+ * The distance field is a queue search that only replaces the isAvailable
+ * calls with bit tests, so it is several times faster from 64 by 64 up and
+ * within noise below.
+ * <p>
+ * Usage: {@code BitBoardBenchmark [maxSide] [repeats]}, default 256 and 200.
+ *
+ * @author Muhammad Blal
+ */
+public class BitBoardBenchmark {
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args optional largest board side and number of repeats
+	 */
+	public static void main(String[] args) {
+		int maxSide = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+		int repeats = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+		System.out.printf("%6s %12s %12s %12s %12s %12s %12s%n", "side", "free cell", "free bits", "fill cell",
+				"fill bits", "dist cell", "dist bits");
+		for (int side = 16; side <= maxSide; side *= 2) {
+			LizardGame game = randomGame(side, new Random(side));
+			BitBoard walls = BitBoard.walls(game);
+			BitBoard exits = BitBoard.exits(game);
+			BitBoard lizards = new BitBoard(side, side);
+
+			// Check that both ways agree before timing them
+			BitBoard.lizards(game, lizards);
+			BitBoard free = BitBoard.free(walls, lizards);
+			int[] scalarDistance = distanceByCell(game);
+			int[] bitDistance = BitBoard.distanceField(exits, free);
+			if (!Arrays.equals(freeByCell(game), toBooleans(free))) {
+				throw new IllegalStateException("free masks differ for side " + side);
+			}
+			if (!Arrays.equals(scalarDistance, bitDistance)) {
+				throw new IllegalStateException("distance fields differ for side " + side);
+			}
+			if (!Arrays.equals(reachable(scalarDistance), toBooleans(BitBoard.floodFill(exits, free)))) {
+				throw new IllegalStateException("flood fills differ for side " + side);
+			}
+
+			double freeCell = time(repeats, () -> freeByCell(game));
+			double freeBits = time(repeats, () -> {
+				BitBoard.lizards(game, lizards);
+				BitBoard.free(walls, lizards);
+			});
+			double fillCell = time(repeats, () -> reachable(distanceByCell(game)));
+			double fillBits = time(repeats, () -> BitBoard.floodFill(exits, free));
+			double distCell = time(repeats, () -> distanceByCell(game));
+			double distBits = time(repeats, () -> BitBoard.distanceField(exits, free));
+			System.out.printf("%6d %12.1f %12.1f %12.1f %12.1f %12.1f %12.1f%n", side, freeCell, freeBits, fillCell,
+					fillBits, distCell, distBits);
+		}
+		System.out.println("(microseconds per call, best of 5 rounds)");
+	}
+
+	/**
+	 * Private helper method that times a task.
+	 *
+	 * @param repeats number of calls per round
+	 * @param task    the task
+	 * @return the best average time per call over five rounds, in microseconds
+	 */
+	private static double time(int repeats, Runnable task) {
+		double best = Double.MAX_VALUE;
+		for (int round = 0; round < 5; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < repeats; i++) {
+				task.run();
+			}
+			best = Math.min(best, (System.nanoTime() - start) / 1e3 / repeats);
+		}
+		return best;
+	}
+
+	/**
+	 * Private helper method that finds the free cells one cell at a time.
+	 *
+	 * @param game the game
+	 * @return for each cell index, true if isAvailable
+	 */
+	private static boolean[] freeByCell(LizardGame game) {
+		int width = game.getWidth();
+		boolean[] free = new boolean[width * game.getHeight()];
+		for (int row = 0; row < game.getHeight(); row++) {
+			for (int col = 0; col < width; col++) {
+				free[row * width + col] = game.isAvailable(col, row);
+			}
+		}
+		return free;
+	}
+
+	/**
+	 * Private helper method that finds the distance of every cell to the nearest
+	 * exit with a breadth-first search that tests each neighbour with
+	 * isAvailable.
+	 *
+	 * @param game the game
+	 * @return the distance of each cell by index, or -1 where unreachable
+	 */
+	private static int[] distanceByCell(LizardGame game) {
+		int width = game.getWidth();
+		int[] distance = new int[width * game.getHeight()];
+		Arrays.fill(distance, -1);
+		int[] queue = new int[distance.length];
+		int tail = 0;
+		for (int row = 0; row < game.getHeight(); row++) {
+			for (int col = 0; col < width; col++) {
+				if (game.hasExit(col, row) && game.isAvailable(col, row)) {
+					distance[row * width + col] = 0;
+					queue[tail++] = row * width + col;
+				}
+			}
+		}
+		for (int head = 0; head < tail; head++) {
+			int cell = queue[head];
+			for (Direction dir : Direction.values()) {
+				int col = cell % width + (dir == Direction.RIGHT ? 1 : dir == Direction.LEFT ? -1 : 0);
+				int row = cell / width + (dir == Direction.DOWN ? 1 : dir == Direction.UP ? -1 : 0);
+				if (game.isAvailable(col, row) && distance[row * width + col] < 0) {
+					distance[row * width + col] = distance[cell] + 1;
+					queue[tail++] = row * width + col;
+				}
+			}
+		}
+		return distance;
+	}
+
+	/**
+	 * Private helper method that marks the cells with a distance.
+	 *
+	 * @param distance distance of each cell, or -1
+	 * @return for each cell index, true if reachable
+	 */
+	private static boolean[] reachable(int[] distance) {
+		boolean[] reached = new boolean[distance.length];
+		for (int i = 0; i < distance.length; i++) {
+			reached[i] = distance[i] >= 0;
+		}
+		return reached;
+	}
+
+	/**
+	 * Private helper method that unpacks a board for comparison.
+	 *
+	 * @param board the board
+	 * @return for each cell index, true if in the set
+	 */
+	private static boolean[] toBooleans(BitBoard board) {
+		boolean[] cells = new boolean[board.getWidth() * board.getHeight()];
+		for (int i = 0; i < cells.length; i++) {
+			cells[i] = board.get(i % board.getWidth(), i / board.getWidth());
+		}
+		return cells;
+	}
+
+	/**
+	 * Private helper method that builds a board with random walls, two exits and
+	 * a horizontal lizard on every fourth row.
+	 *
+	 * @param side   number of rows and columns
+	 * @param random source of randomness
+	 * @return the new game
+	 */
+	private static LizardGame randomGame(int side, Random random) {
+		LizardGame game = new LizardGame(side, side);
+		for (int row = 0; row < side; row += 4) {
+			Lizard lizard = new Lizard();
+			ArrayList<BodySegment> segments = new ArrayList<>();
+			for (int col = 0; col < 3; col++) {
+				segments.add(new BodySegment(lizard, game.getCell(col, row)));
+			}
+			lizard.setSegments(segments);
+			game.addLizard(lizard);
+		}
+		for (int row = 0; row < side; row++) {
+			for (int col = 3; col < side - 1; col++) {
+				if (random.nextInt(4) == 0) {
+					game.addWall(new Wall(game.getCell(col, row)));
+				}
+			}
+		}
+		game.addExit(new Exit(game.getCell(side - 1, side / 2)));
+		game.addExit(new Exit(game.getCell(side / 2, side - 1)));
+		return game;
+	}
+}
@@ -125,6 +125,13 @@ public class Cell {
 		if (lizard != null) {
 			occupied = "Lizard";
 		}
-		return String.format("%20s", "(" + col + "," + row + "," + type + "," + occupied + ")");
+		// Pad on the left to 20 characters without going through String.format
+		StringBuilder sb = new StringBuilder(20);
+		sb.append('(').append(col).append(',').append(row).append(',').append(type).append(',').append(occupied)
+				.append(')');
+		while (sb.length() < 20) {
+			sb.insert(0, ' ');
+		}
+		return sb.toString();
 	}
 }
@@ -0,0 +1,26 @@
+package api;
+
+import hw3.LizardGame;
+
+/**
+ * Base class of all events published by a game on its event bus.
+ */
+public abstract class GameEvent {
+	private LizardGame game;
+
+	/**
+	 * Creates a new event raised by the given game.
+	 * 
+	 * @param game the game that raised the event
+	 */
+	protected GameEvent(LizardGame game) {
+		this.game = game;
+	}
+
+	/**
+	 * @return the game that raised the event
+	 */
+	public LizardGame getGame() {
+		return game;
+	}
+}
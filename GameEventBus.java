@@ -0,0 +1,196 @@
+package hw3;
+
+import java.awt.EventQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import api.GameEvent;
+import api.GameEventListener;
+
+/**
+ * Publishes game events to any number of subscribers. Each subscriber chooses
+ * how it wants events delivered:
+ * <ul>
+ * <li>{@link Delivery#IMMEDIATE} calls the listener on the publishing thread as
+ * soon as the event happens.</li>
+ * <li>{@link Delivery#BATCHED} queues events and hands them over as one list on
+ * {@link #flush()}, or once the queue reaches the batch size. High-rate
+ * simulations use this to avoid paying a listener call per move.</li>
+ * <li>{@link Delivery#SWING} hands events over as one list on the Swing event
+ * dispatch thread. Events published while a delivery is already pending are
+ * added to it, so a burst of moves costs a single UI update.</li>
+ * </ul>
+ * Publishing is done by the game's own thread; the Swing queue may be drained
+ * concurrently by the event dispatch thread.
+ *
+ * @author Muhammad Blal
+ */
+public class GameEventBus {
+	/**
+	 * How events are handed to a subscriber.
+	 */
+	public enum Delivery {
+		IMMEDIATE, BATCHED, SWING;
+	}
+
+	/**
+	 * Number of queued events that triggers a batched delivery without waiting for
+	 * flush.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 1024;
+
+	/**
+	 * All current subscribers. Copy-on-write so that listeners may subscribe or
+	 * unsubscribe while an event is being delivered.
+	 */
+	private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Maximum number of events queued for a batched subscriber before delivery.
+	 */
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	/**
+	 * Subscribes the given listener for immediate delivery.
+	 *
+	 * @param listener the listener to call
+	 */
+	public void subscribe(GameEventListener listener) {
+		subscribe(listener, Delivery.IMMEDIATE);
+	}
+
+	/**
+	 * Subscribes the given listener with the given delivery mode. A listener
+	 * subscribed twice receives every event twice.
+	 *
+	 * @param listener the listener to call
+	 * @param delivery how events are handed to the listener
+	 */
+	public void subscribe(GameEventListener listener, Delivery delivery) {
+		subscriptions.add(new Subscription(listener, delivery));
+	}
+
+	/**
+	 * Removes every subscription of the given listener. Events still queued for
+	 * it are dropped.
+	 *
+	 * @param listener the listener to remove
+	 */
+	public void unsubscribe(GameEventListener listener) {
+		subscriptions.removeIf(s -> s.listener == listener);
+	}
+
+	/**
+	 * Returns true if anyone is listening. Publishers check this before creating
+	 * an event so that a game without subscribers allocates nothing.
+	 *
+	 * @return true if there is at least one subscriber, false otherwise
+	 */
+	public boolean hasSubscribers() {
+		return !subscriptions.isEmpty();
+	}
+
+	/**
+	 * Sets the number of queued events that triggers a batched delivery.
+	 *
+	 * @param batchSize number of events, at least 1
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	/**
+	 * Publishes an event to all subscribers according to their delivery mode.
+	 *
+	 * @param event the event to publish
+	 */
+	public void publish(GameEvent event) {
+		for (Subscription s : subscriptions) {
+			if (s.delivery == Delivery.IMMEDIATE) {
+				s.listener.onEvent(event);
+			} else if (s.delivery == Delivery.BATCHED) {
+				s.pending.add(event);
+				if (s.pending.size() >= batchSize) {
+					s.deliverPending();
+				}
+			} else {
+				s.queue.add(event);
+				// Only one drain task is scheduled at a time, later events join it
+				if (s.scheduled.compareAndSet(false, true)) {
+					EventQueue.invokeLater(s::drainQueue);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Delivers all events queued for batched subscribers.
+	 */
+	public void flush() {
+		for (Subscription s : subscriptions) {
+			if (s.delivery == Delivery.BATCHED) {
+				s.deliverPending();
+			}
+		}
+	}
+
+	/**
+	 * A listener together with its delivery mode and any queued events.
+	 */
+	private static class Subscription {
+		private final GameEventListener listener;
+		private final Delivery delivery;
+
+		/**
+		 * Events waiting for a batched delivery, touched only by the publisher.
+		 */
+		private ArrayList<GameEvent> pending = new ArrayList<>();
+
+		/**
+		 * Events waiting for the Swing thread.
+		 */
+		private final ConcurrentLinkedQueue<GameEvent> queue = new ConcurrentLinkedQueue<>();
+
+		/**
+		 * Whether a drain task is already waiting on the Swing event queue.
+		 */
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+
+		private Subscription(GameEventListener listener, Delivery delivery) {
+			this.listener = listener;
+			this.delivery = delivery;
+		}
+
+		/**
+		 * Hands the pending batch to the listener and starts a new one.
+		 */
+		private void deliverPending() {
+			if (pending.isEmpty()) {
+				return;
+			}
+			ArrayList<GameEvent> batch = pending;
+			pending = new ArrayList<>();
+			listener.onEvents(batch);
+		}
+
+		/**
+		 * Runs on the Swing thread and hands every queued event to the listener.
+		 */
+		private void drainQueue() {
+			// Clear the flag first so an event published during delivery schedules a new
+			// drain instead of being stranded
+			scheduled.set(false);
+			ArrayList<GameEvent> batch = new ArrayList<>();
+			GameEvent event;
+			while ((event = queue.poll()) != null) {
+				batch.add(event);
+			}
+			if (!batch.isEmpty()) {
+				listener.onEvents(batch);
+			}
+		}
+	}
+}
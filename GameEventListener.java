@@ -0,0 +1,30 @@
+package api;
+
+import java.util.List;
+
+/**
+ * A listener for events published on a game's event bus.
+ */
+public interface GameEventListener {
+	/**
+	 * Called for every event when the listener is subscribed for immediate
+	 * delivery.
+	 * 
+	 * @param event the event that happened
+	 */
+	public void onEvent(GameEvent event);
+
+	/**
+	 * Called with a group of events, in the order they happened, when the
+	 * listener is subscribed for batched or Swing delivery. By default each event
+	 * is passed to {@link #onEvent(GameEvent)}; listeners that only care about the
+	 * latest state can override this to skip the intermediate events.
+	 * 
+	 * @param events the events that happened since the last delivery
+	 */
+	public default void onEvents(List<GameEvent> events) {
+		for (GameEvent event : events) {
+			onEvent(event);
+		}
+	}
+}
@@ -1,17 +1,19 @@
 package hw3;
 
-import api.BodySegment;
-import api.Cell;
-import api.Exit;
-import api.Wall;
-import java.io.File;
-import java.io.FileNotFoundException;
+import api.LevelLoadedEvent;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
 import java.util.Scanner;
 
 /**
- * Utility class with static methods for loading game files.
- * 
+ * Utility class with static methods for loading and saving game files.
+ *
  * @author Muhammad Blal
  */
 public class GameFileUtil {
@@ -24,60 +26,220 @@ public class GameFileUtil {
 	 * @param game     the game to modify
 	 */
     public static void load(String filePath, LizardGame game) {
-        File file = new File(filePath); // Create a File object from the given file path.
-        Scanner scnr;
-        try {
-            scnr = new Scanner(file); // Try to open the file for reading.
-        } catch (FileNotFoundException e) {
-            return; // If the file is not found, exit the method without making changes.
+        // Skip all timing work unless metrics were switched on
+        boolean loaded;
+        if (!GameMetrics.isEnabled()) {
+            loaded = loadTemplate(filePath, game);
+        } else {
+            GameMetrics.LOADS.increment();
+            long start = System.nanoTime();
+            loaded = loadTemplate(filePath, game);
+            GameMetrics.LOAD_LATENCY.record(System.nanoTime() - start);
         }
 
+        // Announce the new level once it is fully in place
+        if (loaded && game.getEventBus().hasSubscribers()) {
+            game.getEventBus().publish(new LevelLoadedEvent(game, filePath));
+        }
+    }
+
+    /**
+     * Saves the current state of the given game to the given file path in the
+     * text format read by {@link #load(String, LizardGame)}. Lizards are saved at
+     * their current positions.
+     *
+     * @param filePath the path of the file to write
+     * @param game     the game to save
+     * @throws IOException if the file cannot be written
+     */
+    public static void save(String filePath, LizardGame game) throws IOException {
+        try (Writer out = new BufferedWriter(new FileWriter(filePath, StandardCharsets.UTF_8))) {
+            GameTextWriter.writeLevel(game, out); // Stream the level text straight to the file.
+        } finally {
+            LevelCache.getDefault().invalidate(filePath); // Never serve the old contents from the cache.
+        }
+    }
+
+    /**
+     * Saves the current state of the given game to the given file path in the
+     * compact binary format of {@link GameStateWriter}.
+     *
+     * @param filePath the path of the file to write
+     * @param game     the game to save
+     * @throws IOException if the file cannot be written
+     */
+    public static void saveBinary(String filePath, LizardGame game) throws IOException {
+        try (GameStateWriter out = new GameStateWriter(filePath)) {
+            out.write(game);
+        }
+    }
+
+    /**
+     * Loads the first state of a binary file written by
+     * {@link #saveBinary(String, LizardGame)} or {@link #saveAll(String, List)}
+     * into the given game.
+     *
+     * @param filePath the path of the file to load
+     * @param game     the game to modify
+     * @throws IOException if the file cannot be read or holds no state
+     */
+    public static void loadBinary(String filePath, LizardGame game) throws IOException {
+        boolean timed = GameMetrics.isEnabled();
+        long start = timed ? System.nanoTime() : 0;
+        try (GameStateReader in = new GameStateReader(filePath)) {
+            LevelTemplate state = in.read();
+            if (state == null) {
+                throw new IOException("no game state in " + filePath);
+            }
+            game.load(state);
+        }
+        loaded(filePath, game, timed, start);
+    }
+
+    /**
+     * Saves the current state of every given game into one binary file, in order,
+     * through a single buffered stream.
+     *
+     * @param filePath the path of the file to write
+     * @param games    the games to save
+     * @throws IOException if the file cannot be written
+     */
+    public static void saveAll(String filePath, List<LizardGame> games) throws IOException {
+        try (GameStateWriter out = new GameStateWriter(filePath)) {
+            for (LizardGame game : games) {
+                out.write(game);
+            }
+        }
+    }
+
+    /**
+     * Loads every state of a binary file written by {@link #saveAll(String, List)}
+     * into a new game each.
+     *
+     * @param filePath the path of the file to load
+     * @return the games in the order they were saved
+     * @throws IOException if the file cannot be read
+     */
+    public static List<LizardGame> loadAll(String filePath) throws IOException {
+        List<LizardGame> games = new ArrayList<>();
+        try (GameStateReader in = new GameStateReader(filePath)) {
+            while (true) {
+                boolean timed = GameMetrics.isEnabled();
+                long start = timed ? System.nanoTime() : 0;
+                LevelTemplate state = in.read();
+                if (state == null) {
+                    break;
+                }
+                LizardGame game = new LizardGame(state);
+                loaded(filePath, game, timed, start);
+                games.add(game);
+            }
+        }
+        return games;
+    }
+
+    /**
+     * Private helper method that finishes loading a state the way
+     * {@link #load(String, LizardGame)} does: the load is counted in the
+     * metrics and announced to the game's subscribers.
+     *
+     * @param filePath the path of the file the state came from
+     * @param game     the game holding the new state
+     * @param timed    true if metrics were on when the load started
+     * @param start    time the load started, if timed
+     */
+    private static void loaded(String filePath, LizardGame game, boolean timed, long start) {
+        if (timed) {
+            GameMetrics.LOADS.increment();
+            GameMetrics.LOAD_LATENCY.record(System.nanoTime() - start);
+        }
+        if (game.getEventBus().hasSubscribers()) {
+            game.getEventBus().publish(new LevelLoadedEvent(game, filePath));
+        }
+    }
+
+    /**
+     * Private helper method that puts the shared template of the file at the
+     * given path into the game, as described by {@link #load(String, LizardGame)}.
+     * The template comes from the level cache, so a level that was loaded before
+     * is not read or parsed again.
+     *
+     * @param filePath the path of the file to load
+     * @param game     the game to modify
+     * @return true if the file was read, false if it could not be opened
+     */
+    private static boolean loadTemplate(String filePath, LizardGame game) {
+        LevelTemplate template = LevelCache.getDefault().get(filePath);
+        if (template == null) {
+            return false; // If the file is not found, exit the method without making changes.
+        }
+        game.load(template);
+        return true;
+    }
+
+    /**
+     * Parses the contents of a level file into a template. Callers should go
+     * through {@link LevelTemplate#forText(String)} so that templates are shared.
+     *
+     * @param text the contents of a level file
+     * @return the parsed level
+     */
+    static LevelTemplate parse(String text) {
+        Scanner scnr = new Scanner(text);
+
         // Read the grid dimensions from the file.
         String ds = scnr.nextLine(); // Read the first line containing dimensions.
         String[] dimensions = ds.split("x"); // Split the dimension string at 'x' to get width and height.
         int width = Integer.parseInt(dimensions[0]); // Parse width from the dimensions array.
         int height = Integer.parseInt(dimensions[1]); // Parse height from the dimensions array.
-        game.resetGrid(width, height); // Reset the game grid with the new dimensions.
 
         // Parse the grid representation (walls and exits) from the file.
+        BitSet walls = new BitSet(width * height);
+        BitSet exits = new BitSet(width * height);
         for (int row = 0; row < height; row++) {
             String line = scnr.nextLine(); // Read each line representing a row of the grid.
             for (int col = 0; col < width; col++) {
                 char c = line.charAt(col); // Get the character at each column in the row.
-                Cell cell = game.getCell(col, row); // Get the corresponding Cell object from the game.
 
                 if (c == 'W') {
-                    Wall wall = new Wall(cell); // Create a Wall object if the character is 'W'.
-                    game.addWall(wall); // Add the wall to the game.
+                    walls.set(row * width + col); // Mark a wall if the character is 'W'.
                 } else if (c == 'E') {
-                    Exit exit = new Exit(cell); // Create an Exit object if the character is 'E'.
-                    game.addExit(exit); // Add the exit to the game.
+                    exits.set(row * width + col); // Mark an exit if the character is 'E'.
                 }
             }
         }
 
         // Parse the lizard segment positions from the file.
+        ArrayList<int[]> lizards = new ArrayList<>();
         while (scnr.hasNextLine()) {
             String line = scnr.nextLine(); // Read each line representing a lizard.
             Scanner linescnr = new Scanner(line); // Open a new scanner for parsing the line.
+            if (!linescnr.hasNext()) { // Skip blank lines.
+                linescnr.close();
+                continue;
+            }
             String first = linescnr.next(); // Read the first word to identify lizard lines.
 
             if (first.equals("L")) { // Check if the line represents a lizard.
-                Lizard lizard = new Lizard(); // Create a new Lizard object.
-                ArrayList<BodySegment> segments = new ArrayList<>(); // Create a list for the lizard's segments.
+                ArrayList<Integer> cells = new ArrayList<>(); // Create a list for the lizard's segments.
 
                 while (linescnr.hasNext()) { // Iterate through the segment positions.
                     String loc = linescnr.next(); // Read the segment position.
                     String[] coordinates = loc.split(","); // Split the position into column and row.
                     int col = Integer.parseInt(coordinates[0]); // Parse the column value.
                     int row = Integer.parseInt(coordinates[1]); // Parse the row value.
-                    segments.add(new BodySegment(lizard, game.getCell(col, row))); // Add the segment to the list.
+                    cells.add(row * width + col); // Add the segment to the list.
                 }
 
-                lizard.setSegments(segments); // Set the segments to the lizard.
-                game.addLizard(lizard); // Add the lizard to the game.
+                int[] path = new int[cells.size()];
+                for (int i = 0; i < path.length; i++) {
+                    path[i] = cells.get(i);
+                }
+                lizards.add(path); // Add the lizard to the level.
             }
             linescnr.close(); // Close the line scanner.
         }
+        scnr.close(); // Close the file scanner.
+        return new LevelTemplate(width, height, walls, exits, lizards);
     }
 }
@@ -0,0 +1,173 @@
+package hw3;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in instrumentation for the game engine. Counts moves attempted, applied
+ * and rejected, lizards that have exited and the latency of loading and moving.
+ * <p>
+ * Metrics are disabled by default and can be turned on with
+ * {@link #setEnabled(boolean)} or by starting the JVM with
+ * {@code -Dlizard.metrics=true}. When disabled every hook is a single read of a
+ * volatile flag. Counters use striped {@link LongAdder}s so many games running
+ * on different threads do not contend on one memory location.
+ * <p>
+ * The collected values can be written in the Prometheus text exposition
+ * format with {@link #writePrometheus(Appendable)} or
+ * {@link #exportTo(String)}.
+ *
+ * @author Muhammad Blal
+ */
+public class GameMetrics {
+	/**
+	 * Whether metrics are currently being collected.
+	 */
+	private static volatile boolean enabled = Boolean.getBoolean("lizard.metrics");
+
+	/**
+	 * Number of calls to LizardGame.move.
+	 */
+	public static final LongAdder MOVES_ATTEMPTED = new LongAdder();
+
+	/**
+	 * Number of moves that actually shifted a lizard.
+	 */
+	public static final LongAdder MOVES_APPLIED = new LongAdder();
+
+	/**
+	 * Number of moves refused because the target cell was not available.
+	 */
+	public static final LongAdder MOVES_REJECTED_UNAVAILABLE = new LongAdder();
+
+	/**
+	 * Number of lizards removed from a grid by reaching an exit.
+	 */
+	public static final LongAdder LIZARDS_EXITED = new LongAdder();
+
+	/**
+	 * Number of calls to GameFileUtil.load.
+	 */
+	public static final LongAdder LOADS = new LongAdder();
+
+	/**
+	 * Latency of LizardGame.move in nanoseconds.
+	 */
+	public static final LatencyHistogram MOVE_LATENCY = new LatencyHistogram();
+
+	/**
+	 * Latency of GameFileUtil.load in nanoseconds.
+	 */
+	public static final LatencyHistogram LOAD_LATENCY = new LatencyHistogram();
+
+	/**
+	 * Quantiles reported for each latency histogram.
+	 */
+	private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+	/**
+	 * Utility class, not to be instantiated.
+	 */
+	private GameMetrics() {
+	}
+
+	/**
+	 * @return true if metrics are being collected, false otherwise
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Turns metric collection on or off. Values already collected are kept.
+	 *
+	 * @param on true to collect metrics
+	 */
+	public static void setEnabled(boolean on) {
+		enabled = on;
+	}
+
+	/**
+	 * Clears every counter and histogram.
+	 */
+	public static void reset() {
+		MOVES_ATTEMPTED.reset();
+		MOVES_APPLIED.reset();
+		MOVES_REJECTED_UNAVAILABLE.reset();
+		LIZARDS_EXITED.reset();
+		LOADS.reset();
+		MOVE_LATENCY.reset();
+		LOAD_LATENCY.reset();
+	}
+
+	/**
+	 * Writes all metrics in the Prometheus text exposition format.
+	 *
+	 * @param out where to write the metrics
+	 * @throws IOException if the output cannot be written
+	 */
+	public static void writePrometheus(Appendable out) throws IOException {
+		writeCounter(out, "lizard_moves_attempted_total", "Calls to LizardGame.move.", MOVES_ATTEMPTED);
+		writeCounter(out, "lizard_moves_applied_total", "Moves that shifted a lizard.", MOVES_APPLIED);
+		writeCounter(out, "lizard_moves_rejected_unavailable_total",
+				"Moves refused because the target cell was not available.", MOVES_REJECTED_UNAVAILABLE);
+		writeCounter(out, "lizard_lizards_exited_total", "Lizards that reached an exit.", LIZARDS_EXITED);
+		writeCounter(out, "lizard_loads_total", "Calls to GameFileUtil.load.", LOADS);
+		writeSummary(out, "lizard_move_latency_seconds", "Latency of LizardGame.move.", MOVE_LATENCY);
+		writeSummary(out, "lizard_load_latency_seconds", "Latency of GameFileUtil.load.", LOAD_LATENCY);
+	}
+
+	/**
+	 * Writes all metrics in the Prometheus text format to the given file,
+	 * replacing its contents. The file can be picked up by a node exporter
+	 * textfile collector or read by hand.
+	 *
+	 * @param filePath location of the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void exportTo(String filePath) throws IOException {
+		try (Writer out = new FileWriter(filePath)) {
+			writePrometheus(out);
+		}
+	}
+
+	/**
+	 * Private helper method that writes one counter.
+	 *
+	 * @param out     where to write
+	 * @param name    metric name
+	 * @param help    description of the metric
+	 * @param counter the counter to write
+	 * @throws IOException if the output cannot be written
+	 */
+	private static void writeCounter(Appendable out, String name, String help, LongAdder counter)
+			throws IOException {
+		out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		out.append("# TYPE ").append(name).append(" counter\n");
+		out.append(name).append(' ').append(Long.toString(counter.sum())).append('\n');
+	}
+
+	/**
+	 * Private helper method that writes one latency histogram as a summary with
+	 * values converted from nanoseconds to seconds.
+	 *
+	 * @param out       where to write
+	 * @param name      metric name
+	 * @param help      description of the metric
+	 * @param histogram the histogram to write
+	 * @throws IOException if the output cannot be written
+	 */
+	private static void writeSummary(Appendable out, String name, String help, LatencyHistogram histogram)
+			throws IOException {
+		out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		out.append("# TYPE ").append(name).append(" summary\n");
+		for (double q : QUANTILES) {
+			out.append(name).append("{quantile=\"").append(Double.toString(q)).append("\"} ")
+					.append(Double.toString(histogram.getValueAtQuantile(q) / 1e9)).append('\n');
+		}
+		out.append(name).append("_sum ").append(Double.toString(histogram.getSum() / 1e9)).append('\n');
+		out.append(name).append("_count ").append(Long.toString(histogram.getCount())).append('\n');
+	}
+}
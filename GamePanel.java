@@ -5,6 +5,8 @@ import java.awt.Color;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
+import java.io.IOException;
+import java.util.List;
 
 import javax.swing.Box;
 import javax.swing.BoxLayout;
@@ -13,21 +15,32 @@ import javax.swing.JFileChooser;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 import javax.swing.border.EmptyBorder;
 
 import api.ScoreUpdateListener;
 import api.ShowDialogListener;
+import hw3.GameFileUtil;
+import hw3.HintService;
+import hw3.LevelCache;
+import hw3.LevelWatcher;
 import hw3.LizardGame;
+import hw3.SolutionDatabase;
+import hw3.Solver;
 
 public class GamePanel extends JPanel implements ShowDialogListener, ScoreUpdateListener {
 	private static final long serialVersionUID = 1L;
+	private static final int PREFETCH_LEVELS = 3;
 	private GridViz playGrid;
 	private Box box;
 	private LizardGame game;
 	private JLabel scoreLabel;
+	private HintService hints;
+	private LevelWatcher watcher;
 
 	public GamePanel(LizardGame game) {
 		this.game = game;
+		hints = new HintService(game, hintSolver(), HintService.DEFAULT_CACHE_SIZE);
 		setBorder(new EmptyBorder(5, 5, 5, 5));
 		setLayout(new BorderLayout(0, 0));
 		JPanel southPanel = new JPanel();
@@ -39,9 +52,25 @@ public class GamePanel extends JPanel implements ShowDialogListener, ScoreUpdate
 				load();
 			}
 		});
+		JButton saveButton = new JButton("Save");
+		saveButton.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				save();
+			}
+		});
+		JButton hintButton = new JButton("Hint");
+		hintButton.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				hint();
+			}
+		});
 		scoreLabel = new JLabel();
 		scoreLabel.setForeground(Color.WHITE);
 		southPanel.add(loadButton);
+		southPanel.add(saveButton);
+		southPanel.add(hintButton);
 		southPanel.add(scoreLabel);
 		add(southPanel, BorderLayout.SOUTH);
 		setBackground(new Color(0x444444));
@@ -78,6 +107,75 @@ public class GamePanel extends JPanel implements ShowDialogListener, ScoreUpdate
 		String filePath = fileChooser(false);
 		game.load(filePath);
 		setPlayGrid(playGrid);
+		// A cancelled chooser or a missing file leaves the current level and its watcher alone
+		if (!filePath.isEmpty() && new File(filePath).isFile()) {
+			watch(filePath);
+			// Warm the cache with the levels that follow in the same directory
+			List<String> pack = LevelCache.packOf(filePath);
+			int current = pack.indexOf(new File(filePath).getAbsolutePath());
+			if (current >= 0) {
+				LevelCache.getDefault().prefetch(pack, current, PREFETCH_LEVELS);
+			}
+		}
+	}
+
+	private static Solver hintSolver() {
+		// Keep solutions across restarts in the file named by -Dlizard.solutions, read only
+		// if another window is already writing it
+		Solver solver = new Solver();
+		String path = System.getProperty("lizard.solutions");
+		if (path != null) {
+			try {
+				solver.setDatabase(new SolutionDatabase(path, true));
+			} catch (IOException e) {
+				try {
+					solver.setDatabase(new SolutionDatabase(path, false));
+				} catch (IOException e2) {
+					System.err.println("Cannot open solution database " + path + ": " + e2.getMessage());
+				}
+			}
+		}
+		return solver;
+	}
+
+	private void watch(String filePath) {
+		// Follow edits to the loaded file, applied on the event thread
+		try {
+			if (watcher != null) {
+				watcher.close();
+				watcher = null;
+			}
+			if (game.getTemplate() != null) {
+				watcher = new LevelWatcher(game, filePath, task -> SwingUtilities.invokeLater(() -> {
+					task.run();
+					playGrid.update();
+				}));
+			}
+		} catch (IOException e) {
+			System.err.println("Cannot watch " + filePath + " for changes: " + e.getMessage());
+		}
+	}
+
+	public void save() {
+		String filePath = fileChooser(true);
+		if (filePath.isEmpty()) {
+			return;
+		}
+		try {
+			GameFileUtil.save(filePath, game);
+		} catch (IOException e) {
+			showDialog("Could not save " + filePath + ": " + e.getMessage());
+		}
+	}
+
+	public void hint() {
+		int move = hints.getHint();
+		if (move == HintService.NO_HINT) {
+			showDialog(hints.isSearching() ? "Still looking for a hint, try again in a moment." : "No hint available.");
+			return;
+		}
+		showDialog("Move the lizard at (" + LizardGame.unpackCol(move) + ", " + LizardGame.unpackRow(move) + ") "
+				+ LizardGame.unpackDirection(move) + ".");
 	}
 
 	@Override
@@ -0,0 +1,142 @@
+package hw3;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import api.Direction;
+
+/**
+ * One player's game, run as an actor. Every request against the game is placed
+ * in the session's mailbox and executed one at a time on a shared executor, so
+ * the game itself is only ever touched by one thread at a time and needs no
+ * locks. Different sessions run in parallel on different executor threads.
+ *
+ * @author Muhammad Blal
+ */
+public class GameSession {
+	/**
+	 * Number of messages processed in one turn on the executor before the session
+	 * yields its thread to other sessions.
+	 */
+	private static final int MAX_MESSAGES_PER_TURN = 64;
+
+	/**
+	 * Identifier of the session, unique within its engine.
+	 */
+	private final long id;
+
+	/**
+	 * The game owned by this session. Only accessed from inside the mailbox.
+	 */
+	private final LizardGame game;
+
+	/**
+	 * Executor shared by all sessions of an engine.
+	 */
+	private final Executor executor;
+
+	/**
+	 * Requests waiting to run against the game.
+	 */
+	private final ConcurrentLinkedQueue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Whether the session is currently scheduled on, or running on, the executor.
+	 */
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+
+	/**
+	 * Constructs a session around the given game.
+	 *
+	 * @param id       identifier of the session
+	 * @param game     the game owned by the session; no other code may keep a
+	 *                 reference to it
+	 * @param executor executor on which the session's requests run
+	 */
+	public GameSession(long id, LizardGame game, Executor executor) {
+		this.id = id;
+		this.game = game;
+		this.executor = executor;
+	}
+
+	/**
+	 * @return identifier of the session
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * Queues a request against the game. The request runs after every request
+	 * submitted before it and never at the same time as another request of this
+	 * session.
+	 *
+	 * @param <T>     type of the request's result
+	 * @param request the work to do with the game
+	 * @return a future completed with the request's result
+	 */
+	public <T> CompletableFuture<T> submit(Function<LizardGame, T> request) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		mailbox.add(() -> {
+			try {
+				result.complete(request.apply(game));
+			} catch (Throwable e) {
+				// Even an Error must not escape into runTurn and leave the session stuck
+				result.completeExceptionally(e);
+			}
+		});
+		schedule();
+		return result;
+	}
+
+	/**
+	 * Queues a move and returns the number of lizards left once it is done.
+	 *
+	 * @param col the given column of a selected segment
+	 * @param row the given row of a selected segment
+	 * @param dir the given direction to move the selected segment
+	 * @return a future completed with the number of lizards left on the grid
+	 */
+	public CompletableFuture<Integer> move(int col, int row, Direction dir) {
+		return submit(g -> {
+			g.move(col, row, dir);
+			return g.getLizards().size();
+		});
+	}
+
+	/**
+	 * Private helper method that puts the session on the executor unless it is
+	 * already there.
+	 */
+	private void schedule() {
+		if (scheduled.compareAndSet(false, true)) {
+			executor.execute(this::runTurn);
+		}
+	}
+
+	/**
+	 * Private helper method that processes a bounded number of messages and then
+	 * either releases the session or schedules another turn.
+	 */
+	private void runTurn() {
+		Runnable message;
+		int processed = 0;
+		try {
+			while (processed < MAX_MESSAGES_PER_TURN && (message = mailbox.poll()) != null) {
+				message.run();
+				processed++;
+			}
+		} finally {
+			scheduled.set(false);
+
+			// A message may have arrived after the last poll but before the flag was
+			// cleared, in which case nobody else will schedule us
+			if (!mailbox.isEmpty()) {
+				schedule();
+			}
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package hw3;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts many independent game sessions. Each session owns its own LizardGame
+ * and runs as an actor on a shared pool sized to the number of cores, so
+ * thousands of sessions can be served by a handful of threads without locking
+ * any game.
+ * <p>
+ * A level file is read once into a shared {@link LevelTemplate}, kept in the
+ * {@link LevelCache}; every session
+ * on that level uses the template's walls and exits and only owns its lizards.
+ *
+ * @author Muhammad Blal
+ */
+public class GameSessionEngine {
+	/**
+	 * Pool on which all session mailboxes are drained.
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * All open sessions by id.
+	 */
+	private final ConcurrentHashMap<Long, GameSession> sessions = new ConcurrentHashMap<>();
+
+	/**
+	 * Source of session ids.
+	 */
+	private final AtomicLong nextId = new AtomicLong(1);
+
+	/**
+	 * Constructs an engine with one worker thread per available core.
+	 */
+	public GameSessionEngine() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructs an engine with the given number of worker threads.
+	 *
+	 * @param threads number of worker threads
+	 */
+	public GameSessionEngine(int threads) {
+		executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "lizard-session-worker");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Opens a new session playing the level at the given file path.
+	 *
+	 * @param filePath location of the level file
+	 * @return the new session
+	 * @throws IllegalArgumentException if the level file cannot be read
+	 */
+	public GameSession open(String filePath) {
+		LevelTemplate template = LevelCache.getDefault().get(filePath);
+		if (template == null) {
+			throw new IllegalArgumentException("cannot read level " + filePath);
+		}
+		long id = nextId.getAndIncrement();
+		GameSession session = new GameSession(id, new LizardGame(template), executor);
+		sessions.put(id, session);
+		return session;
+	}
+
+	/**
+	 * Gets the open session with the given id.
+	 *
+	 * @param id identifier of the session
+	 * @return the session or null if there is none
+	 */
+	public GameSession get(long id) {
+		return sessions.get(id);
+	}
+
+	/**
+	 * Closes the session with the given id. Requests already queued still run.
+	 *
+	 * @param id identifier of the session
+	 * @return true if a session was closed, false if there was none
+	 */
+	public boolean close(long id) {
+		return sessions.remove(id) != null;
+	}
+
+	/**
+	 * @return all open sessions
+	 */
+	public Collection<GameSession> getSessions() {
+		return sessions.values();
+	}
+
+	/**
+	 * Stops the worker threads, waiting up to the given time for queued requests
+	 * to finish.
+	 *
+	 * @param timeoutMillis how long to wait in milliseconds
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public void shutdown(long timeoutMillis) throws InterruptedException {
+		executor.shutdown();
+		executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+}
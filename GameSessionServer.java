@@ -0,0 +1,184 @@
+package hw3;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import api.Direction;
+
+/**
+ * A small line-based TCP front end to a {@link GameSessionEngine}, bound to the
+ * loopback address. Each client connection is served by its own thread and may
+ * drive any number of sessions. Commands and replies are one line each:
+ * <pre>
+ * OPEN path          -&gt; OK id lizards
+ * MOVE id col row DIR -&gt; OK lizards
+ * STATE id           -&gt; OK lizards, followed by the grid dump and a line "END"
+ * CLOSE id           -&gt; OK
+ * QUIT               -&gt; closes the connection
+ * </pre>
+ * Any problem is answered with a line starting with "ERR".
+ *
+ * @author Muhammad Blal
+ */
+public class GameSessionServer implements AutoCloseable {
+	/**
+	 * The engine holding the sessions.
+	 */
+	private final GameSessionEngine engine;
+
+	/**
+	 * Socket accepting client connections.
+	 */
+	private final ServerSocket serverSocket;
+
+	/**
+	 * Threads serving client connections.
+	 */
+	private final ExecutorService connections = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, "lizard-session-connection");
+		t.setDaemon(true);
+		return t;
+	});
+
+	/**
+	 * Starts a server on the given port of the loopback address.
+	 *
+	 * @param engine the engine holding the sessions
+	 * @param port   the port to listen on, or 0 for any free port
+	 * @throws IOException if the port cannot be opened
+	 */
+	public GameSessionServer(GameSessionEngine engine, int port) throws IOException {
+		this.engine = engine;
+		serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+		Thread acceptor = new Thread(this::acceptLoop, "lizard-session-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	/**
+	 * @return the port the server is listening on
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Stops accepting connections and closes the open ones.
+	 *
+	 * @throws IOException if the server socket cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		serverSocket.close();
+		connections.shutdownNow();
+	}
+
+	/**
+	 * Private helper method that accepts connections until the server is closed.
+	 */
+	private void acceptLoop() {
+		while (!serverSocket.isClosed()) {
+			try {
+				Socket socket = serverSocket.accept();
+				connections.execute(() -> serve(socket));
+			} catch (IOException e) {
+				return; // The server socket was closed
+			}
+		}
+	}
+
+	/**
+	 * Private helper method that answers the commands of one client.
+	 *
+	 * @param socket the client connection
+	 */
+	private void serve(Socket socket) {
+		try (Socket s = socket;
+				BufferedReader in = new BufferedReader(
+						new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+				PrintWriter out = new PrintWriter(s.getOutputStream(), false, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (line.trim().equals("QUIT")) {
+					break;
+				}
+				out.print(handle(line.trim().split("\\s+")));
+				out.flush();
+			}
+		} catch (IOException e) {
+			// The client went away, nothing more to do
+		}
+	}
+
+	/**
+	 * Private helper method that runs one command and builds its reply.
+	 *
+	 * @param words the words of the command line
+	 * @return the reply, ending in a line break
+	 */
+	private String handle(String[] words) {
+		try {
+			switch (words[0]) {
+			case "OPEN": {
+				GameSession session = engine.open(words[1]);
+				int lizards = session.submit(g -> g.getLizards().size()).join();
+				return "OK " + session.getId() + " " + lizards + "\n";
+			}
+			case "MOVE": {
+				GameSession session = find(words[1]);
+				int col = Integer.parseInt(words[2]);
+				int row = Integer.parseInt(words[3]);
+				Direction dir = Direction.valueOf(words[4]);
+				return "OK " + session.move(col, row, dir).join() + "\n";
+			}
+			case "STATE": {
+				GameSession session = find(words[1]);
+				return session.submit(g -> "OK " + g.getLizards().size() + "\n" + g + "END\n").join();
+			}
+			case "CLOSE":
+				return engine.close(Long.parseLong(words[1])) ? "OK\n" : "ERR no such session\n";
+			default:
+				return "ERR unknown command " + words[0] + "\n";
+			}
+		} catch (RuntimeException e) {
+			return "ERR " + e.getMessage() + "\n";
+		}
+	}
+
+	/**
+	 * Private helper method that looks up a session by the id given as text.
+	 *
+	 * @param id identifier of the session
+	 * @return the session
+	 * @throws IllegalArgumentException if there is no such session
+	 */
+	private GameSession find(String id) {
+		GameSession session = engine.get(Long.parseLong(id));
+		if (session == null) {
+			throw new IllegalArgumentException("no such session " + id);
+		}
+		return session;
+	}
+
+	/**
+	 * Starts a server on the port given as the first argument (default 7070) and
+	 * keeps it running until the process is stopped.
+	 *
+	 * @param args optional port number
+	 * @throws Exception if the server cannot be started
+	 */
+	public static void main(String[] args) throws Exception {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+		GameSessionServer server = new GameSessionServer(new GameSessionEngine(), port);
+		System.out.println("Lizard session server listening on port " + server.getPort());
+		Thread.currentThread().join();
+	}
+}
@@ -0,0 +1,153 @@
+package hw3;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Reads game states written by {@link GameStateWriter}, one record at a time.
+ *
+ * @author Muhammad Blal
+ */
+public class GameStateReader implements Closeable {
+	/**
+	 * Size of the input buffer in bytes.
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * The buffered stream records are read from.
+	 */
+	private final DataInputStream in;
+
+	/**
+	 * Opens the file at the given path and checks its header.
+	 *
+	 * @param filePath location of the file to read
+	 * @throws IOException if the file cannot be read or is not a state stream
+	 */
+	public GameStateReader(String filePath) throws IOException {
+		this(new FileInputStream(filePath));
+	}
+
+	/**
+	 * Reads from the given stream and checks its header.
+	 *
+	 * @param stream where to read; closed when the reader is closed
+	 * @throws IOException if the stream cannot be read or is not a state stream
+	 */
+	public GameStateReader(InputStream stream) throws IOException {
+		in = new DataInputStream(new BufferedInputStream(stream, BUFFER_SIZE));
+		if (in.readInt() != GameStateWriter.MAGIC) {
+			in.close();
+			throw new IOException("not a lizard game state stream");
+		}
+		int version = in.readUnsignedByte();
+		if (version != GameStateWriter.VERSION) {
+			in.close();
+			throw new IOException("unsupported state stream version " + version);
+		}
+	}
+
+	/**
+	 * Reads the next state. Every count and cell index is checked against the
+	 * size of the grid, so a damaged record is reported rather than turned into a
+	 * broken level.
+	 *
+	 * @return the state, or null at the end of the stream
+	 * @throws IOException if the stream cannot be read or a record is cut short
+	 *                     or malformed
+	 */
+	public LevelTemplate read() throws IOException {
+		int width;
+		try {
+			width = in.readInt();
+		} catch (EOFException e) {
+			return null; // No more records
+		}
+		int height = in.readInt();
+		if (width < 0 || height < 0 || (long) width * height > Integer.MAX_VALUE) {
+			throw new IOException("bad grid size " + width + "x" + height);
+		}
+		int cells = width * height;
+		BitSet walls = readCells(cells);
+		BitSet exits = readCells(cells);
+		int lizardCount = checkCount(in.readInt(), cells, "lizards");
+		List<int[]> lizards = new ArrayList<>(lizardCount);
+		for (int i = 0; i < lizardCount; i++) {
+			int[] segments = new int[checkCount(in.readInt(), cells, "segments")];
+			for (int j = 0; j < segments.length; j++) {
+				segments[j] = in.readInt();
+				if (segments[j] < 0 || segments[j] >= cells) {
+					throw new IOException("segment cell " + segments[j] + " is outside the grid");
+				}
+			}
+			lizards.add(segments);
+		}
+		return new LevelTemplate(width, height, walls, exits, lizards);
+	}
+
+	/**
+	 * Reads every remaining state.
+	 *
+	 * @return the states in the order they were written
+	 * @throws IOException if the stream cannot be read
+	 */
+	public List<LevelTemplate> readAll() throws IOException {
+		List<LevelTemplate> states = new ArrayList<>();
+		LevelTemplate state;
+		while ((state = read()) != null) {
+			states.add(state);
+		}
+		return states;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Private helper method that reads a set of cells written as bit set words
+	 * with their count.
+	 *
+	 * @param cells number of cells of the grid
+	 * @return the cells
+	 * @throws IOException if the stream cannot be read or a cell is outside the
+	 *                     grid
+	 */
+	private BitSet readCells(int cells) throws IOException {
+		long[] words = new long[checkCount(in.readInt(), (cells + 63) / 64, "words")];
+		for (int i = 0; i < words.length; i++) {
+			words[i] = in.readLong();
+		}
+		BitSet set = BitSet.valueOf(words);
+		if (set.length() > cells) {
+			throw new IOException("cell " + (set.length() - 1) + " is outside the grid");
+		}
+		return set;
+	}
+
+	/**
+	 * Private helper method that checks a count read from the stream.
+	 *
+	 * @param count the count
+	 * @param max   largest count that fits the grid
+	 * @param what  what is counted, for the message
+	 * @return the count
+	 * @throws IOException if the count is negative or too large
+	 */
+	private static int checkCount(int count, int max, String what) throws IOException {
+		if (count < 0 || count > max) {
+			throw new IOException("bad number of " + what + ": " + count);
+		}
+		return count;
+	}
+}
@@ -0,0 +1,135 @@
+package hw3;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes game states to a compact binary stream, one record per state, behind
+ * a large buffer so that solvers and checkpointing can write many states into
+ * one file cheaply. Read the stream back with {@link GameStateReader}.
+ * <p>
+ * The stream starts with the magic number {@link #MAGIC} and a version byte.
+ * Each record holds the width and height, the wall and exit bit sets as long
+ * words, and for every lizard its segment count followed by the cell index
+ * ({@code row * width + col}) of each segment from tail to head.
+ *
+ * @author Muhammad Blal
+ */
+public class GameStateWriter implements Closeable {
+	/**
+	 * First four bytes of every state stream, "LZST".
+	 */
+	public static final int MAGIC = 0x4C5A5354;
+
+	/**
+	 * Version of the record layout.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * Size of the output buffer in bytes.
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * The buffered stream records are written to.
+	 */
+	private final DataOutputStream out;
+
+	/**
+	 * Number of records written so far.
+	 */
+	private long count;
+
+	/**
+	 * Creates a writer that replaces the file at the given path.
+	 *
+	 * @param filePath location of the file to write
+	 * @throws IOException if the file cannot be created
+	 */
+	public GameStateWriter(String filePath) throws IOException {
+		this(new FileOutputStream(filePath));
+	}
+
+	/**
+	 * Creates a writer on the given stream and writes the stream header.
+	 *
+	 * @param stream where to write; closed when the writer is closed
+	 * @throws IOException if the header cannot be written
+	 */
+	public GameStateWriter(OutputStream stream) throws IOException {
+		out = new DataOutputStream(new BufferedOutputStream(stream, BUFFER_SIZE));
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+	}
+
+	/**
+	 * Writes the current state of a game.
+	 *
+	 * @param game the game to write
+	 * @throws IOException if the record cannot be written
+	 */
+	public void write(LizardGame game) throws IOException {
+		write(LevelTemplate.snapshot(game));
+	}
+
+	/**
+	 * Writes a level or captured state.
+	 *
+	 * @param state the state to write
+	 * @throws IOException if the record cannot be written
+	 */
+	public void write(LevelTemplate state) throws IOException {
+		out.writeInt(state.getWidth());
+		out.writeInt(state.getHeight());
+		writeWords(state.getWalls().toLongArray());
+		writeWords(state.getExits().toLongArray());
+		out.writeInt(state.getLizardCount());
+		for (int i = 0; i < state.getLizardCount(); i++) {
+			int[] cells = state.getLizardCells(i);
+			out.writeInt(cells.length);
+			for (int cell : cells) {
+				out.writeInt(cell);
+			}
+		}
+		count++;
+	}
+
+	/**
+	 * @return number of records written so far
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Writes out everything still in the buffer.
+	 *
+	 * @throws IOException if the stream cannot be written
+	 */
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+
+	/**
+	 * Private helper method that writes a bit set's words prefixed by their count.
+	 *
+	 * @param words the words to write
+	 * @throws IOException if the stream cannot be written
+	 */
+	private void writeWords(long[] words) throws IOException {
+		out.writeInt(words.length);
+		for (long word : words) {
+			out.writeLong(word);
+		}
+	}
+}
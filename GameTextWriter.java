@@ -0,0 +1,183 @@
+package hw3;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import api.BodySegment;
+import api.Cell;
+
+/**
+ * Utility class with static methods that write a game as text straight to an
+ * {@link Appendable} such as a StringBuilder or a buffered Writer. Every method
+ * visits each cell and segment once and builds no intermediate strings, so the
+ * cost is linear in the size of the board.
+ * <p>
+ * Two formats are supported: the debug layout produced by
+ * {@link LizardGame#toString()}, and the level file format read by
+ * {@link GameFileUtil#load(String, LizardGame)}.
+ *
+ * @author Muhammad Blal
+ */
+public class GameTextWriter {
+	/**
+	 * Width to which each cell of the debug layout is padded on the left.
+	 */
+	private static final int CELL_WIDTH = 20;
+
+	/**
+	 * Utility class, not to be instantiated.
+	 */
+	private GameTextWriter() {
+	}
+
+	/**
+	 * Writes the debug layout of the game, the same text as
+	 * {@link LizardGame#toString()}.
+	 *
+	 * @param game the game to write
+	 * @param out  where to write
+	 * @throws IOException if the output cannot be written
+	 */
+	public static void writeDebug(LizardGame game, Appendable out) throws IOException {
+		out.append("---------- GRID ----------\n");
+		out.append("Dimensions:\n");
+		out.append(Integer.toString(game.getWidth())).append(' ').append(Integer.toString(game.getHeight()))
+				.append('\n');
+		out.append("Layout:\n");
+		for (int y = 0; y < game.getHeight(); y++) {
+			if (y > 0) {
+				out.append('\n');
+			}
+			for (int x = 0; x < game.getWidth(); x++) {
+				String type = game.hasExit(x, y) ? "Exit" : game.hasWall(x, y) ? "Wall" : "Ground";
+				writeCell(out, x, y, type, game.hasLizard(x, y), true);
+			}
+		}
+		out.append("\nLizards:\n");
+		for (Lizard l : game.getLizards()) {
+			// Matches Lizard.toString, whose trim drops the padding of the first segment
+			boolean first = true;
+			for (BodySegment seg : l.getSegments()) {
+				if (!first) {
+					out.append(' ');
+				}
+				Cell cell = seg.getCell();
+				String type = cell.getExit() != null ? "Exit" : cell.getWall() != null ? "Wall" : "Ground";
+				writeCell(out, cell.getCol(), cell.getRow(), type, cell.getLizard() != null, !first);
+				first = false;
+			}
+		}
+		out.append("\n--------------------------\n");
+	}
+
+	/**
+	 * Writes the game in the level file format, so that loading the text gives
+	 * back the same walls, exits and lizard positions. Each grid row ends with a
+	 * '.' past the last column so trailing blanks survive editors that trim lines.
+	 *
+	 * @param game the game to write
+	 * @param out  where to write
+	 * @throws IOException if the output cannot be written
+	 */
+	public static void writeLevel(LizardGame game, Appendable out) throws IOException {
+		out.append(Integer.toString(game.getWidth())).append('x').append(Integer.toString(game.getHeight()))
+				.append('\n');
+		for (int y = 0; y < game.getHeight(); y++) {
+			for (int x = 0; x < game.getWidth(); x++) {
+				out.append(game.hasWall(x, y) ? 'W' : game.hasExit(x, y) ? 'E' : ' ');
+			}
+			out.append(".\n");
+		}
+		for (Lizard l : game.getLizards()) {
+			out.append('L');
+			for (BodySegment seg : l.getSegments()) {
+				out.append(' ').append(Integer.toString(seg.getCell().getCol())).append(',')
+						.append(Integer.toString(seg.getCell().getRow()));
+			}
+			out.append('\n');
+		}
+	}
+
+	/**
+	 * Gets the debug layout of the game as a string.
+	 *
+	 * @param game the game to write
+	 * @return the same text as {@link LizardGame#toString()}
+	 */
+	public static String toDebugString(LizardGame game) {
+		StringBuilder sb = new StringBuilder(estimateDebugLength(game));
+		try {
+			writeDebug(game, sb);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // A StringBuilder never throws
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Gets the game in the level file format as a string.
+	 *
+	 * @param game the game to write
+	 * @return the text of a level file for the game
+	 */
+	public static String toLevelString(LizardGame game) {
+		StringBuilder sb = new StringBuilder((game.getWidth() + 2) * (game.getHeight() + 1));
+		try {
+			writeLevel(game, sb);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // A StringBuilder never throws
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Private helper method that writes one cell of the debug layout in the form
+	 * "(col,row,Type,Occupied)", optionally padded on the left like Cell.toString.
+	 *
+	 * @param out      where to write
+	 * @param col      column of the cell
+	 * @param row      row of the cell
+	 * @param type     "Ground", "Wall" or "Exit"
+	 * @param occupied true if a lizard is on the cell
+	 * @param pad      true to pad the cell to the layout width
+	 * @throws IOException if the output cannot be written
+	 */
+	private static void writeCell(Appendable out, int col, int row, String type, boolean occupied, boolean pad)
+			throws IOException {
+		if (pad) {
+			int length = 5 + digits(col) + digits(row) + type.length() + (occupied ? 6 : 5);
+			for (int i = length; i < CELL_WIDTH; i++) {
+				out.append(' ');
+			}
+		}
+		out.append('(').append(Integer.toString(col)).append(',').append(Integer.toString(row)).append(',')
+				.append(type).append(',').append(occupied ? "Lizard" : "Empty").append(')');
+	}
+
+	/**
+	 * Private helper method that counts the characters of a non-negative int.
+	 *
+	 * @param value the number
+	 * @return number of decimal digits
+	 */
+	private static int digits(int value) {
+		int n = 1;
+		while (value >= 10) {
+			value /= 10;
+			n++;
+		}
+		return n;
+	}
+
+	/**
+	 * Private helper method that estimates the length of the debug layout so the
+	 * builder does not have to grow.
+	 *
+	 * @param game the game to be written
+	 * @return estimated number of characters
+	 */
+	private static int estimateDebugLength(LizardGame game) {
+		long cells = (long) game.getWidth() * game.getHeight();
+		return (int) Math.min(Integer.MAX_VALUE - 8, 128 + cells * (CELL_WIDTH + 2));
+	}
+}
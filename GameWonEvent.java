@@ -0,0 +1,17 @@
+package api;
+
+import hw3.LizardGame;
+
+/**
+ * Raised when a move leaves no lizards on the grid.
+ */
+public class GameWonEvent extends GameEvent {
+	/**
+	 * Creates a new win event.
+	 * 
+	 * @param game the game that was won
+	 */
+	public GameWonEvent(LizardGame game) {
+		super(game);
+	}
+}
@@ -0,0 +1,74 @@
+package ui;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.TexturePaint;
+import java.awt.geom.Line2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+
+import api.BodySegment;
+import api.Cell;
+import hw3.Lizard;
+import hw3.LizardGame;
+import ui.SpriteCache.Sprite;
+
+// Draws a game with the sprite images, for the live grid and for offscreen frames alike.
+// Sizes are given for the default scale of 30 pixels per cell and follow the scale.
+public class GridPainter {
+	private static final float BASE_SCALE = 30.0F;
+	private static final float SKIN_STROKE = 12.0F;
+	private static final int SKIN_TILE = 11;
+
+	// Walls and exits come from hasWall and hasExit, which answer from the level for
+	// cells the game has not created, so painting never creates them
+	private void paintCell(Graphics2D g2, LizardGame game, int col, int row, int scale) {
+		if (game.hasWall(col, row)) {
+			g2.drawImage(SpriteCache.get(Sprite.WALL, scale, scale), col * scale, row * scale, null);
+		} else if (game.hasExit(col, row)) {
+			g2.drawImage(SpriteCache.get(Sprite.EXIT, scale, scale), col * scale, row * scale, null);
+		} else {
+			g2.setColor(Color.GRAY);
+			g2.fillRect((int)((col + 0.5) * scale), (int)((row + 0.5) * scale), 4, 4);
+		}
+	}
+
+	public void paint(Graphics2D g2, LizardGame game, int scale) {
+		for (int i=0; i<game.getWidth(); i++) {
+			for (int j=0; j<game.getHeight(); j++) {
+				paintCell(g2, game, i, j, scale);
+			}
+		}
+		
+		// One skin texture and stroke for the whole frame
+		int tile = Math.max(1, Math.round(SKIN_TILE * scale / BASE_SCALE));
+		BufferedImage skin = SpriteCache.get(Sprite.SKIN, tile, tile);
+		TexturePaint paint = new TexturePaint(skin, new Rectangle(1, 1, tile, tile));
+		BasicStroke stroke = new BasicStroke(SKIN_STROKE * scale / BASE_SCALE);
+		BufferedImage headImage = SpriteCache.get(Sprite.HEAD, scale, scale);
+		
+		ArrayList<Lizard> lizards = game.getLizards();
+		for (Lizard l: lizards) {
+			ArrayList<BodySegment> segments = l.getSegments();
+			for (BodySegment s: segments) {
+				Cell cell = s.getCell();
+				BodySegment nextSegment = l.getSegmentAhead(s);
+				if (nextSegment != null) {
+				Cell nextCell = l.getSegmentAhead(s).getCell();
+				g2.setPaint(paint);
+				g2.setStroke(stroke);
+				g2.draw(new Line2D.Float(
+						(int)((cell.getCol()+0.5)*scale),
+						(int)((cell.getRow()+0.5)*scale),
+						(int)((nextCell.getCol()+0.5)*scale),
+						(int)((nextCell.getRow()+0.5)*scale)));
+				}
+			}
+			BodySegment head = l.getHeadSegment();
+			Cell headCell = head.getCell();
+			g2.drawImage(headImage, headCell.getCol() * scale, headCell.getRow() * scale, null);
+		}
+	}
+}
@@ -1,45 +1,31 @@
 package ui;
 
-import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.Rectangle;
-import java.awt.TexturePaint;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.awt.geom.Line2D;
-import java.awt.geom.Rectangle2D;
-import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Arrays;
 
-import javax.imageio.ImageIO;
 import javax.swing.JPanel;
+import javax.swing.Timer;
 
-import api.BodySegment;
-import api.Cell;
 import api.Direction;
-import hw3.Lizard;
 import hw3.LizardGame;
 
 public class GridViz extends JPanel {
-	private static final String HEAD_FILENAME = "resources/head.png";
-	private static final String SKIN_FILENAME = "resources/skin.png";
-	private static final String WALL_FILENAME = "resources/wall.png";
-	private static final String EXIT_FILENAME = "resources/exit.png";
 	private static final int DEFAULT_SCALE = 30;
+	private static final int FRAME_MILLIS = 16;
 	private static final long serialVersionUID = 1L;
 	private LizardGame game;
 	private int scale;
 	private int row;
 	private int col;
-	private BufferedImage headImage;
-	private BufferedImage lizardImage;
-	private BufferedImage wallImage;
-	private BufferedImage exitImage;
+	private GridPainter painter;
+	private int[] pendingMoves = new int[64];
+	private int pendingCount;
+	private Timer frameTimer;
 	
 	public GridViz(LizardGame game) {
 		this.game = game;
@@ -51,97 +37,89 @@ public class GridViz extends JPanel {
 		setMaximumSize(dim);
 		setMinimumSize(dim);
 		
-		try {
-			headImage = ImageIO.read(new File(HEAD_FILENAME));
-			lizardImage = ImageIO.read(new File(SKIN_FILENAME));
-			wallImage = ImageIO.read(new File(WALL_FILENAME));
-			exitImage = ImageIO.read(new File(EXIT_FILENAME));
-		} catch (IOException e) {
-			System.err.println("ERROR: cannot find file(s) "
-					+ HEAD_FILENAME + ", "
-					+ SKIN_FILENAME + ", "
-					+ WALL_FILENAME + ", or "
-					+ EXIT_FILENAME
-					+ " make sure these files are present in your project.");
-			System.exit(1);
-		}
+		painter = new GridPainter();
+
+		// Moves collected from drag events are applied and painted at most once per frame
+		frameTimer = new Timer(FRAME_MILLIS, e -> flushMoves());
+		frameTimer.setRepeats(false);
 
 		MouseAdapter mouseEventListener = new MouseAdapter() {
 			@Override
 			public void mousePressed(MouseEvent e) {
-				row = e.getY() / scale;
-				col = e.getX() / scale;
+				row = Math.floorDiv(e.getY(), scale);
+				col = Math.floorDiv(e.getX(), scale);
 			}
 			
 			@Override
 			public void mouseDragged(MouseEvent e) {
-				int newrow = e.getY() / scale;
-				int newcol = e.getX() / scale;
-				if (newrow > row) {
-					game.move(col, row, Direction.DOWN);
-				} else if (newrow < row) {
-					game.move(col, row, Direction.UP);
-				} else if (newcol > col) {
-					game.move(col, row, Direction.RIGHT);
-				} else if (newcol < col) {
-					game.move(col, row, Direction.LEFT);
+				int newrow = Math.floorDiv(e.getY(), scale);
+				int newcol = Math.floorDiv(e.getX(), scale);
+				// Walk one cell at a time so a fast drag that skips cells loses no moves
+				while (newrow != row || newcol != col) {
+					Direction dir;
+					if (newrow > row) {
+						dir = Direction.DOWN;
+					} else if (newrow < row) {
+						dir = Direction.UP;
+					} else if (newcol > col) {
+						dir = Direction.RIGHT;
+					} else {
+						dir = Direction.LEFT;
+					}
+					queueMove(col, row, dir);
+					if (dir == Direction.DOWN || dir == Direction.UP) {
+						row += dir == Direction.DOWN ? 1 : -1;
+					} else {
+						col += dir == Direction.RIGHT ? 1 : -1;
+					}
+				}
+				if (pendingCount > 0 && !frameTimer.isRunning()) {
+					frameTimer.start();
 				}
-				row = newrow;
-				col = newcol;
-				update();
+			}
+
+			@Override
+			public void mouseReleased(MouseEvent e) {
+				flushMoves();
 			}
 		};
 		addMouseMotionListener(mouseEventListener);
 		addMouseListener(mouseEventListener);
 	}
 	
-	private void paintCell(Graphics2D g2, Cell cell) {
-		if (cell.getWall() != null) {
-			g2.drawImage(wallImage, cell.getCol() * scale, cell.getRow() * scale, null);
-		} else if (cell.getExit() != null) {
-			g2.drawImage(exitImage, cell.getCol() * scale, cell.getRow() * scale, null);
-		} else {
-			g2.setColor(Color.GRAY);
-			g2.fillRect((int)((cell.getCol() + 0.5) * scale), (int)((cell.getRow() + 0.5) * scale), 4, 4);
-		}
-	}
-	
 	@Override
 	public void paintComponent(Graphics g) {
 		super.paintComponent(g);
-		Graphics2D g2 = (Graphics2D) g;
-		for (int i=0; i<game.getWidth(); i++) {
-			for (int j=0; j<game.getHeight(); j++) {
-				paintCell(g2, game.getCell(i, j));
-			}
-		}
-		
-		ArrayList<Lizard> lizards = game.getLizards();
-		for (Lizard l: lizards) {
-			ArrayList<BodySegment> segments = l.getSegments();
-			for (BodySegment s: segments) {
-				Cell cell = s.getCell();
-				BodySegment nextSegment = l.getSegmentAhead(s);
-				if (nextSegment != null) {
-				Cell nextCell = l.getSegmentAhead(s).getCell();
-				Rectangle2D anchorRect = new Rectangle(1, 1, 11, 11);
-				TexturePaint paint = new TexturePaint(lizardImage, anchorRect);
-				g2.setPaint(paint);
-				g2.setStroke(new BasicStroke(12.0F));
-				g2.draw(new Line2D.Float(
-						(int)((cell.getCol()+0.5)*scale),
-						(int)((cell.getRow()+0.5)*scale),
-						(int)((nextCell.getCol()+0.5)*scale),
-						(int)((nextCell.getRow()+0.5)*scale)));
-				}
-			}
-			BodySegment head = l.getHeadSegment();
-			Cell headCell = head.getCell();
-			g2.drawImage(headImage, headCell.getCol() * scale, headCell.getRow() * scale, null);
-		}
+		painter.paint((Graphics2D) g, game, scale);
 	}
 
 	public void update() {
 		repaint();
 	}
+
+	private void queueMove(int col, int row, Direction dir) {
+		// Moves starting outside the grid do nothing and cannot be packed
+		if (col < 0 || row < 0 || col >= game.getWidth() || row >= game.getHeight()) {
+			return;
+		}
+		if (pendingCount == pendingMoves.length) {
+			pendingMoves = Arrays.copyOf(pendingMoves, pendingCount * 2);
+		}
+		pendingMoves[pendingCount++] = LizardGame.packMove(col, row, dir);
+	}
+
+	private void flushMoves() {
+		frameTimer.stop();
+		if (pendingCount == 0) {
+			return;
+		}
+		int[] moves = Arrays.copyOf(pendingMoves, pendingCount);
+		pendingCount = 0;
+		// Drags on a finished level have nothing to move
+		if (game.getLizards().isEmpty()) {
+			return;
+		}
+		game.moveBatch(moves);
+		update();
+	}
 }
@@ -0,0 +1,261 @@
+package hw3;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import api.GameEvent;
+import api.GameEventListener;
+import api.LevelLoadedEvent;
+import api.LizardCountEvent;
+import api.LizardExitedEvent;
+import api.LizardMovedEvent;
+import api.MovesBatchEvent;
+
+/**
+ * Gives the next move of a shortest solution for the current position of a
+ * game. Solutions are searched for on a background thread whenever the game
+ * changes, and every state along a solution is remembered, so asking for a
+ * hint never waits: it is a single lookup that either has the answer or
+ * returns {@link #NO_HINT} while the search is still running.
+ * <p>
+ * Following a hint keeps the game on the remembered solution, so later hints
+ * are answered without searching again. A new search replaces one still
+ * running for an older position. States are remembered by canonical key (see
+ * {@link SolverBoard#canonicalKey()}) with the move in the canonical frame, so
+ * a solution also answers for every reflection or rotation of its states.
+ *
+ * @author Muhammad Blal
+ */
+public class HintService {
+	/**
+	 * Returned by {@link #getHint()} when no hint is known.
+	 */
+	public static final int NO_HINT = -1;
+
+	/**
+	 * Default maximum number of remembered states.
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 100_000;
+
+	private final LizardGame game;
+	private final Solver solver;
+
+	/**
+	 * Listener on the game's event bus.
+	 */
+	private final GameEventListener listener = this::onEvent;
+
+	/**
+	 * Background thread running the searches.
+	 */
+	private final ExecutorService searcher = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "lizard-hint-search");
+		t.setDaemon(true);
+		return t;
+	});
+
+	/**
+	 * Next move for each remembered state, least recently used first. Guarded by
+	 * itself.
+	 */
+	private final LinkedHashMap<StateKey, Integer> hints;
+
+	/**
+	 * Number of times the hints were cleared for a new level; a search only
+	 * remembers its solution if this has not changed since it started. Guarded by
+	 * hints.
+	 */
+	private int generation;
+
+	/**
+	 * The game's position, updated on the thread that moves the game.
+	 */
+	private SolverBoard board;
+
+	/**
+	 * The game's level when the board was built.
+	 */
+	private LevelTemplate level;
+
+	/**
+	 * Canonical key of the game's current position, and the symmetry that maps
+	 * the position onto it.
+	 */
+	private StateKey current;
+	private int currentSymmetry;
+
+	/**
+	 * The search for the latest position not yet remembered, or null.
+	 */
+	private Future<?> search;
+
+	/**
+	 * Key of the position being searched from.
+	 */
+	private StateKey searchKey;
+
+	/**
+	 * Constructs a hint service for the given game with the default solver and
+	 * cache size, and starts searching from its current position.
+	 *
+	 * @param game the game to give hints for
+	 */
+	public HintService(LizardGame game) {
+		this(game, new Solver(), DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * Constructs a hint service for the given game and starts searching from its
+	 * current position.
+	 *
+	 * @param game      the game to give hints for
+	 * @param solver    the solver to search with
+	 * @param cacheSize maximum number of remembered states
+	 */
+	public HintService(LizardGame game, Solver solver, int cacheSize) {
+		this.game = game;
+		this.solver = solver;
+		hints = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<StateKey, Integer> eldest) {
+				return size() > cacheSize;
+			}
+		};
+		game.getEventBus().subscribe(listener);
+		reset();
+	}
+
+	/**
+	 * Gets the next move of a shortest solution from the current position,
+	 * without waiting.
+	 *
+	 * @return the move packed with
+	 *         {@link LizardGame#packMove(int, int, api.Direction)}, or NO_HINT if
+	 *         it is not known yet or the position cannot be solved
+	 */
+	public synchronized int getHint() {
+		Integer move;
+		synchronized (hints) {
+			move = current == null ? null : hints.get(current);
+		}
+		return move == null ? NO_HINT : board.mapGameMove(move, currentSymmetry, true);
+	}
+
+	/**
+	 * @return true if a search for the current position is still running
+	 */
+	public synchronized boolean isSearching() {
+		return search != null && !search.isDone();
+	}
+
+	/**
+	 * Stops listening to the game and stops any running search.
+	 */
+	public synchronized void shutdown() {
+		game.getEventBus().unsubscribe(listener);
+		searcher.shutdownNow();
+	}
+
+	/**
+	 * Private helper method that follows the game's changes.
+	 *
+	 * @param event the event
+	 */
+	private void onEvent(GameEvent event) {
+		if (event instanceof LevelLoadedEvent) {
+			reset();
+		} else if (event instanceof LizardMovedEvent || event instanceof MovesBatchEvent
+				|| event instanceof LizardExitedEvent || event instanceof LizardCountEvent) {
+			update();
+		}
+	}
+
+	/**
+	 * Private helper method that forgets the old level and starts over from the
+	 * game's current grid.
+	 */
+	private synchronized void reset() {
+		synchronized (hints) {
+			hints.clear();
+			generation++;
+		}
+		// A search still running is for the old level and would be thrown away
+		if (search != null) {
+			search.cancel(true);
+			search = null;
+		}
+		board = SolverBoard.of(game);
+		level = game.getTemplate();
+		current = null;
+		update();
+	}
+
+	/**
+	 * Private helper method that reads the game's position and starts a search if
+	 * it has no remembered hint.
+	 */
+	private synchronized void update() {
+		// While a level loads, its lizards are announced before the LevelLoadedEvent,
+		// so a different level or size means the board must be built again
+		if (game.getTemplate() != level || board.getWidth() != game.getWidth()
+				|| board.getHeight() != game.getHeight()) {
+			reset();
+			return;
+		}
+		board.syncLizards(game);
+		StateKey key = board.canonicalKey();
+		current = key;
+		currentSymmetry = board.getCanonicalSymmetry();
+		synchronized (hints) {
+			if (board.isSolved() || hints.containsKey(key)) {
+				return;
+			}
+		}
+		if (search != null) {
+			if (!search.isDone() && key.equals(searchKey)) {
+				return;
+			}
+			search.cancel(true);
+		}
+		if (searcher.isShutdown()) {
+			return;
+		}
+		SolverBoard start = board.copy();
+		int startGeneration;
+		synchronized (hints) {
+			startGeneration = generation;
+		}
+		searchKey = key;
+		search = searcher.submit(() -> remember(start, startGeneration, solver.solve(start)));
+	}
+
+	/**
+	 * Private helper method that remembers the next move from every state along a
+	 * solution, unless the level changed while it was being searched. Canonical
+	 * keys only hold the lizards, so a solution for an old level would otherwise
+	 * answer for the same lizards on the new one.
+	 *
+	 * @param start           the position searched from; modified
+	 * @param startGeneration the generation when the search started
+	 * @param result          the result of the search
+	 */
+	private void remember(SolverBoard start, int startGeneration, SolverResult result) {
+		if (!result.isSolved()) {
+			return;
+		}
+		for (int move : result.getMoves()) {
+			StateKey key = start.canonicalKey();
+			int canonicalMove = start.mapGameMove(move, start.getCanonicalSymmetry(), false);
+			synchronized (hints) {
+				if (generation != startGeneration) {
+					return;
+				}
+				hints.put(key, canonicalMove);
+			}
+			start.apply(start.fromGameMove(move));
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package hw3;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size, log-linear latency histogram in the style of HdrHistogram.
+ * Values (in nanoseconds) are grouped into buckets whose width doubles every
+ * power of two, with a fixed number of linear sub-buckets per power of two.
+ * This keeps the relative error of every bucket below 1 / SUB_BUCKETS while
+ * covering the full range of a long in under two thousand slots.
+ * <p>
+ * Recording is lock-free and allocation-free so it can be called from the
+ * move path of a game.
+ *
+ * @author Muhammad Blal
+ */
+public class LatencyHistogram {
+	/**
+	 * Number of bits of linear precision kept within each power of two.
+	 */
+	private static final int SUB_BUCKET_BITS = 5;
+
+	/**
+	 * Number of linear sub-buckets within each power of two.
+	 */
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * Total number of buckets needed to cover every non-negative long value.
+	 */
+	private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	/**
+	 * Number of values recorded in each bucket.
+	 */
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+	/**
+	 * Total number of recorded values.
+	 */
+	private final LongAdder count = new LongAdder();
+
+	/**
+	 * Sum of all recorded values.
+	 */
+	private final LongAdder sum = new LongAdder();
+
+	/**
+	 * Records a single value. Negative values are recorded as zero.
+	 *
+	 * @param value the value to record, typically a duration in nanoseconds
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		buckets.incrementAndGet(bucketIndex(value));
+		count.increment();
+		sum.add(value);
+	}
+
+	/**
+	 * @return the number of values recorded so far
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * @return the sum of all values recorded so far
+	 */
+	public long getSum() {
+		return sum.sum();
+	}
+
+	/**
+	 * Gets an estimate of the value at the given quantile. The estimate is the
+	 * upper bound of the bucket that contains the quantile, so it never
+	 * understates the real value by more than one bucket width.
+	 *
+	 * @param quantile a number between 0 and 1, for example 0.99
+	 * @return the estimated value at the quantile, or 0 if nothing was recorded
+	 */
+	public long getValueAtQuantile(double quantile) {
+		long total = 0;
+		long[] snapshot = new long[BUCKET_COUNT];
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			snapshot[i] = buckets.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+
+		// The rank of the value we are looking for, at least 1
+		long rank = Math.max(1, (long) Math.ceil(quantile * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return bucketUpperBound(i);
+			}
+		}
+		return bucketUpperBound(BUCKET_COUNT - 1);
+	}
+
+	/**
+	 * Clears all recorded values.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			buckets.set(i, 0);
+		}
+		count.reset();
+		sum.reset();
+	}
+
+	/**
+	 * Private helper method that maps a non-negative value to its bucket.
+	 *
+	 * @param value the value to map
+	 * @return index of the bucket holding the value
+	 */
+	private static int bucketIndex(long value) {
+		// Small values get one bucket each
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		// Larger values keep only the top SUB_BUCKET_BITS + 1 bits
+		int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+	}
+
+	/**
+	 * Private helper method that gives the largest value that maps to the given
+	 * bucket.
+	 *
+	 * @param index index of the bucket
+	 * @return the largest value stored in the bucket
+	 */
+	private static long bucketUpperBound(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+		return lower + (1L << shift) - 1;
+	}
+}
@@ -0,0 +1,341 @@
+package hw3;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import hw3.Solver.IntList;
+
+/**
+ * Ranks whole level packs by difficulty. Each level is loaded with
+ * {@link GameFileUtil} and its state space is explored breadth first with the
+ * move rules of {@link LizardGame}, within a per-level budget of time and
+ * memory. Levels are analyzed in parallel and one CSV row per level (see
+ * {@link LevelStats#CSV_HEADER}) is written in input order.
+ * <p>
+ * Measures: the number of reachable states, the average number of legal moves
+ * per state, the length of a shortest solution, the number of its steps that
+ * have a single move getting closer to the goal (forced moves), and the
+ * fraction of states from which the level can no longer be solved (dead ends).
+ * The last two need the whole state space and are left empty when the budget
+ * runs out first.
+ * <p>
+ * Usage: {@code LevelAnalyzer [--threads n] [--max-states n] [--max-ms n]
+ * [--max-mb n] [--out file.csv] path...}, where each path is a level file or a
+ * directory of ".txt" levels.
+ *
+ * @author Muhammad Blal
+ */
+public class LevelAnalyzer {
+	/**
+	 * Estimated memory of one stored state apart from its key and edges: map
+	 * entry, key object, list slots and per-state arrays.
+	 */
+	private static final int STATE_OVERHEAD_BYTES = 128;
+
+	/**
+	 * Number of expanded states between checks of the time budget.
+	 */
+	private static final int DEADLINE_CHECK = 1024;
+
+	private final int maxStates;
+	private final long maxMillis;
+	private final long maxBytes;
+
+	/**
+	 * Constructs an analyzer with the given per-level budget.
+	 *
+	 * @param maxStates maximum number of states per level
+	 * @param maxMillis maximum time per level, in milliseconds
+	 * @param maxBytes  maximum estimated memory per level, in bytes
+	 */
+	public LevelAnalyzer(int maxStates, long maxMillis, long maxBytes) {
+		this.maxStates = maxStates;
+		this.maxMillis = maxMillis;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Runs the analyzer from the command line.
+	 *
+	 * @param args options and level paths, see the class description
+	 * @throws IOException          if the output cannot be written
+	 * @throws InterruptedException if interrupted while waiting for results
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int threads = Runtime.getRuntime().availableProcessors();
+		int maxStates = Solver.DEFAULT_MAX_STATES;
+		long maxMillis = 10_000;
+		long maxMb = 256;
+		String out = null;
+		List<String> paths = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "--threads":
+				threads = Integer.parseInt(args[++i]);
+				break;
+			case "--max-states":
+				maxStates = Integer.parseInt(args[++i]);
+				break;
+			case "--max-ms":
+				maxMillis = Long.parseLong(args[++i]);
+				break;
+			case "--max-mb":
+				maxMb = Long.parseLong(args[++i]);
+				break;
+			case "--out":
+				out = args[++i];
+				break;
+			default:
+				paths.addAll(levelsOf(args[i]));
+			}
+		}
+
+		LevelAnalyzer analyzer = new LevelAnalyzer(maxStates, maxMillis, maxMb * 1024 * 1024);
+		long start = System.nanoTime();
+		List<LevelStats> stats = analyzer.analyzeAll(paths, threads);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		try (PrintWriter writer = out == null ? new PrintWriter(System.out)
+				: new PrintWriter(out, StandardCharsets.UTF_8)) {
+			writer.println(LevelStats.CSV_HEADER);
+			for (LevelStats s : stats) {
+				writer.println(s.toCsv());
+			}
+		}
+		System.err.printf("%d levels in %.2f s (%.1f levels/s) on %d threads%n", stats.size(), seconds,
+				stats.size() / seconds, threads);
+	}
+
+	/**
+	 * Analyzes many levels in parallel.
+	 *
+	 * @param paths   locations of the level files
+	 * @param threads number of levels analyzed at once
+	 * @return the measures of each level, in the order of paths
+	 * @throws InterruptedException if interrupted while waiting for results
+	 */
+	public List<LevelStats> analyzeAll(List<String> paths, int threads) throws InterruptedException {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<LevelStats>> futures = new ArrayList<>();
+			for (String path : paths) {
+				futures.add(pool.submit(() -> analyze(path)));
+			}
+			List<LevelStats> stats = new ArrayList<>();
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					stats.add(futures.get(i).get());
+				} catch (ExecutionException e) {
+					stats.add(new LevelStats(paths.get(i), String.valueOf(e.getCause())));
+				}
+			}
+			return stats;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Analyzes one level.
+	 *
+	 * @param path location of the level file
+	 * @return the measures of the level
+	 */
+	public LevelStats analyze(String path) {
+		long start = System.nanoTime();
+		LizardGame game = new LizardGame(0, 0);
+		GameFileUtil.load(path, game);
+		if (game.getTemplate() == null) {
+			return new LevelStats(path, "cannot read level");
+		}
+		SolverBoard board = SolverBoard.of(game);
+
+		// Keep the whole exploration within the memory budget
+		int keyBytes = 8 * board.key().toLongArray().length;
+		long stateBytes = STATE_OVERHEAD_BYTES + keyBytes + 8L * board.maxMoves();
+		int stateLimit = (int) Math.min(maxStates, Math.max(1, maxBytes / stateBytes));
+		long deadline = start + maxMillis * 1_000_000;
+
+		// Breadth-first exploration, keeping the edges of every expanded state
+		ArrayList<StateKey> keys = new ArrayList<>();
+		HashMap<StateKey, Integer> seen = new HashMap<>();
+		IntList edges = new IntList();
+		IntList edgeStart = new IntList();
+		StateKey first = board.key();
+		keys.add(first);
+		seen.put(first, 0);
+		int goal = board.isSolved() ? 0 : -1;
+		boolean complete = true;
+
+		SolverBoard child = board.copy();
+		int[] moves = new int[board.maxMoves()];
+		long totalMoves = 0;
+		for (int s = 0; s < keys.size(); s++) {
+			if (s % DEADLINE_CHECK == 0 && System.nanoTime() > deadline) {
+				complete = false;
+				break;
+			}
+			board.load(keys.get(s));
+			edgeStart.add(edges.size());
+			int n = board.moves(moves);
+			totalMoves += n;
+			for (int i = 0; i < n; i++) {
+				child.copyFrom(board);
+				child.apply(moves[i]);
+				StateKey key = child.key();
+				Integer index = seen.get(key);
+				if (index == null) {
+					if (keys.size() >= stateLimit) {
+						complete = false;
+						continue;
+					}
+					index = keys.size();
+					keys.add(key);
+					seen.put(key, index);
+					if (goal < 0 && child.isSolved()) {
+						goal = index;
+					}
+				}
+				edges.add(index);
+			}
+			if (!complete) {
+				break;
+			}
+		}
+		int expanded = edgeStart.size();
+		edgeStart.add(edges.size());
+		seen = null; // Free the map before building the reverse edges
+
+		int[] distance = distancesToGoal(keys.size(), goal, edges, edgeStart);
+		int solutionLength = goal < 0 ? -1 : distance[0];
+		int forced = 0;
+		double deadEnds = Double.NaN;
+		if (complete) {
+			forced = forcedMoves(distance, edges, edgeStart);
+			int unsolvable = 0;
+			for (int d : distance) {
+				if (d < 0) {
+					unsolvable++;
+				}
+			}
+			deadEnds = (double) unsolvable / keys.size();
+		}
+		double branching = expanded == 0 ? 0 : (double) totalMoves / expanded;
+		return new LevelStats(path, game.getWidth(), game.getHeight(), game.getLizards().size(), keys.size(),
+				expanded, complete, solutionLength, branching, forced, deadEnds,
+				(System.nanoTime() - start) / 1_000_000);
+	}
+
+	/**
+	 * Private helper method that finds the number of moves from every state to the
+	 * goal with a breadth-first search over reversed edges.
+	 *
+	 * @param states    number of states
+	 * @param goal      index of the solved state, or -1
+	 * @param edges     target state of each edge
+	 * @param edgeStart first edge of each expanded state, plus the end of the last
+	 * @return the distance of each state, or -1 where the goal is unreachable
+	 */
+	private static int[] distancesToGoal(int states, int goal, IntList edges, IntList edgeStart) {
+		int[] distance = new int[states];
+		Arrays.fill(distance, -1);
+		if (goal < 0) {
+			return distance;
+		}
+
+		// Reverse the edges into compressed rows
+		int expanded = edgeStart.size() - 1;
+		int[] reverseStart = new int[states + 1];
+		for (int e = 0; e < edges.size(); e++) {
+			reverseStart[edges.get(e) + 1]++;
+		}
+		for (int s = 0; s < states; s++) {
+			reverseStart[s + 1] += reverseStart[s];
+		}
+		int[] reverse = new int[edges.size()];
+		int[] fill = Arrays.copyOf(reverseStart, states);
+		for (int s = 0; s < expanded; s++) {
+			for (int e = edgeStart.get(s); e < edgeStart.get(s + 1); e++) {
+				reverse[fill[edges.get(e)]++] = s;
+			}
+		}
+
+		int[] queue = new int[states];
+		int tail = 0;
+		queue[tail++] = goal;
+		distance[goal] = 0;
+		for (int head = 0; head < tail; head++) {
+			int s = queue[head];
+			for (int e = reverseStart[s]; e < reverseStart[s + 1]; e++) {
+				int from = reverse[e];
+				if (distance[from] < 0) {
+					distance[from] = distance[s] + 1;
+					queue[tail++] = from;
+				}
+			}
+		}
+		return distance;
+	}
+
+	/**
+	 * Private helper method that walks a shortest solution from the start and
+	 * counts the steps where only one move gets closer to the goal.
+	 *
+	 * @param distance  distance of each state to the goal
+	 * @param edges     target state of each edge
+	 * @param edgeStart first edge of each expanded state, plus the end of the last
+	 * @return number of forced moves
+	 */
+	private static int forcedMoves(int[] distance, IntList edges, IntList edgeStart) {
+		int forced = 0;
+		int s = 0;
+		while (distance[s] > 0) {
+			int next = -1;
+			int choices = 0;
+			for (int e = edgeStart.get(s); e < edgeStart.get(s + 1); e++) {
+				if (distance[edges.get(e)] == distance[s] - 1) {
+					next = edges.get(e);
+					choices++;
+				}
+			}
+			if (choices == 1) {
+				forced++;
+			}
+			s = next;
+		}
+		return forced;
+	}
+
+	/**
+	 * Helper method that expands a command line path into level files.
+	 *
+	 * @param path a level file or a directory of levels
+	 * @return the level files, sorted by name for a directory
+	 */
+	static List<String> levelsOf(String path) {
+		File file = new File(path);
+		if (!file.isDirectory()) {
+			return List.of(path);
+		}
+		File[] files = file.listFiles((d, name) -> name.endsWith(".txt"));
+		if (files == null) {
+			return List.of();
+		}
+		Arrays.sort(files);
+		List<String> levels = new ArrayList<>();
+		for (File f : files) {
+			levels.add(f.getPath());
+		}
+		return levels;
+	}
+}
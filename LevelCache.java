@@ -0,0 +1,273 @@
+package hw3;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A cache of parsed levels keyed by file path. The cache is bounded both by the
+ * number of levels and by their estimated memory use, and evicts the least
+ * recently used level when either bound is exceeded. A cached level is reused
+ * as long as its file has the same size and modification time, so reloading a
+ * level never re-reads or re-parses it.
+ * <p>
+ * The next levels of a pack can be loaded ahead of time on a background thread
+ * with {@link #prefetch(List, int, int)}, so moving to the next level is
+ * instant. Hits, misses and load latency are tracked for tuning.
+ *
+ * @author Muhammad Blal
+ */
+public class LevelCache {
+	/**
+	 * Default maximum number of cached levels.
+	 */
+	public static final int DEFAULT_MAX_ENTRIES = 256;
+
+	/**
+	 * Default maximum estimated memory of cached levels, in bytes.
+	 */
+	public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+	/**
+	 * The cache used by GameFileUtil.
+	 */
+	private static final LevelCache DEFAULT = new LevelCache(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+
+	/**
+	 * Cached levels in access order, least recently used first. Guarded by this.
+	 */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * Maximum number of cached levels.
+	 */
+	private final int maxEntries;
+
+	/**
+	 * Maximum estimated memory of cached levels, in bytes.
+	 */
+	private final long maxBytes;
+
+	/**
+	 * Estimated memory of the cached levels, in bytes. Guarded by this.
+	 */
+	private long bytes;
+
+	/**
+	 * Background thread loading prefetched levels.
+	 */
+	private final ExecutorService prefetcher = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "lizard-level-prefetch");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LatencyHistogram loadLatency = new LatencyHistogram();
+
+	/**
+	 * Constructs an empty cache with the given bounds.
+	 *
+	 * @param maxEntries maximum number of cached levels
+	 * @param maxBytes   maximum estimated memory of cached levels, in bytes
+	 */
+	public LevelCache(int maxEntries, long maxBytes) {
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @return the cache shared by the whole process
+	 */
+	public static LevelCache getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Gets the level at the given path, reading and parsing it only if it is not
+	 * cached or its file has changed.
+	 *
+	 * @param filePath location of the level file
+	 * @return the level, or null if the file cannot be read
+	 */
+	public LevelTemplate get(String filePath) {
+		File file = new File(filePath);
+		long modified = file.lastModified();
+		long length = file.length();
+		synchronized (this) {
+			Entry entry = entries.get(filePath);
+			if (entry != null && entry.modified == modified && entry.length == length) {
+				hits.increment();
+				return entry.template;
+			}
+		}
+		misses.increment();
+
+		long start = System.nanoTime();
+		LevelTemplate template = LevelTemplate.forFile(filePath);
+		loadLatency.record(System.nanoTime() - start);
+		if (template != null) {
+			put(filePath, new Entry(template, modified, length));
+		}
+		return template;
+	}
+
+	/**
+	 * Loads the next levels of a pack in the background. Levels already cached are
+	 * not read again.
+	 *
+	 * @param pack    the file paths of the pack, in play order
+	 * @param current index of the level being played
+	 * @param count   how many of the following levels to load
+	 */
+	public void prefetch(List<String> pack, int current, int count) {
+		int end = Math.min(pack.size(), current + 1 + count);
+		for (int i = current + 1; i < end; i++) {
+			String path = pack.get(i);
+			prefetcher.execute(() -> get(path));
+		}
+	}
+
+	/**
+	 * Lists the level files of the directory holding the given level, sorted by
+	 * name, which is the play order of a pack.
+	 *
+	 * @param filePath location of any level file of the pack
+	 * @return paths of all ".txt" files in the same directory
+	 */
+	public static List<String> packOf(String filePath) {
+		File dir = new File(filePath).getAbsoluteFile().getParentFile();
+		File[] files = dir == null ? null : dir.listFiles((d, name) -> name.endsWith(".txt"));
+		if (files == null) {
+			return List.of();
+		}
+		Arrays.sort(files);
+		String[] paths = new String[files.length];
+		for (int i = 0; i < files.length; i++) {
+			paths[i] = files[i].getPath();
+		}
+		return List.of(paths);
+	}
+
+	/**
+	 * Forgets the cached level of the given path, so the next request reads the
+	 * file again. Writers call this since a rewrite within the file system's time
+	 * resolution can leave the size and modification time unchanged.
+	 *
+	 * @param filePath location of the level file
+	 */
+	public synchronized void invalidate(String filePath) {
+		Entry old = entries.remove(filePath);
+		if (old != null) {
+			bytes -= old.bytes;
+		}
+	}
+
+	/**
+	 * Removes every cached level. Statistics are kept.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * @return number of cached levels
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return estimated memory of the cached levels, in bytes
+	 */
+	public synchronized long getEstimatedBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return number of requests answered from the cache
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return number of requests that had to read the file
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return fraction of requests answered from the cache, or 0 if there were none
+	 */
+	public double getHitRate() {
+		long h = hits.sum();
+		long total = h + misses.sum();
+		return total == 0 ? 0 : (double) h / total;
+	}
+
+	/**
+	 * @return latency in nanoseconds of reading and parsing levels on a miss
+	 */
+	public LatencyHistogram getLoadLatency() {
+		return loadLatency;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("LevelCache[size=%d, bytes=%d, hits=%d, misses=%d, hitRate=%.3f, p50=%dns, p99=%dns]",
+				size(), getEstimatedBytes(), getHits(), getMisses(), getHitRate(),
+				loadLatency.getValueAtQuantile(0.5), loadLatency.getValueAtQuantile(0.99));
+	}
+
+	/**
+	 * Private helper method that stores an entry and evicts least recently used
+	 * levels until both bounds hold again. The entry just stored is never evicted.
+	 *
+	 * @param filePath location of the level file
+	 * @param entry    the entry to store
+	 */
+	private synchronized void put(String filePath, Entry entry) {
+		Entry old = entries.put(filePath, entry);
+		if (old != null) {
+			bytes -= old.bytes;
+		}
+		bytes += entry.bytes;
+
+		Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+		while ((entries.size() > maxEntries || bytes > maxBytes) && it.hasNext()) {
+			Map.Entry<String, Entry> eldest = it.next();
+			if (eldest.getValue() == entry) {
+				continue;
+			}
+			bytes -= eldest.getValue().bytes;
+			it.remove();
+		}
+	}
+
+	/**
+	 * A cached level together with the file stamp it was read from.
+	 */
+	private static class Entry {
+		private final LevelTemplate template;
+		private final long modified;
+		private final long length;
+		private final long bytes;
+
+		private Entry(LevelTemplate template, long modified, long length) {
+			this.template = template;
+			this.modified = modified;
+			this.length = length;
+			this.bytes = template.getEstimatedBytes();
+		}
+	}
+}
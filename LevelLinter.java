@@ -0,0 +1,488 @@
+package hw3;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Checks level files for the mistakes {@link GameFileUtil#load(String, LizardGame)}
+ * does not catch: a bad size line, rows shorter than the width, unknown
+ * characters, lizard segments that are outside the grid, on a wall, on top of
+ * each other or not next to the previous segment, and lizards that have no
+ * path to any exit. Each file is memory-mapped and read line by line straight
+ * from the mapping, and files are checked in parallel.
+ * <p>
+ * Usage: {@code LevelLinter path...}, where each path is a level file or a
+ * directory searched recursively for ".txt" levels. The report lists every
+ * issue sorted by file and line, followed by the number of files checked per
+ * second. The exit status is 1 if any file has an error.
+ *
+ * @author Muhammad Blal
+ */
+public class LevelLinter {
+	/**
+	 * How bad an issue is.
+	 */
+	public enum Severity {
+		/**
+		 * The level cannot be loaded or played as intended.
+		 */
+		ERROR,
+
+		/**
+		 * The level loads, but probably not as its author meant.
+		 */
+		WARNING
+	}
+
+	/**
+	 * One problem found in a level file.
+	 */
+	public static class Issue {
+		/**
+		 * Orders issues by file, then line, then severity and message.
+		 */
+		public static final Comparator<Issue> ORDER = Comparator.comparing((Issue i) -> i.path)
+				.thenComparingInt(i -> i.line).thenComparing(i -> i.severity).thenComparing(i -> i.message);
+
+		private final String path;
+		private final int line;
+		private final Severity severity;
+		private final String message;
+
+		/**
+		 * Constructs an issue.
+		 *
+		 * @param path     location of the level file
+		 * @param line     line number from 1, or 0 for the whole file
+		 * @param severity how bad it is
+		 * @param message  what is wrong
+		 */
+		public Issue(String path, int line, Severity severity, String message) {
+			this.path = path;
+			this.line = line;
+			this.severity = severity;
+			this.message = message;
+		}
+
+		/**
+		 * @return location of the level file
+		 */
+		public String getPath() {
+			return path;
+		}
+
+		/**
+		 * @return line number from 1, or 0 for the whole file
+		 */
+		public int getLine() {
+			return line;
+		}
+
+		/**
+		 * @return how bad the issue is
+		 */
+		public Severity getSeverity() {
+			return severity;
+		}
+
+		/**
+		 * @return what is wrong
+		 */
+		public String getMessage() {
+			return message;
+		}
+
+		@Override
+		public String toString() {
+			return path + ":" + line + ": " + severity.name().toLowerCase(Locale.ROOT) + ": " + message;
+		}
+	}
+
+	/**
+	 * Runs the linter from the command line.
+	 *
+	 * @param args level files and directories
+	 * @throws IOException if a directory cannot be walked
+	 */
+	public static void main(String[] args) throws IOException {
+		long start = System.nanoTime();
+		List<Path> files = new ArrayList<>();
+		for (String arg : args) {
+			files.addAll(levelFiles(Paths.get(arg)));
+		}
+		List<Issue> issues = lintAll(files);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		long errors = 0;
+		for (Issue issue : issues) {
+			System.out.println(issue);
+			if (issue.getSeverity() == Severity.ERROR) {
+				errors++;
+			}
+		}
+		System.out.printf("%d files, %d errors, %d warnings in %.2f s (%.0f files/s)%n", files.size(), errors,
+				issues.size() - errors, seconds, files.size() / seconds);
+		if (errors > 0) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Finds the level files under a path.
+	 *
+	 * @param root a level file or a directory
+	 * @return the file itself, or every ".txt" file in the directory tree
+	 * @throws IOException if the directory cannot be walked
+	 */
+	public static List<Path> levelFiles(Path root) throws IOException {
+		if (!Files.isDirectory(root)) {
+			return List.of(root);
+		}
+		try (Stream<Path> walk = Files.walk(root)) {
+			return walk.filter(p -> Files.isRegularFile(p) && p.toString().endsWith(".txt")).sorted()
+					.collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * Checks many level files in parallel.
+	 *
+	 * @param files the level files
+	 * @return every issue found, sorted by {@link Issue#ORDER}
+	 */
+	public static List<Issue> lintAll(List<Path> files) {
+		return files.parallelStream().flatMap(f -> lint(f).stream()).sorted(Issue.ORDER)
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Checks one level file.
+	 *
+	 * @param file the level file
+	 * @return the issues found, in no particular order
+	 */
+	public static List<Issue> lint(Path file) {
+		List<String> lines;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			lines = lines(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} catch (IOException | RuntimeException e) {
+			List<Issue> issues = new ArrayList<>();
+			issues.add(new Issue(file.toString(), 0, Severity.ERROR, "cannot read file: " + e.getMessage()));
+			return issues;
+		}
+		return new Check(file.toString(), lines).run();
+	}
+
+	/**
+	 * Private helper method that splits a mapped file into lines, without line
+	 * terminators.
+	 *
+	 * @param buffer the file contents
+	 * @return the lines
+	 */
+	private static List<String> lines(MappedByteBuffer buffer) {
+		List<String> lines = new ArrayList<>();
+		byte[] line = new byte[64];
+		int length = 0;
+		while (buffer.hasRemaining()) {
+			byte b = buffer.get();
+			if (b == '\n') {
+				lines.add(text(line, length));
+				length = 0;
+			} else {
+				if (length == line.length) {
+					line = Arrays.copyOf(line, length * 2);
+				}
+				line[length++] = b;
+			}
+		}
+		if (length > 0) {
+			lines.add(text(line, length));
+		}
+		return lines;
+	}
+
+	/**
+	 * Private helper method that decodes one line, dropping a carriage return.
+	 *
+	 * @param bytes  the line's bytes
+	 * @param length number of bytes used
+	 * @return the line
+	 */
+	private static String text(byte[] bytes, int length) {
+		if (length > 0 && bytes[length - 1] == '\r') {
+			length--;
+		}
+		return new String(bytes, 0, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * The checks of one file.
+	 */
+	private static class Check {
+		private final String path;
+		private final List<String> lines;
+		private final List<Issue> issues = new ArrayList<>();
+		private int width;
+		private int height;
+		private boolean[] walls;
+		private boolean[] exits;
+
+		/**
+		 * Lizard occupying each cell plus one, or 0.
+		 */
+		private int[] owner;
+
+		private Check(String path, List<String> lines) {
+			this.path = path;
+			this.lines = lines;
+		}
+
+		private List<Issue> run() {
+			if (!readSize() || !readRows()) {
+				return issues;
+			}
+			List<int[]> lizards = readLizards();
+			checkReachable(lizards);
+			return issues;
+		}
+
+		/**
+		 * Reads the "WxH" line.
+		 *
+		 * @return false if the rest of the file cannot be checked
+		 */
+		private boolean readSize() {
+			if (lines.isEmpty()) {
+				error(0, "empty file");
+				return false;
+			}
+			// The loader parses the line as it is, so spaces around it make it fail
+			String size = lines.get(0);
+			if (!size.equals(size.trim())) {
+				error(1, "size line \"" + size + "\" has spaces around it");
+				return false;
+			}
+			String[] dimensions = size.split("x");
+			try {
+				if (dimensions.length != 2) {
+					throw new NumberFormatException();
+				}
+				width = Integer.parseInt(dimensions[0]);
+				height = Integer.parseInt(dimensions[1]);
+			} catch (NumberFormatException e) {
+				error(1, "size line \"" + size + "\" is not of the form WIDTHxHEIGHT");
+				return false;
+			}
+			if (width <= 0 || height <= 0) {
+				error(1, "size " + width + "x" + height + " is not positive");
+				return false;
+			}
+			if ((long) width * height > Integer.MAX_VALUE / 2) {
+				error(1, "size " + width + "x" + height + " is too large");
+				return false;
+			}
+			walls = new boolean[width * height];
+			exits = new boolean[width * height];
+			owner = new int[width * height];
+			return true;
+		}
+
+		/**
+		 * Reads the rows of the grid.
+		 *
+		 * @return false if the rest of the file cannot be checked
+		 */
+		private boolean readRows() {
+			if (lines.size() < height + 1) {
+				error(lines.size(), "expected " + height + " rows but the file has " + (lines.size() - 1));
+				return false;
+			}
+			for (int row = 0; row < height; row++) {
+				String line = lines.get(row + 1);
+				int number = row + 2;
+				if (line.length() < width) {
+					error(number, "row " + row + " has " + line.length() + " cells, expected " + width);
+				}
+				for (int col = 0; col < Math.min(width, line.length()); col++) {
+					char c = line.charAt(col);
+					if (c == 'W') {
+						walls[row * width + col] = true;
+					} else if (c == 'E') {
+						exits[row * width + col] = true;
+					} else if (c != ' ') {
+						warning(number, "unknown character '" + c + "' at column " + col + " is read as empty");
+					}
+				}
+				if (line.length() > width + 1 || line.length() == width + 1 && line.charAt(width) != '.') {
+					warning(number, "row " + row + " is longer than the width " + width);
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Reads and checks the lizard lines.
+		 *
+		 * @return the cells of each lizard read, from tail to head
+		 */
+		private List<int[]> readLizards() {
+			List<int[]> lizards = new ArrayList<>();
+			for (int n = height + 1; n < lines.size(); n++) {
+				String line = lines.get(n).trim();
+				int number = n + 1;
+				if (line.isEmpty()) {
+					continue;
+				}
+				String[] words = line.split("\\s+");
+				if (!words[0].equals("L")) {
+					warning(number, "line is not a lizard and is ignored");
+					continue;
+				}
+				if (words.length == 1) {
+					error(number, "lizard has no segments");
+					continue;
+				}
+				int[] cells = new int[words.length - 1];
+				boolean valid = true;
+				for (int k = 0; k < cells.length && valid; k++) {
+					cells[k] = segment(words[k + 1], number);
+					valid = cells[k] >= 0;
+				}
+				if (!valid) {
+					continue;
+				}
+				checkLizard(cells, lizards.size() + 1, number);
+				lizards.add(cells);
+			}
+			if (lizards.isEmpty()) {
+				warning(0, "level has no lizards");
+			}
+			return lizards;
+		}
+
+		/**
+		 * Reads one "col,row" segment.
+		 *
+		 * @param word   the segment as written
+		 * @param number line number
+		 * @return its cell index, or -1 after reporting an error
+		 */
+		private int segment(String word, int number) {
+			String[] coordinates = word.split(",");
+			int col;
+			int row;
+			try {
+				if (coordinates.length != 2) {
+					throw new NumberFormatException();
+				}
+				col = Integer.parseInt(coordinates[0]);
+				row = Integer.parseInt(coordinates[1]);
+			} catch (NumberFormatException e) {
+				error(number, "segment \"" + word + "\" is not of the form COL,ROW");
+				return -1;
+			}
+			if (col < 0 || row < 0 || col >= width || row >= height) {
+				error(number, "segment " + word + " is outside the " + width + "x" + height + " grid");
+				return -1;
+			}
+			return row * width + col;
+		}
+
+		/**
+		 * Checks the segments of one lizard against the grid and the lizards
+		 * before it.
+		 *
+		 * @param cells  cells from tail to head
+		 * @param id     lizard number from 1
+		 * @param number line number
+		 */
+		private void checkLizard(int[] cells, int id, int number) {
+			for (int k = 0; k < cells.length; k++) {
+				int cell = cells[k];
+				String where = (cell % width) + "," + (cell / width);
+				if (walls[cell]) {
+					error(number, "segment " + where + " is on a wall");
+				}
+				if (owner[cell] == id) {
+					error(number, "segment " + where + " is used twice by the same lizard");
+				} else if (owner[cell] != 0) {
+					error(number, "segment " + where + " overlaps lizard " + owner[cell]);
+				} else {
+					owner[cell] = id;
+				}
+				if (k > 0 && !adjacent(cells[k - 1], cell)) {
+					error(number, "segment " + where + " is not next to the segment before it");
+				}
+			}
+			int tail = cells[0];
+			int head = cells[cells.length - 1];
+			if (exits[tail] || exits[head]) {
+				warning(number, "lizard starts with an end on an exit");
+			}
+		}
+
+		/**
+		 * Reports lizards that cannot reach any exit through cells without walls,
+		 * ignoring the other lizards.
+		 *
+		 * @param lizards the lizards read
+		 */
+		private void checkReachable(List<int[]> lizards) {
+			BitBoard exitCells = new BitBoard(width, height);
+			BitBoard open = new BitBoard(width, height);
+			boolean anyExit = false;
+			for (int cell = 0; cell < width * height; cell++) {
+				if (exits[cell] && !walls[cell]) {
+					exitCells.set(cell % width, cell / width);
+					anyExit = true;
+				}
+				if (!walls[cell]) {
+					open.set(cell % width, cell / width);
+				}
+			}
+			if (!anyExit) {
+				if (!lizards.isEmpty()) {
+					error(0, "level has lizards but no exits");
+				}
+				return;
+			}
+			BitBoard reachable = BitBoard.floodFill(exitCells, open);
+			for (int i = 0; i < lizards.size(); i++) {
+				int[] cells = lizards.get(i);
+				int tail = cells[0];
+				int head = cells[cells.length - 1];
+				if (!reachable.get(tail % width, tail / width) && !reachable.get(head % width, head / width)) {
+					error(0, "lizard " + (i + 1) + " cannot reach any exit");
+				}
+			}
+		}
+
+		private boolean adjacent(int a, int b) {
+			int dcol = Math.abs(a % width - b % width);
+			int drow = Math.abs(a / width - b / width);
+			return dcol + drow == 1;
+		}
+
+		private void error(int line, String message) {
+			issues.add(new Issue(path, line, Severity.ERROR, message));
+		}
+
+		private void warning(int line, String message) {
+			issues.add(new Issue(path, line, Severity.WARNING, message));
+		}
+	}
+}
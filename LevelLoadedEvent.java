@@ -0,0 +1,28 @@
+package api;
+
+import hw3.LizardGame;
+
+/**
+ * Raised after a level file has been loaded into a game.
+ */
+public class LevelLoadedEvent extends GameEvent {
+	private String filePath;
+
+	/**
+	 * Creates a new load event.
+	 * 
+	 * @param game     the game the level was loaded into
+	 * @param filePath location of the loaded file
+	 */
+	public LevelLoadedEvent(LizardGame game, String filePath) {
+		super(game);
+		this.filePath = filePath;
+	}
+
+	/**
+	 * @return location of the loaded file
+	 */
+	public String getFilePath() {
+		return filePath;
+	}
+}
@@ -0,0 +1,177 @@
+package hw3;
+
+import java.util.Locale;
+
+/**
+ * Difficulty measures of one level, as computed by {@link LevelAnalyzer}.
+ *
+ * @author Muhammad Blal
+ */
+public class LevelStats {
+	/**
+	 * Column names of {@link #toCsv()}, in order.
+	 */
+	public static final String CSV_HEADER = "path,width,height,lizards,states,expanded,complete,solution_length,"
+			+ "branching_factor,forced_moves,dead_end_ratio,millis,error";
+
+	private final String path;
+	private final int width;
+	private final int height;
+	private final int lizards;
+	private final long states;
+	private final long expanded;
+	private final boolean complete;
+	private final int solutionLength;
+	private final double branchingFactor;
+	private final int forcedMoves;
+	private final double deadEndRatio;
+	private final long millis;
+	private final String error;
+
+	/**
+	 * Constructs the measures of a level that was explored.
+	 *
+	 * @param path            location of the level file
+	 * @param width           number of columns
+	 * @param height          number of rows
+	 * @param lizards         number of lizards at the start
+	 * @param states          number of distinct states found
+	 * @param expanded        number of states whose moves were generated
+	 * @param complete        true if every reachable state was found
+	 * @param solutionLength  number of moves of a shortest solution, or -1
+	 * @param branchingFactor average number of legal moves per expanded state
+	 * @param forcedMoves     number of steps of a shortest solution with only one
+	 *                        move that gets closer to the goal
+	 * @param deadEndRatio    fraction of states from which the level cannot be
+	 *                        solved, or NaN if the exploration was cut short
+	 * @param millis          time spent on the level
+	 */
+	public LevelStats(String path, int width, int height, int lizards, long states, long expanded, boolean complete,
+			int solutionLength, double branchingFactor, int forcedMoves, double deadEndRatio, long millis) {
+		this.path = path;
+		this.width = width;
+		this.height = height;
+		this.lizards = lizards;
+		this.states = states;
+		this.expanded = expanded;
+		this.complete = complete;
+		this.solutionLength = solutionLength;
+		this.branchingFactor = branchingFactor;
+		this.forcedMoves = forcedMoves;
+		this.deadEndRatio = deadEndRatio;
+		this.millis = millis;
+		this.error = "";
+	}
+
+	/**
+	 * Constructs the measures of a level that could not be explored.
+	 *
+	 * @param path  location of the level file
+	 * @param error why the level was skipped
+	 */
+	public LevelStats(String path, String error) {
+		this.path = path;
+		this.error = error;
+		width = 0;
+		height = 0;
+		lizards = 0;
+		states = 0;
+		expanded = 0;
+		complete = false;
+		solutionLength = -1;
+		branchingFactor = Double.NaN;
+		forcedMoves = 0;
+		deadEndRatio = Double.NaN;
+		millis = 0;
+	}
+
+	/**
+	 * @return location of the level file
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * @return number of distinct states found
+	 */
+	public long getStates() {
+		return states;
+	}
+
+	/**
+	 * @return true if every reachable state was found
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * @return number of moves of a shortest solution, or -1 if none was found
+	 */
+	public int getSolutionLength() {
+		return solutionLength;
+	}
+
+	/**
+	 * @return average number of legal moves per expanded state
+	 */
+	public double getBranchingFactor() {
+		return branchingFactor;
+	}
+
+	/**
+	 * @return number of steps of a shortest solution with only one move that gets
+	 *         closer to the goal
+	 */
+	public int getForcedMoves() {
+		return forcedMoves;
+	}
+
+	/**
+	 * @return fraction of states from which the level cannot be solved, or NaN if
+	 *         unknown
+	 */
+	public double getDeadEndRatio() {
+		return deadEndRatio;
+	}
+
+	/**
+	 * @return why the level was skipped, or an empty string
+	 */
+	public String getError() {
+		return error;
+	}
+
+	/**
+	 * @return the measures as one CSV row matching {@link #CSV_HEADER}
+	 */
+	public String toCsv() {
+		return quote(path) + "," + width + "," + height + "," + lizards + "," + states + "," + expanded + ","
+				+ complete + "," + solutionLength + "," + format(branchingFactor) + "," + forcedMoves + ","
+				+ format(deadEndRatio) + "," + millis + "," + quote(error);
+	}
+
+	/**
+	 * Private helper method that quotes a CSV field if needed.
+	 *
+	 * @param field the field
+	 * @return the field as it appears in CSV
+	 */
+	private static String quote(String field) {
+		if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0) {
+			return field;
+		}
+		return "\"" + field.replace("\"", "\"\"") + "\"";
+	}
+
+	/**
+	 * Private helper method that formats a measure, leaving unknown values empty.
+	 *
+	 * @param value the measure
+	 * @return the value with four decimals, or an empty string for NaN
+	 */
+	private static String format(double value) {
+		return Double.isNaN(value) ? "" : String.format(Locale.ROOT, "%.4f", value);
+	}
+}
@@ -0,0 +1,276 @@
+package hw3;
+
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import api.BodySegment;
+import api.Cell;
+
+/**
+ * The static part of a level: its dimensions, where the walls and exits are and
+ * where each lizard starts. Templates are immutable and interned by the text of
+ * the level file, so every game playing the same level shares one template no
+ * matter how many sessions are open. The intern table only holds templates
+ * weakly; once no game or cache uses a template it can be collected.
+ * <p>
+ * Walls and exits are stored as bit sets indexed by {@code row * width + col}.
+ * A game built from a template only creates Cell, Wall and Exit objects for the
+ * cells it actually touches.
+ *
+ * @author Muhammad Blal
+ */
+public class LevelTemplate {
+	/**
+	 * Interned templates by the text of the level file they were parsed from.
+	 */
+	private static final ConcurrentHashMap<String, TemplateRef> INTERNED = new ConcurrentHashMap<>();
+
+	/**
+	 * Receives the references of interned templates that have been collected.
+	 */
+	private static final ReferenceQueue<LevelTemplate> COLLECTED = new ReferenceQueue<>();
+
+	/**
+	 * Number of columns.
+	 */
+	private final int width;
+
+	/**
+	 * Number of rows.
+	 */
+	private final int height;
+
+	/**
+	 * Cells holding a wall.
+	 */
+	private final BitSet walls;
+
+	/**
+	 * Cells holding an exit.
+	 */
+	private final BitSet exits;
+
+	/**
+	 * Starting cells of each lizard, ordered from tail to head, as cell indices.
+	 */
+	private final int[][] lizards;
+
+	/**
+	 * Constructs a template. The given sets and arrays are copied.
+	 *
+	 * @param width   number of columns
+	 * @param height  number of rows
+	 * @param walls   cells holding a wall, indexed by row * width + col
+	 * @param exits   cells holding an exit, indexed by row * width + col
+	 * @param lizards cell indices of each lizard's segments from tail to head
+	 */
+	public LevelTemplate(int width, int height, BitSet walls, BitSet exits, List<int[]> lizards) {
+		this.width = width;
+		this.height = height;
+		this.walls = (BitSet) walls.clone();
+		this.exits = (BitSet) exits.clone();
+		this.lizards = new int[lizards.size()][];
+		for (int i = 0; i < lizards.size(); i++) {
+			this.lizards[i] = lizards.get(i).clone();
+		}
+	}
+
+	/**
+	 * Gets the shared template for the level file at the given path. The file is
+	 * read each time, but parsed only the first time its contents are seen.
+	 *
+	 * @param filePath location of the level file
+	 * @return the template, or null if the file cannot be read
+	 */
+	public static LevelTemplate forFile(String filePath) {
+		String text;
+		try {
+			text = new String(Files.readAllBytes(Paths.get(filePath)), StandardCharsets.UTF_8);
+		} catch (IOException | RuntimeException e) {
+			return null;
+		}
+		return forText(text);
+	}
+
+	/**
+	 * Gets the shared template for the given level file contents.
+	 *
+	 * @param text contents of a level file
+	 * @return the template
+	 */
+	public static LevelTemplate forText(String text) {
+		purgeCollected();
+		LevelTemplate parsed = null;
+		while (true) {
+			TemplateRef ref = INTERNED.get(text);
+			LevelTemplate existing = ref == null ? null : ref.get();
+			if (existing != null) {
+				return existing;
+			}
+			if (parsed == null) {
+				parsed = GameFileUtil.parse(text);
+			}
+
+			// Another thread may have interned the same text meanwhile, in which case
+			// the loop picks up its template instead
+			TemplateRef fresh = new TemplateRef(parsed, text);
+			if (ref == null ? INTERNED.putIfAbsent(text, fresh) == null : INTERNED.replace(text, ref, fresh)) {
+				return parsed;
+			}
+		}
+	}
+
+	/**
+	 * Captures the current state of a game as a template: its walls, its exits
+	 * and where each lizard is now. The template is not interned.
+	 *
+	 * @param game the game to capture
+	 * @return a new template describing the game
+	 */
+	public static LevelTemplate snapshot(LizardGame game) {
+		int width = game.getWidth();
+		int height = game.getHeight();
+		BitSet walls = new BitSet(width * height);
+		BitSet exits = new BitSet(width * height);
+		for (int row = 0; row < height; row++) {
+			for (int col = 0; col < width; col++) {
+				if (game.hasWall(col, row)) {
+					walls.set(row * width + col);
+				} else if (game.hasExit(col, row)) {
+					exits.set(row * width + col);
+				}
+			}
+		}
+		List<int[]> lizards = new ArrayList<>();
+		for (Lizard l : game.getLizards()) {
+			List<BodySegment> segments = l.getSegments();
+			int[] cells = new int[segments.size()];
+			for (int i = 0; i < cells.length; i++) {
+				Cell cell = segments.get(i).getCell();
+				cells[i] = cell.getRow() * width + cell.getCol();
+			}
+			lizards.add(cells);
+		}
+		return new LevelTemplate(width, height, walls, exits, lizards);
+	}
+
+	/**
+	 * Gets a rough estimate of the memory used by this template, for caches that
+	 * are bounded by size.
+	 *
+	 * @return estimated size in bytes
+	 */
+	public long getEstimatedBytes() {
+		long bytes = 64 + (walls.size() + exits.size()) / 8;
+		for (int[] cells : lizards) {
+			bytes += 16 + 4L * cells.length;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Private helper method that drops intern table entries whose template has
+	 * been collected.
+	 */
+	private static void purgeCollected() {
+		TemplateRef ref;
+		while ((ref = (TemplateRef) COLLECTED.poll()) != null) {
+			INTERNED.remove(ref.text, ref);
+		}
+	}
+
+	/**
+	 * @return number of columns
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return number of rows
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @param col column of the cell
+	 * @param row row of the cell
+	 * @return true if the cell holds a wall, false otherwise
+	 */
+	public boolean isWall(int col, int row) {
+		return walls.get(row * width + col);
+	}
+
+	/**
+	 * @param col column of the cell
+	 * @param row row of the cell
+	 * @return true if the cell holds an exit, false otherwise
+	 */
+	public boolean isExit(int col, int row) {
+		return exits.get(row * width + col);
+	}
+
+	/**
+	 * @return a copy of the cells holding a wall, indexed by row * width + col
+	 */
+	public BitSet getWalls() {
+		return (BitSet) walls.clone();
+	}
+
+	/**
+	 * @return a copy of the cells holding an exit, indexed by row * width + col
+	 */
+	public BitSet getExits() {
+		return (BitSet) exits.clone();
+	}
+
+	/**
+	 * @return number of lizards at the start of the level
+	 */
+	public int getLizardCount() {
+		return lizards.length;
+	}
+
+	/**
+	 * Gets the starting cells of a lizard as indices of the form
+	 * {@code row * width + col}, ordered from tail to head.
+	 *
+	 * @param index which lizard, from 0 to getLizardCount() - 1
+	 * @return a copy of the lizard's cell indices
+	 */
+	public int[] getLizardCells(int index) {
+		return lizards[index].clone();
+	}
+
+	/**
+	 * @return a list with a copy of every lizard's starting cells
+	 */
+	public List<int[]> getAllLizardCells() {
+		List<int[]> result = new ArrayList<>(lizards.length);
+		for (int[] cells : lizards) {
+			result.add(cells.clone());
+		}
+		return result;
+	}
+
+	/**
+	 * Weak reference to an interned template that remembers its intern table key.
+	 */
+	private static class TemplateRef extends WeakReference<LevelTemplate> {
+		private final String text;
+
+		private TemplateRef(LevelTemplate template, String text) {
+			super(template, COLLECTED);
+			this.text = text;
+		}
+	}
+}
@@ -0,0 +1,179 @@
+package hw3;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import api.LevelLoadedEvent;
+
+/**
+ * Reloads a level into a running game whenever its file changes on disk, so
+ * level designers see their edits without pressing Load. The directory of the
+ * file is watched with a {@link WatchService} on a daemon thread. Editors
+ * often write a file in several steps, so after a change the watcher waits
+ * until the file has been quiet for {@link #DEBOUNCE_MILLIS} before reading
+ * it.
+ * <p>
+ * The new contents are parsed into a {@link LevelTemplate} and applied with
+ * {@link LizardGame#applyLevelEdit(LevelTemplate)}, which only touches the
+ * walls, exits and lizards that changed. A {@link LevelLoadedEvent} is then
+ * published so that listeners such as the hint service start over. Contents
+ * that cannot be parsed, for example a file caught half written, are skipped
+ * until the next change.
+ *
+ * @author Muhammad Blal
+ */
+public class LevelWatcher implements Closeable {
+	/**
+	 * Time a file must go without changes before it is reloaded.
+	 */
+	public static final long DEBOUNCE_MILLIS = 100;
+
+	private final LizardGame game;
+	private final Path file;
+	private final Executor applier;
+	private final WatchService watcher;
+
+	/**
+	 * Contents of the file as last applied, to skip changes that leave it the
+	 * same.
+	 */
+	private String lastText;
+
+	private volatile int reloads;
+
+	/**
+	 * Starts watching a level file.
+	 *
+	 * @param game     the game playing the level
+	 * @param filePath location of the level file
+	 * @param applier  runs the changes to the game, for example on the thread
+	 *                 that owns the game; use {@code Runnable::run} to apply them
+	 *                 on the watching thread
+	 * @throws IOException if the directory cannot be watched
+	 */
+	public LevelWatcher(LizardGame game, String filePath, Executor applier) throws IOException {
+		this.game = game;
+		this.file = Paths.get(filePath).toAbsolutePath().normalize();
+		this.applier = applier;
+		lastText = read();
+		watcher = file.getFileSystem().newWatchService();
+		try {
+			file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY);
+		} catch (IOException e) {
+			watcher.close();
+			throw e;
+		}
+		Thread thread = new Thread(this::watch, "lizard-level-watch");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * @return number of times the file was reloaded into the game
+	 */
+	public int getReloadCount() {
+		return reloads;
+	}
+
+	/**
+	 * Stops watching.
+	 */
+	@Override
+	public void close() throws IOException {
+		watcher.close();
+	}
+
+	/**
+	 * Reads the file now and applies it to the game if it changed since the last
+	 * time.
+	 *
+	 * @return true if a change was handed to the applier
+	 */
+	public synchronized boolean reload() {
+		String text = read();
+		if (text == null || text.equals(lastText)) {
+			return false;
+		}
+		LevelTemplate edited;
+		try {
+			edited = LevelTemplate.forText(text);
+		} catch (RuntimeException e) {
+			return false; // Probably caught in the middle of a save, wait for the next change
+		}
+		lastText = text;
+		applier.execute(() -> {
+			game.applyLevelEdit(edited);
+			reloads++;
+			if (game.getEventBus().hasSubscribers()) {
+				game.getEventBus().publish(new LevelLoadedEvent(game, file.toString()));
+			}
+		});
+		return true;
+	}
+
+	/**
+	 * Private helper method that runs on the watching thread until the watcher is
+	 * closed.
+	 */
+	private void watch() {
+		try {
+			while (true) {
+				WatchKey key = watcher.take();
+				boolean changed = takeChanges(key);
+				// Wait for a quiet period before reading the file
+				while ((key = watcher.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+					changed |= takeChanges(key);
+				}
+				if (changed) {
+					reload();
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// Closed, stop watching
+		}
+	}
+
+	/**
+	 * Private helper method that drains the events of a key.
+	 *
+	 * @param key the signalled key
+	 * @return true if any event was about the watched file
+	 */
+	private boolean takeChanges(WatchKey key) {
+		boolean changed = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			Object context = event.context();
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW
+					|| context instanceof Path && file.getFileName().equals(context)) {
+				changed = true;
+			}
+		}
+		key.reset();
+		return changed;
+	}
+
+	/**
+	 * Private helper method that reads the whole file.
+	 *
+	 * @return the contents, or null if the file cannot be read
+	 */
+	private String read() {
+		try {
+			return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+}
@@ -13,6 +13,13 @@ import java.util.ArrayList;
 public class Lizard {
 	private ArrayList<BodySegment> segments; // Holds the segments of the lizard, ordered from tail to head.
 
+	/**
+	 * Position of this lizard in the lizard list of the game it was added to, or
+	 * -1 if it is not in a game. Maintained by LizardGame so that removal does not
+	 * have to search the list.
+	 */
+	int registryIndex = -1;
+
 	/**
 	 * Constructs a Lizard object.
 	 */
@@ -39,6 +46,16 @@ public class Lizard {
 		return new ArrayList<>(segments); // Return a copy to prevent external modifications
 	}
 
+	/**
+	 * Gets the segments of the lizard without copying them, for use by the game
+	 * engine on hot paths. Callers must not modify the list.
+	 * 
+	 * @return the lizard's own list of segments ordered from tail to head
+	 */
+	ArrayList<BodySegment> segmentList() {
+		return segments;
+	}
+
 	/**
 	 * Gets the head segment of the lizard. Returns null if the segments have not
 	 * been initialized or there are no segments.
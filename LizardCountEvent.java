@@ -0,0 +1,28 @@
+package api;
+
+import hw3.LizardGame;
+
+/**
+ * Raised whenever the number of lizards on the grid changes.
+ */
+public class LizardCountEvent extends GameEvent {
+	private int count;
+
+	/**
+	 * Creates a new count event.
+	 * 
+	 * @param game  the game that raised the event
+	 * @param count the number of lizards now on the grid
+	 */
+	public LizardCountEvent(LizardGame game, int count) {
+		super(game);
+		this.count = count;
+	}
+
+	/**
+	 * @return the number of lizards now on the grid
+	 */
+	public int getCount() {
+		return count;
+	}
+}
@@ -0,0 +1,29 @@
+package api;
+
+import hw3.Lizard;
+import hw3.LizardGame;
+
+/**
+ * Raised after a lizard reaches an exit and is removed from the grid.
+ */
+public class LizardExitedEvent extends GameEvent {
+	private Lizard lizard;
+
+	/**
+	 * Creates a new exit event.
+	 * 
+	 * @param game   the game that raised the event
+	 * @param lizard the lizard that exited
+	 */
+	public LizardExitedEvent(LizardGame game, Lizard lizard) {
+		super(game);
+		this.lizard = lizard;
+	}
+
+	/**
+	 * @return the lizard that exited
+	 */
+	public Lizard getLizard() {
+		return lizard;
+	}
+}
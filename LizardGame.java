@@ -1,10 +1,20 @@
 package hw3;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import api.BodySegment;
 import api.Cell;
 import api.Direction;
 import api.Exit;
+import api.GameEvent;
+import api.GameEventListener;
+import api.GameWonEvent;
+import api.LizardCountEvent;
+import api.LizardExitedEvent;
+import api.LizardMovedEvent;
+import api.MovesBatchEvent;
 import api.ScoreUpdateListener;
 import api.ShowDialogListener;
 import api.Wall;
@@ -16,26 +26,74 @@ import api.Wall;
  */
 public class LizardGame {
 	/**
-	 * Listener for displaying dialogs to the user, such as game win messages.
+	 * Result of a batched move that did not change the grid.
 	 */
-	private ShowDialogListener dialogListener;
+	public static final byte MOVE_REJECTED = 0;
 
 	/**
-	 * Listener for updating the player's score, typically used when the number of
-	 * lizards changes.
+	 * Result of a batched move that shifted a lizard by one cell.
 	 */
-	private ScoreUpdateListener scoreListener;
+	public static final byte MOVE_APPLIED = 1;
+
+	/**
+	 * Result of a batched move after which the lizard left through an exit.
+	 */
+	public static final byte MOVE_EXITED = 2;
+
+	/**
+	 * All directions in ordinal order, for decoding packed moves.
+	 */
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	/**
+	 * Bus on which the game publishes moves, exits, wins, loads and changes to the
+	 * number of lizards.
+	 */
+	private GameEventBus eventBus = new GameEventBus();
+
+	/**
+	 * Subscriber that forwards events to the dialog and score listeners given to
+	 * setListeners, or null if none were given.
+	 */
+	private GameEventListener listenerAdapter;
 
 	/**
 	 * A 2D array representing the game grid. Each element is a Cell object that
 	 * holds information about its state, like whether it contains a lizard, a wall,
-	 * or an exit.
+	 * or an exit. Cells are created the first time they are needed, so an element
+	 * is null until then.
 	 */
 	private Cell[][] grid;
 
+	/**
+	 * The shared level the game was loaded from, or null. Walls and exits of cells
+	 * that have not been created yet are read from the template.
+	 */
+	private LevelTemplate template;
+
+	/**
+	 * Spatial index over the segments of all lizards, or null until someone asks
+	 * for it. Once created it is updated on every change to a lizard's cells.
+	 */
+	private SpatialLizardIndex spatialIndex;
+
+	/**
+	 * True while moveBatch is applying moves. Events are held back until the
+	 * whole batch is done.
+	 */
+	private boolean batching;
+
+	/**
+	 * Lizards that exited during the current batch, announced when it ends.
+	 */
+	private ArrayList<Lizard> batchExited = new ArrayList<>();
+
 	/**
 	 * A list that stores all the Lizard objects currently in the game. This list is
-	 * used to track and manage lizards within the game environment.
+	 * used to track and manage lizards within the game environment. Each lizard
+	 * remembers its position in the list, and a removed lizard is replaced by the
+	 * last one, so removal takes constant time. The order of the list is therefore
+	 * not the order in which lizards were added.
 	 */
 	private ArrayList<Lizard> lizards;
 
@@ -58,25 +116,41 @@ public class LizardGame {
 	public LizardGame(int width, int height) {
 		this.width = width;
 		this.height = height;
-		grid = new Cell[height][width];
+		grid = new Cell[height][width]; // Cells are created on first use
 		lizards = new ArrayList<>();
-		inputGrid(); // Inputs the grid with empty cells
 	}
 
 	/**
-	 * Private helper method that inputs the game grid by populating it with Cell
-	 * objects. Each cell is created at its respective location within the grid.
+	 * Constructs a new LizardGame playing the given level. The game shares the
+	 * template's walls and exits with every other game built from it.
+	 * 
+	 * @param template the level to play
 	 */
-	private void inputGrid() {
-		// Iterate over each row of the grid
-		for (int i = 0; i < width; ++i) {
-			// Iterate over each column within the current row
-			for (int j = 0; j < height; ++j) {
-				// Create a new Cell object for the current row and column
-				// and assign it to the appropriate location in the grid
-				grid[j][i] = new Cell(i, j);
+	public LizardGame(LevelTemplate template) {
+		this(template.getWidth(), template.getHeight());
+		load(template);
+	}
+
+	/**
+	 * Private helper method that creates the Cell object at the given location the
+	 * first time it is needed. The cell receives its wall or exit from the level
+	 * template, if the game has one.
+	 * 
+	 * @param col column of the cell
+	 * @param row row of the cell
+	 * @return the new cell
+	 */
+	private Cell createCell(int col, int row) {
+		Cell cell = new Cell(col, row);
+		if (template != null) {
+			if (template.isWall(col, row)) {
+				cell.placeWall(new Wall(cell));
+			} else if (template.isExit(col, row)) {
+				cell.placeExit(new Exit(cell));
 			}
 		}
+		grid[row][col] = cell;
+		return cell;
 	}
 
 	/**
@@ -127,7 +201,8 @@ public class LizardGame {
 
 	/**
 	 * Gets a list of all lizards on the grid. Does not include lizards that have
-	 * exited.
+	 * exited. The list is the game's own; use addLizard and removeLizard rather
+	 * than modifying it.
 	 * 
 	 * @return lizards list of lizards
 	 */
@@ -143,9 +218,9 @@ public class LizardGame {
 	 * @param lizard to add
 	 */
 	public void addLizard(Lizard lizard) {
-		lizards.add(lizard);
-		if (scoreListener != null) {
-			scoreListener.updateScore(lizards.size()); // assuming ScoreUpdateListener has updateScore method
+		register(lizard);
+		if (publishing()) {
+			eventBus.publish(new LizardCountEvent(this, lizards.size()));
 		}
 	}
 
@@ -162,7 +237,7 @@ public class LizardGame {
 	 */
 	public void removeLizard(Lizard lizard) {
 		// Iterate through all segments of the lizard.
-		for (BodySegment segment : lizard.getSegments()) {
+		for (BodySegment segment : lizard.segmentList()) {
 			// For each segment, get the cell it occupies and remove the lizard from that
 			// cell.
 			segment.getCell().removeLizard();
@@ -170,17 +245,60 @@ public class LizardGame {
 
 		// Remove the lizard from the list of lizards in the game.
 		// This effectively removes the lizard from the game's tracking.
-		lizards.remove(lizard);
+		unregister(lizard);
+
+		// Let subscribers (such as the score display) know the new number of lizards
+		// in the game.
+		if (publishing()) {
+			eventBus.publish(new LizardCountEvent(this, lizards.size()));
+		}
+	}
 
-		// If there is a score listener set (which might be responsible for keeping
-		// track of game score), update the score based on the new number of lizards in
-		// the game.
-		// This could be relevant for game mechanics or UI updates.
-		if (scoreListener != null) {
-			scoreListener.updateScore(lizards.size());
+	/**
+	 * Private helper method that appends a lizard to the lizard list and records
+	 * its position.
+	 * 
+	 * @param lizard to add
+	 */
+	private void register(Lizard lizard) {
+		lizard.registryIndex = lizards.size();
+		lizards.add(lizard);
+		if (spatialIndex != null) {
+			for (BodySegment seg : lizard.segmentList()) {
+				spatialIndex.add(lizard, seg.getCell().getCol(), seg.getCell().getRow());
+			}
 		}
 	}
 
+	/**
+	 * Private helper method that removes a lizard from the lizard list in constant
+	 * time by moving the last lizard into its slot.
+	 * 
+	 * @param lizard to remove
+	 */
+	private void unregister(Lizard lizard) {
+		int index = lizard.registryIndex;
+		if (index < 0 || index >= lizards.size() || lizards.get(index) != lizard) {
+			// The recorded position is stale (for example the list was changed from
+			// outside), so fall back to searching for the lizard
+			index = lizards.indexOf(lizard);
+			if (index < 0) {
+				return;
+			}
+		}
+		if (spatialIndex != null) {
+			for (BodySegment seg : lizard.segmentList()) {
+				spatialIndex.remove(lizard, seg.getCell().getCol(), seg.getCell().getRow());
+			}
+		}
+		Lizard last = lizards.remove(lizards.size() - 1);
+		if (last != lizard) {
+			lizards.set(index, last);
+			last.registryIndex = index;
+		}
+		lizard.registryIndex = -1;
+	}
+
 	/**
 	 * Gets the cell for the given column and row.
 	 * <p>
@@ -202,9 +320,14 @@ public class LizardGame {
 		}
 
 		// If the column and row are within the grid's boundaries,
-		// return the cell located at that position in the grid.
+		// return the cell located at that position in the grid,
+		// creating it if this is the first time it is asked for.
 		// The grid is accessed with row and column indices.
-		return grid[row][col];
+		Cell cell = grid[row][col];
+		if (cell == null) {
+			cell = createCell(col, row);
+		}
+		return cell;
 	}
 
 	/**
@@ -255,8 +378,66 @@ public class LizardGame {
 		this.width = width;
 		this.height = height;
 		grid = new Cell[height][width];
+		template = null;
+		spatialIndex = null;
+		for (Lizard l : lizards) {
+			l.registryIndex = -1;
+		}
 		lizards.clear();
-		inputGrid();
+	}
+
+	/**
+	 * Returns true if the given location holds a wall. Unlike getCell, this does
+	 * not create a cell object for locations that have not been used yet.
+	 * 
+	 * @param col column of the cell
+	 * @param row row of the cell
+	 * @return true if there is a wall, false otherwise or if outside the grid
+	 */
+	public boolean hasWall(int col, int row) {
+		if (col < 0 || row < 0 || row >= getHeight() || col >= getWidth()) {
+			return false;
+		}
+		Cell cell = grid[row][col];
+		if (cell == null) {
+			return template != null && template.isWall(col, row);
+		}
+		return cell.getWall() != null;
+	}
+
+	/**
+	 * Returns true if the given location holds an exit. Unlike getCell, this does
+	 * not create a cell object for locations that have not been used yet.
+	 * 
+	 * @param col column of the cell
+	 * @param row row of the cell
+	 * @return true if there is an exit, false otherwise or if outside the grid
+	 */
+	public boolean hasExit(int col, int row) {
+		if (col < 0 || row < 0 || row >= getHeight() || col >= getWidth()) {
+			return false;
+		}
+		Cell cell = grid[row][col];
+		if (cell == null) {
+			return template != null && template.isExit(col, row);
+		}
+		return cell.getExit() != null;
+	}
+
+	/**
+	 * Returns true if a lizard is on the given location. Unlike getCell, this does
+	 * not create a cell object for locations that have not been used yet.
+	 * 
+	 * @param col column of the cell
+	 * @param row row of the cell
+	 * @return true if there is a lizard, false otherwise or if outside the grid
+	 */
+	public boolean hasLizard(int col, int row) {
+		if (col < 0 || row < 0 || row >= getHeight() || col >= getWidth()) {
+			return false;
+		}
+		Cell cell = grid[row][col];
+		return cell != null && cell.getLizard() != null;
 	}
 
 	/**
@@ -269,19 +450,25 @@ public class LizardGame {
 	 * @return true if the cell is available, false otherwise
 	 */
 	public boolean isAvailable(int col, int row) {
-	    // Retrieve the cell at the specified column and row.
-	    // This is done by calling the getCell method, which returns the cell if it's within the grid,
-	    // or null if the specified location is outside the grid boundaries.
-	    Cell cell = getCell(col, row);
+	    // Locations outside the grid are never available.
+	    if (col < 0 || row < 0 || row >= getHeight() || col >= getWidth()) {
+	        return false;
+	    }
+
+	    // A cell that has not been created yet cannot hold a lizard, so only the
+	    // template can make it unavailable. This avoids creating cells just to test them.
+	    Cell cell = grid[row][col];
+	    if (cell == null) {
+	        return template == null || !template.isWall(col, row);
+	    }
 
 	    // Check the availability of the cell.
-	    // Three conditions are checked:
-	    // 1. The cell is not null (meaning it's a valid cell within the grid).
-	    // 2. The cell does not contain a wall (cell.getWall() returns null if there's no wall).
-	    // 3. The cell does not contain a lizard (cell.getLizard() returns null if there's no lizard).
-	    // If all three conditions are true, the method returns true, indicating the cell is available for movement.
+	    // Two conditions are checked:
+	    // 1. The cell does not contain a wall (cell.getWall() returns null if there's no wall).
+	    // 2. The cell does not contain a lizard (cell.getLizard() returns null if there's no lizard).
+	    // If both conditions are true, the method returns true, indicating the cell is available for movement.
 	    // Otherwise, it returns false.
-	    return (cell != null && cell.getWall() == null && cell.getLizard() == null);
+	    return cell.getWall() == null && cell.getLizard() == null;
 	}
 
 
@@ -331,9 +518,123 @@ public class LizardGame {
 	 * @param dir the given direction to move the selected segment
 	 */
 	public void move(int col, int row, Direction dir) {
+		// Skip all timing work unless metrics were switched on
+		if (!GameMetrics.isEnabled()) {
+			applyMove(col, row, dir);
+			return;
+		}
+		GameMetrics.MOVES_ATTEMPTED.increment();
+		long start = System.nanoTime();
+		applyMove(col, row, dir);
+		GameMetrics.MOVE_LATENCY.record(System.nanoTime() - start);
+	}
+
+	/**
+	 * Packs a move into a single int for {@link #moveBatch(int[])}. Columns and
+	 * rows must be between 0 and 32767.
+	 * 
+	 * @param col the given column of a selected segment
+	 * @param row the given row of a selected segment
+	 * @param dir the given direction to move the selected segment
+	 * @return the packed move
+	 */
+	public static int packMove(int col, int row, Direction dir) {
+		return (row << 17) | (col << 2) | dir.ordinal();
+	}
+
+	/**
+	 * @param move a move packed with {@link #packMove(int, int, Direction)}
+	 * @return the column of the move
+	 */
+	public static int unpackCol(int move) {
+		return (move >>> 2) & 0x7FFF;
+	}
+
+	/**
+	 * @param move a move packed with {@link #packMove(int, int, Direction)}
+	 * @return the row of the move
+	 */
+	public static int unpackRow(int move) {
+		return move >>> 17;
+	}
+
+	/**
+	 * @param move a move packed with {@link #packMove(int, int, Direction)}
+	 * @return the direction of the move
+	 */
+	public static Direction unpackDirection(int move) {
+		return DIRECTIONS[move & 3];
+	}
+
+	/**
+	 * Applies a sequence of packed moves (see {@link #packMove(int, int, Direction)})
+	 * in one pass, each with the same rules as {@link #move(int, int, Direction)}.
+	 * Every move is checked against the grid as left by the moves before it.
+	 * <p>
+	 * No events are published while the batch runs. Once it is done the event bus
+	 * receives one {@link MovesBatchEvent}, a {@link LizardExitedEvent} for each
+	 * lizard that exited, a single {@link LizardCountEvent} if the number of
+	 * lizards changed, and a {@link GameWonEvent} if the batch took the last
+	 * lizard off the grid. The event holds copies of the moves and results.
+	 * Individual {@link LizardMovedEvent}s are not published for batched moves.
+	 * 
+	 * @param moves the packed moves, in order
+	 * @return for each move MOVE_REJECTED, MOVE_APPLIED or MOVE_EXITED
+	 */
+	public byte[] moveBatch(int[] moves) {
+		byte[] results = new byte[moves.length];
+		int before = lizards.size();
+		boolean metrics = GameMetrics.isEnabled();
+		long start = metrics ? System.nanoTime() : 0;
+
+		List<Lizard> exited;
+		batching = true;
+		try {
+			for (int i = 0; i < moves.length; i++) {
+				int move = moves[i];
+				results[i] = applyMove(unpackCol(move), unpackRow(move), unpackDirection(move));
+			}
+		} finally {
+			batching = false;
+			exited = batchExited.isEmpty() ? List.of() : new ArrayList<>(batchExited);
+			batchExited.clear();
+		}
+
+		if (metrics) {
+			GameMetrics.MOVES_ATTEMPTED.add(moves.length);
+			GameMetrics.MOVE_LATENCY.record(System.nanoTime() - start);
+		}
+
+		// Announce everything that happened during the batch at once
+		if (publishing()) {
+			eventBus.publish(new MovesBatchEvent(this, moves.clone(), results.clone()));
+			for (Lizard l : exited) {
+				eventBus.publish(new LizardExitedEvent(this, l));
+			}
+			if (lizards.size() != before) {
+				eventBus.publish(new LizardCountEvent(this, lizards.size()));
+			}
+			// Only a batch that took the last lizard off the grid wins the game
+			if (lizards.isEmpty() && !exited.isEmpty()) {
+				eventBus.publish(new GameWonEvent(this));
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Private helper method that carries out a move as described by
+	 * {@link #move(int, int, Direction)}.
+	 * 
+	 * @param col the given column of a selected segment
+	 * @param row the given row of a selected segment
+	 * @param dir the given direction to move the selected segment
+	 * @return MOVE_REJECTED, MOVE_APPLIED or MOVE_EXITED
+	 */
+	private byte applyMove(int col, int row, Direction dir) {
 		// Check if the given position is within the bounds of the grid
 		if (row < 0 || col < 0 || row >= getHeight() || col >= getWidth())
-			return; // Exit if the position is out of bounds
+			return MOVE_REJECTED; // Exit if the position is out of bounds
 
 		// Retrieve the cell at the given position and the lizard on that cell
 		Cell cell = getCell(col, row);
@@ -341,7 +642,7 @@ public class LizardGame {
 
 		// If there's no lizard at the given position, exit the method.
 		if (lizard == null) {
-			return; // Exit if there is no lizard at the cell
+			return MOVE_REJECTED; // Exit if there is no lizard at the cell
 		}
 
 		// Get the segment at the specified cell and the head and tail segments of the
@@ -355,9 +656,12 @@ public class LizardGame {
 		Cell movingToCell = getAdjacentCell(col, row, dir);
 		// Exit the method if the adjacent cell is not valid (out of bounds)
 		if (movingToCell == null) {
-			return;
+			return MOVE_REJECTED;
 		}
 
+		// Becomes true once the lizard has been shifted
+		boolean moved = false;
+
 		// Determine the type of movement based on the segment selected
 		if (selectedSegment == headSegment) {
 			// Determine the segment behind the head to check movement direction
@@ -369,13 +673,15 @@ public class LizardGame {
 				Cell newtailcell = getAdjacentCell(tailCell.getCol(), tailCell.getRow(), taildir);
 
 				// If the new tail cell is valid and available, move the lizard backward
-				if (newtailcell != null && isAvailable(newtailcell.getCol(), newtailcell.getRow())) {
+				if (newtailcell != null && canEnter(newtailcell)) {
 					moveBackward(lizard, newtailcell);
+					moved = true;
 				}
 			} else {
 				// If moving forward is possible (the adjacent cell is available), move forward
-				if (isAvailable(movingToCell.getCol(), movingToCell.getRow())) {
+				if (canEnter(movingToCell)) {
 					moveForward(lizard, movingToCell);
+					moved = true;
 				}
 			}
 		} else if (selectedSegment == tailSegment) {
@@ -388,14 +694,16 @@ public class LizardGame {
 				Cell newheadcell = getAdjacentCell(headcell.getCol(), headcell.getRow(), headdir);
 
 				// If moving forward is possible (the adjacent cell is available), move forward
-				if (newheadcell != null && isAvailable(newheadcell.getCol(), newheadcell.getRow())) {
+				if (newheadcell != null && canEnter(newheadcell)) {
 					moveForward(lizard, newheadcell);
+					moved = true;
 				}
 			} else {
 
 				// If the new tail cell is valid and available, move the lizard backward
-				if (isAvailable(movingToCell.getCol(), movingToCell.getRow())) {
+				if (canEnter(movingToCell)) {
 					moveBackward(lizard, movingToCell);
+					moved = true;
 				}
 			}
 		} else {
@@ -407,27 +715,67 @@ public class LizardGame {
 				Direction headdir = lizard.getHeadDirection();
 				Cell newheadcell = getAdjacentCell(headSegment.getCell().getCol(), headSegment.getCell().getRow(),
 						headdir);
-				if (newheadcell != null && isAvailable(newheadcell.getCol(), newheadcell.getRow())) {
+				if (newheadcell != null && canEnter(newheadcell)) {
 					moveForward(lizard, newheadcell);
+					moved = true;
 				}
 			} else if (movingToCell == segmentBehind.getCell()) {
 				// Move backward if possible
 				Direction taildir = lizard.getTailDirection();
 				Cell newtailcell = getAdjacentCell(tailSegment.getCell().getCol(), tailSegment.getCell().getRow(),
 						taildir);
-				if (newtailcell != null && isAvailable(newtailcell.getCol(), newtailcell.getRow())) {
+				if (newtailcell != null && canEnter(newtailcell)) {
 					moveBackward(lizard, newtailcell);
+					moved = true;
 				}
 			}
 		}
 
-		// Check and handle if any segment of the lizard has reached an exit
+		// Check and handle if any segment of the lizard has reached an exit. Only
+		// the two ends can be on a new cell, and the exit is a field of the cell.
+		byte result = moved ? MOVE_APPLIED : MOVE_REJECTED;
 		if (headSegment.getCell().getExit() != null || tailSegment.getCell().getExit() != null) {
 			removeLizard(lizard); // Remove the lizard if it reaches an exit
+			result = MOVE_EXITED;
+			if (batching) {
+				batchExited.add(lizard); // Announced when the batch ends
+			} else if (publishing()) {
+				eventBus.publish(new LizardExitedEvent(this, lizard));
+			}
+			if (GameMetrics.isEnabled()) {
+				GameMetrics.LIZARDS_EXITED.increment();
+			}
 		}
-		if (lizards.size() == 0) {
-			dialogListener.showDialog("You win!"); // Show win dialog if no lizards left
+		// The size of the lizard list is the count of lizards left
+		if (lizards.isEmpty() && publishing()) {
+			eventBus.publish(new GameWonEvent(this)); // Announce the win if no lizards left
 		}
+		return result;
+	}
+
+	/**
+	 * Private helper method that tells whether an event should be created and
+	 * published right now: someone must be listening and no batch may be running.
+	 * 
+	 * @return true to publish events, false otherwise
+	 */
+	private boolean publishing() {
+		return !batching && eventBus.hasSubscribers();
+	}
+
+	/**
+	 * Private helper method that checks whether a lizard may move into the given
+	 * cell, counting refusals when metrics are enabled.
+	 * 
+	 * @param cell the cell a lizard would move into
+	 * @return true if the cell is available, false otherwise
+	 */
+	private boolean canEnter(Cell cell) {
+		boolean available = isAvailable(cell.getCol(), cell.getRow());
+		if (!available && GameMetrics.isEnabled()) {
+			GameMetrics.MOVES_REJECTED_UNAVAILABLE.increment();
+		}
+		return available;
 	}
 
 	/**
@@ -441,13 +789,17 @@ public class LizardGame {
 	 */
 	private void moveForward(Lizard lizard, Cell moveHeadTowardCell) {
 		// Retrieve the list of all body segments of the lizard
-		ArrayList<BodySegment> segments = lizard.getSegments();
+		ArrayList<BodySegment> segments = lizard.segmentList();
 
 		// Obtain the tail segment of the lizard
 		BodySegment tail = lizard.getTailSegment();
 
 		// Remove the lizard from its current tail cell
 		tail.getCell().removeLizard();
+		if (spatialIndex != null) {
+			spatialIndex.remove(lizard, tail.getCell().getCol(), tail.getCell().getRow());
+			spatialIndex.add(lizard, moveHeadTowardCell.getCol(), moveHeadTowardCell.getRow());
+		}
 
 		int i;
 		// Iterate over all segments except the head segment
@@ -464,6 +816,13 @@ public class LizardGame {
 		// The head moves to the new cell specified in the method's argument.
 		BodySegment head = segments.get(i);
 		head.setCell(moveHeadTowardCell);
+		if (publishing()) {
+			eventBus.publish(new LizardMovedEvent(this, lizard, true));
+		}
+
+		if (GameMetrics.isEnabled()) {
+			GameMetrics.MOVES_APPLIED.increment();
+		}
 	}
 
 	/**
@@ -477,13 +836,17 @@ public class LizardGame {
 	 */
 	private void moveBackward(Lizard lizard, Cell moveTailTowardCell) {
 		// Retrieve the list of all body segments of the lizard
-		ArrayList<BodySegment> segments = lizard.getSegments();
+		ArrayList<BodySegment> segments = lizard.segmentList();
 
 		// Obtain the head segment of the lizard
 		BodySegment head = lizard.getHeadSegment();
 
 		// Remove the lizard from its current head cell
 		head.getCell().removeLizard();
+		if (spatialIndex != null) {
+			spatialIndex.remove(lizard, head.getCell().getCol(), head.getCell().getRow());
+			spatialIndex.add(lizard, moveTailTowardCell.getCol(), moveTailTowardCell.getRow());
+		}
 
 		int i;
 		// Iterate over all segments except the tail segment
@@ -500,17 +863,73 @@ public class LizardGame {
 		// The tail moves to the new cell specified in the method's argument.
 		BodySegment tail = segments.get(i);
 		tail.setCell(moveTailTowardCell);
+		if (publishing()) {
+			eventBus.publish(new LizardMovedEvent(this, lizard, false));
+		}
+
+		if (GameMetrics.isEnabled()) {
+			GameMetrics.MOVES_APPLIED.increment();
+		}
 	}
 
 	/**
-	 * Sets callback listeners for game events.
+	 * Sets callback listeners for game events. The dialog listener is shown "You
+	 * win!" when the puzzle is solved and the score listener receives the number
+	 * of lizards whenever it changes. Either may be null. Listeners from a previous
+	 * call are replaced; subscribers added directly to the event bus are kept.
 	 * 
 	 * @param dialogListener listener for creating a user dialog
 	 * @param scoreListener  listener for updating the player's score
 	 */
 	public void setListeners(ShowDialogListener dialogListener, ScoreUpdateListener scoreListener) {
-		this.dialogListener = dialogListener;
-		this.scoreListener = scoreListener;
+		if (listenerAdapter != null) {
+			eventBus.unsubscribe(listenerAdapter);
+			listenerAdapter = null;
+		}
+		if (dialogListener == null && scoreListener == null) {
+			return;
+		}
+		listenerAdapter = new GameEventListener() {
+			@Override
+			public void onEvent(GameEvent event) {
+				if (event instanceof GameWonEvent && dialogListener != null) {
+					dialogListener.showDialog("You win!");
+				} else if (event instanceof LizardCountEvent && scoreListener != null) {
+					scoreListener.updateScore(((LizardCountEvent) event).getCount());
+				}
+			}
+		};
+		eventBus.subscribe(listenerAdapter);
+	}
+
+	/**
+	 * Gets a spatial index over the segments of all lizards on the grid, for range
+	 * and nearest-lizard queries. The index is built on the first call and then
+	 * kept up to date as lizards are added, removed and moved, so games that
+	 * never ask for it pay nothing. Resetting the grid discards it.
+	 * 
+	 * @return the spatial index of this game
+	 */
+	public SpatialLizardIndex getSpatialIndex() {
+		if (spatialIndex == null) {
+			spatialIndex = new SpatialLizardIndex(width, height);
+			for (Lizard l : lizards) {
+				for (BodySegment seg : l.segmentList()) {
+					spatialIndex.add(l, seg.getCell().getCol(), seg.getCell().getRow());
+				}
+			}
+		}
+		return spatialIndex;
+	}
+
+	/**
+	 * Gets the bus on which this game publishes its events. Subscribe to it to
+	 * follow moves, exits, wins and level loads.
+	 * 
+	 * @return the game's event bus
+	 */
+	public GameEventBus getEventBus() {
+		return eventBus;
 	}
 
 	/**
@@ -522,34 +941,154 @@ public class LizardGame {
 		GameFileUtil.load(filePath, this);
 	}
 
+	/**
+	 * Loads the given level. The grid is reset to the template's size, its walls
+	 * and exits are taken from the template as cells are needed and the lizards
+	 * are placed at their starting positions.
+	 * 
+	 * @param template the level to load
+	 */
+	public void load(LevelTemplate template) {
+		resetGrid(template.getWidth(), template.getHeight());
+		this.template = template;
+		for (int i = 0; i < template.getLizardCount(); i++) {
+			addLizard(buildLizard(template.getLizardCells(i)));
+		}
+	}
+
+	/**
+	 * Brings the game in line with an edited version of its level, changing only
+	 * what differs instead of loading the level from scratch. Cells that have not
+	 * been created yet simply take their walls and exits from the new template;
+	 * created cells are updated where their wall or exit changed. Lizards whose
+	 * cells match a lizard of the new level exactly are kept, the others are
+	 * removed, and lizards of the new level that are not on the grid are added.
+	 * <p>
+	 * If the size of the level changed, the level is loaded from scratch as by
+	 * {@link #load(LevelTemplate)}. A single {@link LizardCountEvent} is published
+	 * if the number of lizards changed.
+	 * 
+	 * @param edited the edited level
+	 * @return number of cells whose wall or exit changed plus number of lizards
+	 *         added or removed, or -1 if the level was loaded from scratch
+	 */
+	public int applyLevelEdit(LevelTemplate edited) {
+		if (edited.getWidth() != width || edited.getHeight() != height) {
+			load(edited);
+			return -1;
+		}
+		int changes = 0;
+
+		// Only cells that already exist hold their own walls and exits
+		for (int row = 0; row < height; row++) {
+			for (int col = 0; col < width; col++) {
+				Cell cell = grid[row][col];
+				if (cell == null) {
+					continue;
+				}
+				boolean wall = edited.isWall(col, row);
+				boolean exit = !wall && edited.isExit(col, row);
+				boolean changed = false;
+				if (wall != (cell.getWall() != null)) {
+					cell.placeWall(wall ? new Wall(cell) : null);
+					changed = true;
+				}
+				if (exit != (cell.getExit() != null)) {
+					cell.placeExit(exit ? new Exit(cell) : null);
+					changed = true;
+				}
+				if (changed) {
+					changes++;
+				}
+			}
+		}
+		template = edited;
+
+		// Match lizards by their cells from tail to head
+		HashMap<String, ArrayList<Lizard>> current = new HashMap<>();
+		for (Lizard l : lizards) {
+			List<BodySegment> segments = l.segmentList();
+			int[] cells = new int[segments.size()];
+			for (int i = 0; i < cells.length; i++) {
+				Cell cell = segments.get(i).getCell();
+				cells[i] = cell.getRow() * width + cell.getCol();
+			}
+			current.computeIfAbsent(Arrays.toString(cells), k -> new ArrayList<>()).add(l);
+		}
+		ArrayList<int[]> added = new ArrayList<>();
+		for (int[] cells : edited.getAllLizardCells()) {
+			ArrayList<Lizard> same = current.get(Arrays.toString(cells));
+			if (same != null && !same.isEmpty()) {
+				same.remove(same.size() - 1);
+			} else {
+				added.add(cells);
+			}
+		}
+
+		// Remove first so that added lizards may take over freed cells
+		int before = lizards.size();
+		for (ArrayList<Lizard> stale : current.values()) {
+			for (Lizard l : stale) {
+				for (BodySegment segment : l.segmentList()) {
+					segment.getCell().removeLizard();
+				}
+				unregister(l);
+				changes++;
+			}
+		}
+		for (int[] cells : added) {
+			register(buildLizard(cells));
+			changes++;
+		}
+		if (lizards.size() != before && publishing()) {
+			eventBus.publish(new LizardCountEvent(this, lizards.size()));
+		}
+		return changes;
+	}
+
+	/**
+	 * Private helper method that creates a lizard on the given cells, without
+	 * adding it to the game.
+	 * 
+	 * @param cells indices of the form row * width + col, from tail to head
+	 * @return the new lizard
+	 */
+	private Lizard buildLizard(int[] cells) {
+		Lizard lizard = new Lizard();
+		ArrayList<BodySegment> segments = new ArrayList<>();
+		for (int index : cells) {
+			segments.add(new BodySegment(lizard, getCell(index % width, index / width)));
+		}
+		lizard.setSegments(segments);
+		return lizard;
+	}
+
+	/**
+	 * Gets the shared level this game was loaded from.
+	 * 
+	 * @return the template, or null if the game was not loaded from one or has
+	 *         been reset since
+	 */
+	public LevelTemplate getTemplate() {
+		return template;
+	}
+
 	/**
 	 * Provides a string representation of the current state of the LizardGame grid.
 	 * This representation includes the dimensions of the grid, the layout of each
 	 * cell (including walls, exits, and lizards), and a list of all lizards
 	 * currently on the grid.
 	 *
+	 * <p>
+	 * The text is built in a single pass by {@link GameTextWriter}; use
+	 * {@link GameTextWriter#writeDebug(LizardGame, Appendable)} to stream it to a
+	 * Writer instead.
+	 *
 	 * @return A string that visually represents the grid and the state of each
 	 *         cell, as well as a list of all lizards in the game.
 	 */
 	@Override
 	public String toString() {
-		String str = "---------- GRID ----------\n";
-		str += "Dimensions:\n";
-		str += getWidth() + " " + getHeight() + "\n";
-		str += "Layout:\n";
-		for (int y = 0; y < getHeight(); y++) {
-			if (y > 0) {
-				str += "\n";
-			}
-			for (int x = 0; x < getWidth(); x++) {
-				str += getCell(x, y);
-			}
-		}
-		str += "\nLizards:\n";
-		for (Lizard l : getLizards()) {
-			str += l;
-		}
-		str += "\n--------------------------\n";
-		return str;
+		return GameTextWriter.toDebugString(this);
 	}
 }
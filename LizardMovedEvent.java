@@ -0,0 +1,39 @@
+package api;
+
+import hw3.Lizard;
+import hw3.LizardGame;
+
+/**
+ * Raised after a lizard moves one cell forward or backward.
+ */
+public class LizardMovedEvent extends GameEvent {
+	private Lizard lizard;
+	private boolean forward;
+
+	/**
+	 * Creates a new move event.
+	 * 
+	 * @param game    the game that raised the event
+	 * @param lizard  the lizard that moved
+	 * @param forward true if the lizard moved head first, false if tail first
+	 */
+	public LizardMovedEvent(LizardGame game, Lizard lizard, boolean forward) {
+		super(game);
+		this.lizard = lizard;
+		this.forward = forward;
+	}
+
+	/**
+	 * @return the lizard that moved
+	 */
+	public Lizard getLizard() {
+		return lizard;
+	}
+
+	/**
+	 * @return true if the lizard moved head first, false if tail first
+	 */
+	public boolean isForward() {
+		return forward;
+	}
+}
@@ -0,0 +1,120 @@
+package hw3;
+
+/**
+ * The outcome of one match of a {@link Tournament}: one agent playing one
+ * level.
+ *
+ * @author Muhammad Blal
+ */
+public class MatchResult {
+	/**
+	 * Column names of {@link #toCsv()}, in order.
+	 */
+	public static final String CSV_HEADER = "agent,level,outcome,moves,millis,nodes";
+
+	/**
+	 * Outcome of a match where the agent won the level.
+	 */
+	public static final String WON = "won";
+
+	private final String agent;
+	private final String level;
+	private final String outcome;
+	private final int moves;
+	private final long millis;
+	private final long nodes;
+
+	/**
+	 * Constructs a result.
+	 *
+	 * @param agent   name of the agent
+	 * @param level   location of the level file
+	 * @param outcome WON, or why the match ended without a win
+	 * @param moves   number of moves played
+	 * @param millis  wall-clock time of the match
+	 * @param nodes   number of search nodes the agent expanded
+	 */
+	public MatchResult(String agent, String level, String outcome, int moves, long millis, long nodes) {
+		this.agent = agent;
+		this.level = level;
+		this.outcome = outcome;
+		this.moves = moves;
+		this.millis = millis;
+		this.nodes = nodes;
+	}
+
+	/**
+	 * @return name of the agent
+	 */
+	public String getAgent() {
+		return agent;
+	}
+
+	/**
+	 * @return location of the level file
+	 */
+	public String getLevel() {
+		return level;
+	}
+
+	/**
+	 * @return WON, or why the match ended without a win
+	 */
+	public String getOutcome() {
+		return outcome;
+	}
+
+	/**
+	 * @return true if the agent won the level
+	 */
+	public boolean isWon() {
+		return WON.equals(outcome);
+	}
+
+	/**
+	 * @return number of moves played
+	 */
+	public int getMoves() {
+		return moves;
+	}
+
+	/**
+	 * @return wall-clock time of the match, in milliseconds
+	 */
+	public long getMillis() {
+		return millis;
+	}
+
+	/**
+	 * @return number of search nodes the agent expanded
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return the result as one CSV row matching {@link #CSV_HEADER}
+	 */
+	public String toCsv() {
+		return quote(agent) + "," + quote(level) + "," + quote(outcome) + "," + moves + "," + millis + "," + nodes;
+	}
+
+	@Override
+	public String toString() {
+		return agent + " on " + level + ": " + outcome + " in " + moves + " moves, " + millis + " ms, " + nodes
+				+ " nodes";
+	}
+
+	/**
+	 * Helper method that quotes a CSV field if needed.
+	 *
+	 * @param field the field
+	 * @return the field as it appears in CSV
+	 */
+	static String quote(String field) {
+		if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0) {
+			return field;
+		}
+		return "\"" + field.replace("\"", "\"\"") + "\"";
+	}
+}
@@ -0,0 +1,398 @@
+package hw3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An anytime player for levels too large to search exhaustively, using Monte
+ * Carlo tree search. For each decision, worker threads share one tree: each
+ * walks down it by the UCT rule, adds one node, plays a quick random game from
+ * there on its own {@link SolverBoard} and adds the outcome to every node on
+ * the way. A thread marks the branches it is in with a virtual loss, so other
+ * threads spread out instead of all following it. When the time budget is
+ * spent the most visited move is played.
+ * <p>
+ * Rollouts copy the position into a board each thread reuses, and generate and
+ * apply moves into arrays allocated once, so a playout allocates nothing.
+ * Playouts lean towards exits: of two random moves, the one whose new cell is
+ * closer to an exit is taken. A game that is not finished scores by lizards
+ * that exited plus how close the others are to an exit.
+ * <p>
+ * Usage: {@code MctsAgent level [millisPerMove] [threads] [maxMoves]} plays a
+ * level and prints the moves and playouts per second per core.
+ *
+ * @author Muhammad Blal
+ */
+public class MctsAgent {
+	/**
+	 * Weight of exploration in the UCT rule.
+	 */
+	private static final double EXPLORATION = Math.sqrt(2);
+
+	/**
+	 * Maximum number of moves of a random playout.
+	 */
+	private static final int ROLLOUT_DEPTH = 200;
+
+	/**
+	 * Value of a lizard at distance 0 from an exit, relative to one that exited.
+	 */
+	private static final double PROGRESS_WEIGHT = 0.5;
+
+	private final int threads;
+	private final long millisPerMove;
+	private final ExecutorService pool;
+
+	private final LongAdder playouts = new LongAdder();
+	private volatile double lastSeconds;
+
+	/**
+	 * Constructs an agent.
+	 *
+	 * @param threads       number of threads running playouts
+	 * @param millisPerMove time budget per decision, in milliseconds
+	 */
+	public MctsAgent(int threads, long millisPerMove) {
+		this.threads = threads;
+		this.millisPerMove = millisPerMove;
+		pool = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "lizard-mcts");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Runs the agent from the command line.
+	 *
+	 * @param args level file, then optional time per move, threads and move limit
+	 * @throws InterruptedException if interrupted while thinking
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		long millis = args.length > 1 ? Long.parseLong(args[1]) : 200;
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		int maxMoves = args.length > 3 ? Integer.parseInt(args[3]) : 500;
+		LizardGame game = new LizardGame(0, 0);
+		GameFileUtil.load(args[0], game);
+
+		MctsAgent agent = new MctsAgent(threads, millis);
+		int moves = 0;
+		long total = 0;
+		double seconds = 0;
+		while (!game.getLizards().isEmpty() && moves < maxMoves) {
+			int move = agent.chooseMove(game);
+			if (move < 0) {
+				break;
+			}
+			game.move(LizardGame.unpackCol(move), LizardGame.unpackRow(move), LizardGame.unpackDirection(move));
+			moves++;
+			total += agent.getLastPlayouts();
+			seconds += agent.lastSeconds;
+			System.out.printf("%4d (%d,%d) %-5s lizards=%d playouts/s/core=%.0f%n", moves, LizardGame.unpackCol(move),
+					LizardGame.unpackRow(move), LizardGame.unpackDirection(move), game.getLizards().size(),
+					agent.getPlayoutsPerSecondPerCore());
+		}
+		System.out.printf("%s after %d moves, %.0f playouts/s/core on %d threads%n",
+				game.getLizards().isEmpty() ? "Solved" : "Not solved", moves, total / seconds / threads, threads);
+		agent.shutdown();
+	}
+
+	/**
+	 * Chooses a move for the current position of a game, thinking for the time
+	 * budget.
+	 *
+	 * @param game the game
+	 * @return the move packed with
+	 *         {@link LizardGame#packMove(int, int, api.Direction)}, or -1 if there
+	 *         is no legal move
+	 * @throws InterruptedException if interrupted while thinking
+	 */
+	public int chooseMove(LizardGame game) throws InterruptedException {
+		SolverBoard rootBoard = SolverBoard.of(game);
+		int[] distance = BitBoard.distanceField(BitBoard.exits(game), BitBoard.walls(game).invert());
+		Node root = new Node(rootBoard, new int[rootBoard.maxMoves()]);
+		if (root.moves.length == 0) {
+			return -1;
+		}
+
+		playouts.reset();
+		long start = System.nanoTime();
+		long deadline = start + millisPerMove * 1_000_000;
+		List<Callable<Void>> workers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			long seed = start + t;
+			workers.add(() -> {
+				new Worker(root, rootBoard, distance, seed).run(deadline);
+				return null;
+			});
+		}
+		for (Future<Void> f : pool.invokeAll(workers)) {
+			try {
+				f.get();
+			} catch (ExecutionException e) {
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+		lastSeconds = (System.nanoTime() - start) / 1e9;
+
+		// Play the move tried most often, the most robust choice
+		int best = 0;
+		synchronized (root) {
+			for (int i = 1; i < root.moves.length; i++) {
+				if (root.visits[i] > root.visits[best]) {
+					best = i;
+				}
+			}
+		}
+		return rootBoard.toGameMove(root.moves[best]);
+	}
+
+	/**
+	 * @return number of playouts of the last decision
+	 */
+	public long getLastPlayouts() {
+		return playouts.sum();
+	}
+
+	/**
+	 * @return playouts per second per thread of the last decision
+	 */
+	public double getPlayoutsPerSecondPerCore() {
+		return lastSeconds == 0 ? 0 : playouts.sum() / lastSeconds / threads;
+	}
+
+	/**
+	 * Stops the worker threads.
+	 */
+	public void shutdown() {
+		pool.shutdownNow();
+	}
+
+	/**
+	 * A position in the tree with the statistics of its moves. All fields but
+	 * moves are guarded by the node.
+	 */
+	private static class Node {
+		private final int[] moves;
+		private final Node[] children;
+		private final int[] visits;
+		private final double[] value;
+
+		/**
+		 * Number of threads currently below each move.
+		 */
+		private final int[] virtual;
+
+		/**
+		 * Number of times a move was chosen here, including those still running.
+		 */
+		private int total;
+
+		private Node(SolverBoard board, int[] buffer) {
+			int n = board.moves(buffer);
+			moves = Arrays.copyOf(buffer, n);
+			children = new Node[n];
+			visits = new int[n];
+			value = new double[n];
+			virtual = new int[n];
+		}
+
+		/**
+		 * Chooses a move by the UCT rule, counting threads still below a move as
+		 * losses, and marks it as visited by one more thread.
+		 *
+		 * @return index of the move
+		 */
+		private synchronized int select() {
+			int best = 0;
+			double bestScore = Double.NEGATIVE_INFINITY;
+			double logTotal = Math.log(total + 1);
+			for (int i = 0; i < moves.length; i++) {
+				int n = visits[i] + virtual[i];
+				if (n == 0) {
+					best = i;
+					break;
+				}
+				double score = value[i] / n + EXPLORATION * Math.sqrt(logTotal / n);
+				if (score > bestScore) {
+					best = i;
+					bestScore = score;
+				}
+			}
+			virtual[best]++;
+			total++;
+			return best;
+		}
+
+		/**
+		 * Records the outcome of a playout that went through a move.
+		 *
+		 * @param i      index of the move
+		 * @param reward outcome between 0 and 1
+		 */
+		private synchronized void update(int i, double reward) {
+			virtual[i]--;
+			visits[i]++;
+			value[i] += reward;
+		}
+
+		/**
+		 * Gets the node after a move, creating it from the board if needed.
+		 *
+		 * @param i      index of the move
+		 * @param board  the position after the move
+		 * @param buffer scratch array for moves
+		 * @return the child, or null if it was just created
+		 */
+		private synchronized Node childOrExpand(int i, SolverBoard board, int[] buffer) {
+			if (children[i] == null) {
+				children[i] = new Node(board, buffer);
+				return null;
+			}
+			return children[i];
+		}
+	}
+
+	/**
+	 * One thread's playouts, with everything it needs allocated up front.
+	 */
+	private class Worker {
+		private final Node root;
+		private final SolverBoard rootBoard;
+		private final SolverBoard board;
+		private final int[] distance;
+		private final int maxDistance;
+		private final int[] buffer;
+		private final SplittableRandom random;
+		private final int lizards;
+
+		/**
+		 * The nodes and moves of the current walk down the tree.
+		 */
+		private final ArrayList<Node> pathNodes = new ArrayList<>();
+		private int[] pathMoves = new int[64];
+
+		private Worker(Node root, SolverBoard rootBoard, int[] distance, long seed) {
+			this.root = root;
+			this.rootBoard = rootBoard;
+			this.distance = distance;
+			int max = 0;
+			for (int d : distance) {
+				max = Math.max(max, d);
+			}
+			maxDistance = max;
+			board = rootBoard.copy();
+			buffer = new int[rootBoard.maxMoves()];
+			random = new SplittableRandom(seed);
+			lizards = rootBoard.remaining();
+		}
+
+		private void run(long deadline) {
+			while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+				playout();
+				playouts.increment();
+			}
+		}
+
+		/**
+		 * Walks down the tree, adds a node, plays randomly to the end or the depth
+		 * limit and records the outcome.
+		 */
+		private void playout() {
+			board.copyFrom(rootBoard);
+			pathNodes.clear();
+			Node node = root;
+			while (node != null && node.moves.length > 0 && !board.isSolved()) {
+				int i = node.select();
+				if (pathNodes.size() == pathMoves.length) {
+					pathMoves = Arrays.copyOf(pathMoves, pathMoves.length * 2);
+				}
+				pathMoves[pathNodes.size()] = i;
+				pathNodes.add(node);
+				board.apply(node.moves[i]);
+				node = node.childOrExpand(i, board, buffer);
+			}
+
+			int length = pathNodes.size() + rollout();
+			double reward = evaluate(length);
+			for (int k = 0; k < pathNodes.size(); k++) {
+				pathNodes.get(k).update(pathMoves[k], reward);
+			}
+		}
+
+		/**
+		 * Plays moves leaning towards exits until the level is solved, no move is
+		 * left or the depth limit is reached.
+		 *
+		 * @return number of moves played
+		 */
+		private int rollout() {
+			int step = 0;
+			while (step < ROLLOUT_DEPTH && !board.isSolved()) {
+				int n = board.moves(buffer);
+				if (n == 0) {
+					break;
+				}
+				int a = buffer[random.nextInt(n)];
+				int b = buffer[random.nextInt(n)];
+				board.apply(target(a) <= target(b) ? a : b);
+				step++;
+			}
+			return step;
+		}
+
+		/**
+		 * Gets how far the cell a move goes into is from an exit.
+		 *
+		 * @param move a board move
+		 * @return the distance, larger than any other for unreachable cells
+		 */
+		private int target(int move) {
+			int lizard = move >>> 3;
+			int from = (move & SolverBoard.BACKWARD) != 0 ? board.tail(lizard) : board.head(lizard);
+			int d = distance[board.neighbor(from, move & 3)];
+			return d < 0 ? Integer.MAX_VALUE : d;
+		}
+
+		/**
+		 * Scores the position left by a playout: one point per lizard that exited
+		 * and up to PROGRESS_WEIGHT for each other lizard by how close its nearer
+		 * end is to an exit, scaled to at most 1 - PROGRESS_WEIGHT. A solved level
+		 * scores above that, up to 1 for the shortest playouts.
+		 *
+		 * @param length number of moves of the playout
+		 * @return the score between 0 and 1
+		 */
+		private double evaluate(int length) {
+			if (board.isSolved()) {
+				return 1 - PROGRESS_WEIGHT * length / (length + ROLLOUT_DEPTH);
+			}
+			double score = lizards - board.remaining();
+			for (int i = 0; i < board.getLizardSlots(); i++) {
+				if (board.isAlive(i)) {
+					int d = Math.min(reach(board.head(i)), reach(board.tail(i)));
+					score += PROGRESS_WEIGHT * (1 - (double) d / (maxDistance + 1));
+				}
+			}
+			return (1 - PROGRESS_WEIGHT) * score / lizards;
+		}
+
+		/**
+		 * Private helper method that gives the distance from a cell to an exit.
+		 *
+		 * @param cell index of the cell
+		 * @return the distance, or one more than the largest for unreachable cells
+		 */
+		private int reach(int cell) {
+			return distance[cell] < 0 ? maxDistance + 1 : distance[cell];
+		}
+	}
+}
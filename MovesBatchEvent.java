@@ -0,0 +1,40 @@
+package api;
+
+import hw3.LizardGame;
+
+/**
+ * Raised once after a batch of moves has been applied with
+ * {@link LizardGame#moveBatch(int[])}, in place of a move event per lizard step.
+ */
+public class MovesBatchEvent extends GameEvent {
+	private int[] moves;
+	private byte[] results;
+
+	/**
+	 * Creates a new batch event.
+	 * 
+	 * @param game    the game that raised the event
+	 * @param moves   the packed moves of the batch
+	 * @param results the result of each move
+	 */
+	public MovesBatchEvent(LizardGame game, int[] moves, byte[] results) {
+		super(game);
+		this.moves = moves;
+		this.results = results;
+	}
+
+	/**
+	 * @return the packed moves of the batch; do not modify
+	 */
+	public int[] getMoves() {
+		return moves;
+	}
+
+	/**
+	 * @return MOVE_REJECTED, MOVE_APPLIED or MOVE_EXITED for each move; do not
+	 *         modify
+	 */
+	public byte[] getResults() {
+		return results;
+	}
+}
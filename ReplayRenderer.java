@@ -0,0 +1,267 @@
+package ui;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+
+import api.Direction;
+import hw3.GameFileUtil;
+import hw3.LevelTemplate;
+import hw3.LizardGame;
+import hw3.Solver;
+import hw3.SolverResult;
+
+// Renders a level and a journal of moves to images without a display, using the
+// same sprites as GridViz. Frame 0 is the level as loaded and frame i the grid
+// after move i. Frames are drawn and encoded in parallel, one task per frame,
+// from snapshots taken while replaying the moves in order.
+//
+// Usage: ReplayRenderer level (journal | --solve) outDir [--scale n] [--threads n]
+// [--gif file] [--delay ms]. A journal has one move per line, "col row DIRECTION",
+// and lines starting with # are ignored.
+public class ReplayRenderer {
+	private static final int DEFAULT_SCALE = 30;
+	private static final int DEFAULT_DELAY_MILLIS = 250;
+	private final GridPainter painter;
+	private final int scale;
+
+	public ReplayRenderer(GridPainter painter, int scale) {
+		this.painter = painter;
+		this.scale = scale;
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		System.setProperty("java.awt.headless", "true");
+		int scale = DEFAULT_SCALE;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int delay = DEFAULT_DELAY_MILLIS;
+		String gif = null;
+		List<String> positional = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "--scale":
+				scale = Integer.parseInt(args[++i]);
+				break;
+			case "--threads":
+				threads = Integer.parseInt(args[++i]);
+				break;
+			case "--gif":
+				gif = args[++i];
+				break;
+			case "--delay":
+				delay = Integer.parseInt(args[++i]);
+				break;
+			default:
+				positional.add(args[i]);
+			}
+		}
+		if (positional.size() < 3) {
+			System.err.println("usage: ReplayRenderer level (journal | --solve) outDir [--scale n] [--threads n]"
+					+ " [--gif file] [--delay ms]");
+			return;
+		}
+
+		LizardGame game = new LizardGame(0, 0);
+		GameFileUtil.load(positional.get(0), game);
+		if (game.getTemplate() == null) {
+			throw new IOException("cannot read level " + positional.get(0));
+		}
+		int[] moves;
+		if (positional.get(1).equals("--solve")) {
+			SolverResult result = new Solver().solve(game);
+			moves = result.getMoves();
+		} else {
+			moves = readJournal(positional.get(1));
+		}
+
+		ReplayRenderer renderer = new ReplayRenderer(new GridPainter(), scale);
+		long start = System.nanoTime();
+		List<LevelTemplate> frames = renderer.replay(game, moves);
+		List<File> files = renderer.writePngs(frames, new File(positional.get(2)), threads);
+		if (gif != null) {
+			renderer.writeGif(frames, new File(gif), delay, threads);
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.err.printf(Locale.ROOT, "%d frames in %.2f s (%.1f frames/s) on %d threads%n", files.size(), seconds,
+				files.size() / seconds, threads);
+	}
+
+	// One move per line as "col row DIRECTION"
+	public static int[] readJournal(String filePath) throws IOException {
+		List<String> lines = Files.readAllLines(Paths.get(filePath), StandardCharsets.UTF_8);
+		int[] moves = new int[lines.size()];
+		int count = 0;
+		for (String line : lines) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] parts = line.split("[\\s,]+");
+			if (parts.length != 3) {
+				throw new IOException("bad journal line: " + line);
+			}
+			try {
+				moves[count++] = LizardGame.packMove(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+						Direction.valueOf(parts[2].toUpperCase(Locale.ROOT)));
+			} catch (IllegalArgumentException e) {
+				throw new IOException("bad journal line: " + line, e);
+			}
+		}
+		return Arrays.copyOf(moves, count);
+	}
+
+	// Plays the moves on the game and returns a snapshot before the first move and
+	// after each one. Rejected moves still make a frame, so frames line up with
+	// journal lines.
+	public List<LevelTemplate> replay(LizardGame game, int[] moves) {
+		List<LevelTemplate> frames = new ArrayList<>(moves.length + 1);
+		frames.add(LevelTemplate.snapshot(game));
+		for (int move : moves) {
+			game.moveBatch(new int[] { move });
+			frames.add(LevelTemplate.snapshot(game));
+		}
+		return frames;
+	}
+
+	public BufferedImage render(LizardGame game) {
+		BufferedImage image = new BufferedImage(game.getWidth() * scale, game.getHeight() * scale,
+				BufferedImage.TYPE_INT_RGB);
+		Graphics2D g2 = image.createGraphics();
+		try {
+			g2.setColor(Color.BLACK);
+			g2.fillRect(0, 0, image.getWidth(), image.getHeight());
+			painter.paint(g2, game, scale);
+		} finally {
+			g2.dispose();
+		}
+		return image;
+	}
+
+	public BufferedImage render(LevelTemplate frame) {
+		return render(new LizardGame(frame));
+	}
+
+	// Writes frame_00000.png, frame_00001.png, ... into the directory
+	public List<File> writePngs(List<LevelTemplate> frames, File dir, int threads)
+			throws IOException, InterruptedException {
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("cannot create " + dir);
+		}
+		List<File> files = new ArrayList<>();
+		for (int i = 0; i < frames.size(); i++) {
+			files.add(new File(dir, String.format(Locale.ROOT, "frame_%05d.png", i)));
+		}
+		inParallel(frames.size(), threads, i -> {
+			if (!ImageIO.write(render(frames.get(i)), "png", files.get(i))) {
+				throw new IOException("no PNG writer");
+			}
+			return null;
+		});
+		return files;
+	}
+
+	// Frames are drawn in parallel, then appended to the animation in order
+	public void writeGif(List<LevelTemplate> frames, File file, int delayMillis, int threads)
+			throws IOException, InterruptedException {
+		List<BufferedImage> images = inParallel(frames.size(), threads, i -> render(frames.get(i)));
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("gif").next();
+		Files.deleteIfExists(file.toPath());
+		try (ImageOutputStream out = ImageIO.createImageOutputStream(file)) {
+			writer.setOutput(out);
+			writer.prepareWriteSequence(null);
+			for (BufferedImage image : images) {
+				writer.writeToSequence(new IIOImage(image, null, gifMetadata(writer, image, delayMillis)), null);
+			}
+			writer.endWriteSequence();
+		} finally {
+			writer.dispose();
+		}
+	}
+
+	private static IIOMetadata gifMetadata(ImageWriter writer, BufferedImage image, int delayMillis)
+			throws IOException {
+		IIOMetadata metadata = writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(image),
+				null);
+		String format = metadata.getNativeMetadataFormatName();
+		IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(format);
+
+		IIOMetadataNode control = child(root, "GraphicControlExtension");
+		control.setAttribute("disposalMethod", "none");
+		control.setAttribute("userInputFlag", "FALSE");
+		control.setAttribute("transparentColorFlag", "FALSE");
+		control.setAttribute("delayTime", Integer.toString(delayMillis / 10));
+		control.setAttribute("transparentColorIndex", "0");
+
+		// Loop forever
+		IIOMetadataNode extension = new IIOMetadataNode("ApplicationExtension");
+		extension.setAttribute("applicationID", "NETSCAPE");
+		extension.setAttribute("authenticationCode", "2.0");
+		extension.setUserObject(new byte[] { 1, 0, 0 });
+		child(root, "ApplicationExtensions").appendChild(extension);
+
+		metadata.setFromTree(format, root);
+		return metadata;
+	}
+
+	private static IIOMetadataNode child(IIOMetadataNode root, String name) {
+		for (int i = 0; i < root.getLength(); i++) {
+			if (root.item(i).getNodeName().equals(name)) {
+				return (IIOMetadataNode) root.item(i);
+			}
+		}
+		IIOMetadataNode node = new IIOMetadataNode(name);
+		root.appendChild(node);
+		return node;
+	}
+
+	private interface FrameTask<T> {
+		T run(int frame) throws IOException;
+	}
+
+	private static <T> List<T> inParallel(int count, int threads, FrameTask<T> task)
+			throws IOException, InterruptedException {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<T>> futures = new ArrayList<>();
+			for (int i = 0; i < count; i++) {
+				int frame = i;
+				futures.add(pool.submit(() -> task.run(frame)));
+			}
+			List<T> results = new ArrayList<>();
+			for (Future<T> f : futures) {
+				try {
+					results.add(f.get());
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof IOException) {
+						throw (IOException) e.getCause();
+					}
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+			return results;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,245 @@
+package hw3;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+import api.BodySegment;
+import api.Cell;
+import api.Direction;
+
+/**
+ * Load generator for the session engine. Opens many sessions on one level and
+ * plays random moves on randomly chosen lizard segments, then reports the
+ * number of moves handled per second.
+ * <p>
+ * Usage: {@code SessionLoadDriver levelFile [sessions] [movesPerSession] [clients]}.
+ * With a client count the moves go through a {@link GameSessionServer} over
+ * loopback sockets, one connection per client thread; without it they are
+ * submitted to the engine directly.
+ *
+ * @author Muhammad Blal
+ */
+public class SessionLoadDriver {
+	/**
+	 * All directions, indexed for random selection.
+	 */
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	/**
+	 * Number of moves a socket client makes between fetches of the grid.
+	 */
+	private static final int STATE_EVERY = 16;
+
+	/**
+	 * Runs the load test.
+	 *
+	 * @param args level file, number of sessions, moves per session and optional
+	 *             number of socket clients
+	 * @throws Exception if the test cannot run
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("Usage: SessionLoadDriver levelFile [sessions] [movesPerSession] [clients]");
+			return;
+		}
+		String level = args[0];
+		int sessions = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		int moves = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+		int clients = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+
+		GameSessionEngine engine = new GameSessionEngine();
+		long start = System.nanoTime();
+		long total = clients > 0 ? runOverSockets(engine, level, sessions, moves, clients)
+				: runInProcess(engine, level, sessions, moves);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%d sessions, %d moves in %.3f s: %.0f moves/s%n", sessions, total, seconds,
+				total / seconds);
+		engine.shutdown(1000);
+	}
+
+	/**
+	 * Private helper method that submits moves straight to the engine.
+	 *
+	 * @param engine   the engine under test
+	 * @param level    level file to play
+	 * @param sessions number of sessions to open
+	 * @param moves    moves per session
+	 * @return number of moves handled
+	 */
+	private static long runInProcess(GameSessionEngine engine, String level, int sessions, int moves) {
+		List<CompletableFuture<?>> pending = new ArrayList<>();
+		for (int i = 0; i < sessions; i++) {
+			GameSession session = engine.open(level);
+			for (int m = 0; m < moves; m++) {
+				pending.add(session.submit(SessionLoadDriver::randomMove));
+			}
+		}
+		CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+		return (long) sessions * moves;
+	}
+
+	/**
+	 * Private helper method that drives the engine through a socket server. Each
+	 * client thread owns an equal share of the sessions and sends their moves
+	 * over its own connection.
+	 *
+	 * @param engine   the engine under test
+	 * @param level    level file to play
+	 * @param sessions number of sessions to open
+	 * @param moves    moves per session
+	 * @param clients  number of client connections
+	 * @return number of moves handled
+	 * @throws Exception if the server cannot be used
+	 */
+	private static long runOverSockets(GameSessionEngine engine, String level, int sessions, int moves,
+			int clients) throws Exception {
+		try (GameSessionServer server = new GameSessionServer(engine, 0)) {
+			List<Thread> threads = new ArrayList<>();
+			for (int c = 0; c < clients; c++) {
+				int share = sessions / clients + (c < sessions % clients ? 1 : 0);
+				Thread t = new Thread(() -> {
+					try {
+						playClient(server.getPort(), level, share, moves);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				});
+				threads.add(t);
+				t.start();
+			}
+			for (Thread t : threads) {
+				t.join();
+			}
+		}
+		return (long) sessions * moves;
+	}
+
+	/**
+	 * Private helper method that plays the given number of sessions over one
+	 * connection. Moves go to random lizard segments of the grid last fetched with
+	 * STATE, which is fetched when the session is opened, every
+	 * {@link #STATE_EVERY} moves and whenever a lizard leaves, so most moves reach
+	 * a lizard while the grid requests stay a small share of the traffic.
+	 *
+	 * @param port     port of the server
+	 * @param level    level file to play
+	 * @param sessions number of sessions to open
+	 * @param moves    moves per session
+	 * @throws IOException if the connection fails or the server answers with an
+	 *                     error
+	 */
+	private static void playClient(int port, String level, int sessions, int moves) throws IOException {
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+				BufferedReader in = new BufferedReader(
+						new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+				PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			for (int i = 0; i < sessions; i++) {
+				out.println("OPEN " + level);
+				String[] opened = reply(in);
+				String id = opened[1];
+				String lizards = opened[2];
+				List<int[]> segments = null;
+				for (int m = 0; m < moves; m++) {
+					if (segments == null || m % STATE_EVERY == 0) {
+						out.println("STATE " + id);
+						segments = readSegments(in);
+					}
+					if (segments.isEmpty()) {
+						// Every lizard has left, so only empty cells remain to be tried
+						out.println("MOVE " + id + " 0 0 " + DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+					} else {
+						int[] cell = segments.get(random.nextInt(segments.size()));
+						out.println("MOVE " + id + " " + cell[0] + " " + cell[1] + " "
+								+ DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+					}
+					String left = reply(in)[1];
+					if (!left.equals(lizards)) {
+						lizards = left;
+						segments = null;
+					}
+				}
+				out.println("CLOSE " + id);
+				reply(in);
+			}
+			out.println("QUIT");
+		}
+	}
+
+	/**
+	 * Private helper method that reads one reply line and splits it into words.
+	 *
+	 * @param in the connection
+	 * @return the words of the reply, starting with "OK"
+	 * @throws IOException if the connection is closed or the reply is an error
+	 */
+	private static String[] reply(BufferedReader in) throws IOException {
+		String line = in.readLine();
+		if (line == null) {
+			throw new IOException("connection closed by the server");
+		}
+		if (!line.startsWith("OK")) {
+			throw new IOException("server replied " + line);
+		}
+		return line.split(" ");
+	}
+
+	/**
+	 * Private helper method that reads the reply to STATE and collects the cells
+	 * of every lizard segment from the "Lizards:" part of the grid dump.
+	 *
+	 * @param in the connection
+	 * @return the column and row of each segment
+	 * @throws IOException if the connection is closed or the reply is an error
+	 */
+	private static List<int[]> readSegments(BufferedReader in) throws IOException {
+		reply(in);
+		List<int[]> segments = new ArrayList<>();
+		boolean lizards = false;
+		String line;
+		while ((line = in.readLine()) != null && !line.equals("END")) {
+			if (line.equals("Lizards:")) {
+				lizards = true;
+			} else if (lizards && !line.startsWith("-")) {
+				// Each segment is written as "(col,row,Type,Occupied)"
+				for (int open = line.indexOf('('); open >= 0; open = line.indexOf('(', open + 1)) {
+					String[] fields = line.substring(open + 1, line.indexOf(')', open)).split(",");
+					segments.add(new int[] { Integer.parseInt(fields[0]), Integer.parseInt(fields[1]) });
+				}
+			}
+		}
+		if (line == null) {
+			throw new IOException("connection closed by the server");
+		}
+		return segments;
+	}
+
+	/**
+	 * Private helper method that moves a random segment of a random lizard in a
+	 * random direction.
+	 *
+	 * @param game the game to move in
+	 * @return the number of lizards left
+	 */
+	private static int randomMove(LizardGame game) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		List<Lizard> lizards = game.getLizards();
+		if (lizards.isEmpty()) {
+			return 0;
+		}
+		Lizard lizard = lizards.get(random.nextInt(lizards.size()));
+		ArrayList<BodySegment> segments = lizard.getSegments();
+		Cell cell = segments.get(random.nextInt(segments.size())).getCell();
+		game.move(cell.getCol(), cell.getRow(), DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+		return game.getLizards().size();
+	}
+}
@@ -1,13 +1,24 @@
 import static api.Direction.*;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import api.BodySegment;
 import api.Cell;
 import api.Direction;
+import hw3.BidirectionalSolver;
 import hw3.GameFileUtil;
+import hw3.HintService;
+import hw3.LevelTemplate;
 import hw3.Lizard;
 import hw3.LizardGame;
+import hw3.SolutionDatabase;
+import hw3.Solver;
+import hw3.SolverBoard;
+import hw3.SolverResult;
 import ui.GameConsole;
 
 /**
@@ -114,5 +125,131 @@ public class SimpleTests {
 		
 		System.out.println();
 		System.out.println(game);
+
+		// Example of saving a game in progress and loading it back
+		try {
+			File saved = File.createTempFile("lizard", ".txt");
+			saved.deleteOnExit();
+			GameFileUtil.save(saved.getPath(), game);
+			LizardGame reloaded = new LizardGame(0, 0);
+			GameFileUtil.load(saved.getPath(), reloaded);
+			System.out.println("The reloaded head is in cell (5,2) ("
+					+ (reloaded.getLizards().get(0).getHeadSegment().getCell().getCol() == 5) + "), expected true.");
+		} catch (IOException e) {
+			System.out.println("Could not save the game: " + e.getMessage());
+		}
+
+		// Example of loading a small level and then a larger one while hints are on
+		try {
+			File small = File.createTempFile("lizard-small", ".txt");
+			small.deleteOnExit();
+			Files.writeString(small.toPath(),
+					"4x3\n    \n   E\n    \nL 0,1 1,1\n");
+			File large = File.createTempFile("lizard-large", ".txt");
+			large.deleteOnExit();
+			Files.writeString(large.toPath(),
+					"6x5\n      \n W    \n     E\n      \n      \nL 0,2 1,2 2,2\nL 0,4 1,4\n");
+			LizardGame hinted = new LizardGame(0, 0);
+			HintService hints = new HintService(hinted);
+			GameFileUtil.load(small.getPath(), hinted);
+			GameFileUtil.load(large.getPath(), hinted);
+			System.out.println("The game is 6x5 with 2 lizards (" + (hinted.getWidth() == 6 && hinted.getHeight() == 5
+					&& hinted.getLizards().size() == 2) + "), expected true.");
+			int hint = HintService.NO_HINT;
+			for (int tries = 0; tries < 500 && hint == HintService.NO_HINT; tries++) {
+				Thread.sleep(10);
+				hint = hints.getHint();
+			}
+			System.out.println("A hint was found for the larger level (" + (hint != HintService.NO_HINT)
+					+ "), expected true.");
+			hints.shutdown();
+		} catch (IOException | InterruptedException e) {
+			System.out.println("Could not run the hint example: " + e.getMessage());
+		}
+
+		// Examples of applying edits of a level file to the running game; each result
+		// should print the same as a game freshly loaded from the edited text
+		String level = "6x4\n      \n      \n     E\n      \nL 0,0 1,0\nL 0,2 1,2 2,2\n";
+		String walled = "6x4\n      \n   W  \n     E\n    W \nL 0,0 1,0\nL 0,2 1,2 2,2\n";
+		String moved = "6x4\n      \n   W  \n     E\n    W \nL 0,0 1,0\nL 1,3 2,3 3,3\n";
+		String wider = "7x4\n       \n   W   \n      E\n    W  \nL 0,0 1,0\nL 1,3 2,3 3,3\n";
+		LizardGame edited = new LizardGame(LevelTemplate.forText(level));
+		// Create the cell that gets a wall, as painting or moving would
+		edited.getCell(3, 1);
+		edited.applyLevelEdit(LevelTemplate.forText(walled));
+		System.out.println("The edit adding walls matches a fresh load ("
+				+ edited.toString().equals(new LizardGame(LevelTemplate.forText(walled)).toString())
+				+ "), expected true.");
+		int changes = edited.applyLevelEdit(LevelTemplate.forText(moved));
+		System.out.println("The edit moving a lizard matches a fresh load ("
+				+ edited.toString().equals(new LizardGame(LevelTemplate.forText(moved)).toString())
+				+ "), expected true.");
+		System.out.println("The edit moving a lizard made " + changes + " changes, expected 2.");
+		changes = edited.applyLevelEdit(LevelTemplate.forText(wider));
+		System.out.println("The edit widening the level matches a fresh load ("
+				+ edited.toString().equals(new LizardGame(LevelTemplate.forText(wider)).toString())
+				+ "), expected true.");
+		System.out.println("The edit widening the level made " + changes + " changes, expected -1.");
+
+		// Example of checking the bidirectional solver against the breadth-first one
+		LizardGame puzzle = new LizardGame(0, 0);
+		GameFileUtil.load("examples/game2.txt", puzzle);
+		int[] shortest = new Solver().solve(puzzle).getMoves();
+		int[] bidirectional = new BidirectionalSolver().solve(puzzle).getMoves();
+		System.out.println("The bidirectional solver takes " + bidirectional.length + " moves, the solver takes "
+				+ shortest.length + ", expected 14 and 14.");
+		for (int move : bidirectional) {
+			puzzle.move(LizardGame.unpackCol(move), LizardGame.unpackRow(move), LizardGame.unpackDirection(move));
+		}
+		System.out.println("Playing the bidirectional solution leaves " + puzzle.getLizards().size()
+				+ " lizards, expected 0.");
+
+		// Example of storing a solution in a database file and finding it again after
+		// reopening the file, and of files that are not databases being left alone
+		try {
+			File stored = File.createTempFile("lizard-solutions", ".db");
+			stored.deleteOnExit();
+			LizardGame first = new LizardGame(0, 0);
+			GameFileUtil.load("examples/game1.txt", first);
+			SolverBoard start = SolverBoard.of(first);
+			try (SolutionDatabase db = new SolutionDatabase(stored.getPath(), true, 1024)) {
+				System.out.println("The solution was stored (" + db.put(start, new Solver().solve(start))
+						+ "), expected true.");
+			}
+			try (SolutionDatabase db = new SolutionDatabase(stored.getPath(), false)) {
+				SolverResult known = db.get(start);
+				System.out.println("The reopened database knows a solution of "
+						+ (known == null ? "no" : known.getMoves().length) + " moves, expected 3.");
+			}
+
+			// A writer that died right after writing the header left only the header
+			File header = File.createTempFile("lizard-header", ".db");
+			header.deleteOnExit();
+			new SolutionDatabase(header.getPath(), true).close();
+			Files.write(header.toPath(), Arrays.copyOf(Files.readAllBytes(header.toPath()), 64));
+			try (SolutionDatabase db = new SolutionDatabase(header.getPath(), true)) {
+				System.out.println("A database with only its header takes a solution ("
+						+ db.put(start, new Solver().solve(start)) + "), expected true.");
+			}
+
+			// Files of other programs must be refused without being touched
+			byte[][] foreign = { new byte[200], "abc".getBytes() };
+			for (byte[] content : foreign) {
+				File other = File.createTempFile("lizard-other", ".db");
+				other.deleteOnExit();
+				Files.write(other.toPath(), content);
+				boolean rejected = false;
+				try {
+					new SolutionDatabase(other.getPath(), true).close();
+				} catch (IOException e) {
+					rejected = true;
+				}
+				System.out.println("A " + content.length + "-byte file that is not a database was rejected ("
+						+ rejected + ") and left unchanged ("
+						+ Arrays.equals(content, Files.readAllBytes(other.toPath())) + "), expected true and true.");
+			}
+		} catch (IOException e) {
+			System.out.println("Could not run the database example: " + e.getMessage());
+		}
 	}
 }
@@ -0,0 +1,533 @@
+package hw3;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.zip.CRC32;
+
+/**
+ * A file that remembers the shortest solution of every position solved so
+ * far, so a level is only searched once no matter how often the program is
+ * restarted. Positions are keyed by a 128-bit hash of the walls, the exits and
+ * the canonical key of the lizards (see {@link SolverBoard#canonicalKey()}),
+ * so a level matches however it was loaded, and a position matches every
+ * reflection or rotation of itself. The moves are stored in the frame of the
+ * canonical key and mapped back on lookup.
+ * <p>
+ * The file is memory mapped. It starts with a header and an open-addressing
+ * index with linear probing, whose size is fixed when the file is created,
+ * followed by the records, which are only ever appended. Each record holds the
+ * solution, the number of states expanded and seen by the search that found
+ * it, and a CRC-32 of its contents.
+ * <p>
+ * Any number of threads and processes may read the file, but only one may
+ * write it; a writer holds a lock on the file for as long as it is open. A
+ * record is written and flushed to disk before the index slot pointing at it,
+ * and the first half of the key, which marks the slot as taken, is written
+ * last. If the program dies part way through, the entry is simply missing.
+ * Readers never lock: they see an entry once its key is in the index.
+ * <p>
+ * Usage: {@code SolutionDatabase database path...} solves each level that the
+ * database does not know yet and stores the results, where each path is a
+ * level file or a directory of ".txt" levels.
+ *
+ * @author Muhammad Blal
+ */
+public class SolutionDatabase implements Closeable {
+	/**
+	 * Number of index slots of a new file.
+	 */
+	public static final int DEFAULT_SLOTS = 1 << 16;
+
+	private static final int MAGIC = 0x4C5A5344;
+	private static final int VERSION = 1;
+
+	/**
+	 * Header layout: magic, version, number of slots, end of the records and
+	 * number of entries.
+	 */
+	private static final int HEADER_BYTES = 64;
+	private static final int SLOTS_AT = 8;
+	private static final int DATA_END_AT = 16;
+	private static final int COUNT_AT = 24;
+
+	/**
+	 * Slot layout: the two halves of the key and the offset of the record. A
+	 * first half of 0 marks a free slot.
+	 */
+	private static final int SLOT_BYTES = 24;
+
+	/**
+	 * Record layout: payload length and CRC-32, then the payload of key, flags,
+	 * states expanded, states seen, number of moves and the moves.
+	 */
+	private static final int RECORD_HEADER_BYTES = 8;
+	private static final int PAYLOAD_FIXED_BYTES = 37;
+	private static final int SOLVED_FLAG = 1;
+
+	/**
+	 * Space for records in a new file; the file doubles when it runs out.
+	 */
+	private static final int INITIAL_DATA_BYTES = 64 * 1024;
+
+	/**
+	 * Reads and writes the longs of the header and index with memory ordering,
+	 * so an entry is never seen before the record it points at.
+	 */
+	private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+	private final FileChannel channel;
+	private final boolean writable;
+	private final FileLock lock;
+	private final int slots;
+
+	/**
+	 * The mapping of the whole file, replaced when the file grows.
+	 */
+	private volatile MappedByteBuffer map;
+
+	/**
+	 * End of the records and number of entries. Only used by a writer, guarded by
+	 * this.
+	 */
+	private long dataEnd;
+	private long count;
+
+	/**
+	 * Opens a database, creating it with {@link #DEFAULT_SLOTS} index slots if it
+	 * does not exist or is empty and writable is true.
+	 *
+	 * @param filePath location of the database file
+	 * @param writable true to add solutions, false to only look them up
+	 * @throws IOException if the file cannot be opened, is not a database, or is
+	 *                     already open for writing elsewhere
+	 */
+	public SolutionDatabase(String filePath, boolean writable) throws IOException {
+		this(filePath, writable, DEFAULT_SLOTS);
+	}
+
+	/**
+	 * Opens a database, creating it if it does not exist or is empty and writable
+	 * is true.
+	 *
+	 * @param filePath location of the database file
+	 * @param writable true to add solutions, false to only look them up
+	 * @param slots    number of index slots if the file is created, a power of
+	 *                 two; at most three quarters of them are used
+	 * @throws IOException if the file cannot be opened, is not a database, or is
+	 *                     already open for writing elsewhere
+	 */
+	public SolutionDatabase(String filePath, boolean writable, int slots) throws IOException {
+		this.writable = writable;
+		channel = writable
+				? FileChannel.open(Paths.get(filePath), StandardOpenOption.READ, StandardOpenOption.WRITE,
+						StandardOpenOption.CREATE)
+				: FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+		try {
+			lock = writable ? lockForWriting(filePath) : null;
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			if (writable && channel.size() == 0) {
+				header = create(slots);
+			} else {
+				channel.read(header, 0);
+			}
+			// Anything else, even an empty-looking file, is left untouched
+			if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+				throw new IOException(filePath + " is not a solution database");
+			}
+			this.slots = header.getInt(SLOTS_AT);
+			if (writable && Integer.bitCount(this.slots) == 1 && channel.size() < dataStart()) {
+				// Created by a writer that died before the file reached its first size
+				channel.write(ByteBuffer.allocate(1), dataStart() + INITIAL_DATA_BYTES - 1);
+				channel.force(true);
+			}
+			map = channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0,
+					channel.size());
+			dataEnd = header.getLong(DATA_END_AT);
+			if (Integer.bitCount(this.slots) != 1 || dataEnd < dataStart() || dataEnd > map.capacity()) {
+				throw new IOException(filePath + " is damaged");
+			}
+			if (writable) {
+				recount();
+			}
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Solves each level the database does not know yet and stores the result.
+	 *
+	 * @param args the database file followed by level files or directories
+	 * @throws IOException if the database cannot be opened
+	 */
+	public static void main(String[] args) throws IOException {
+		try (SolutionDatabase db = new SolutionDatabase(args[0], true)) {
+			Solver solver = new Solver();
+			solver.setDatabase(db);
+			for (int i = 1; i < args.length; i++) {
+				for (String path : LevelAnalyzer.levelsOf(args[i])) {
+					LizardGame game = new LizardGame(0, 0);
+					GameFileUtil.load(path, game);
+					SolverBoard start = SolverBoard.of(game);
+					boolean known = db.get(start) != null;
+					long begin = System.nanoTime();
+					SolverResult result = solver.solve(start);
+					String outcome = result.isSolved() ? "solved" : result.isComplete() ? "unsolvable" : "gave up";
+					System.out.printf("%s: %s, %d moves, %d states expanded, %.1f ms%n", path,
+							known ? "known" : outcome, result.getMoves().length, result.getNodesExpanded(),
+							(System.nanoTime() - begin) / 1e6);
+				}
+			}
+			System.out.println(db.size() + " positions stored");
+		}
+	}
+
+	/**
+	 * @return true if this database was opened for writing
+	 */
+	public boolean isWritable() {
+		return writable;
+	}
+
+	/**
+	 * @return number of positions stored, including those added by other
+	 *         processes
+	 */
+	public long size() {
+		return (long) LONGS.getAcquire(map, COUNT_AT);
+	}
+
+	/**
+	 * Looks up a position.
+	 *
+	 * @param board the position; not modified
+	 * @return the complete result of an earlier search, with the moves in the
+	 *         frame of the given board but without the path of states, or null if
+	 *         the position is unknown
+	 */
+	public SolverResult get(SolverBoard board) {
+		SolverBoard start = board.copy();
+		long[] key = keyOf(start);
+		MappedByteBuffer buf = map;
+		int slot = (int) key[1] & (slots - 1);
+		for (int probes = 0; probes < slots; probes++, slot = (slot + 1) & (slots - 1)) {
+			int at = slotOffset(slot);
+			long first = (long) LONGS.getAcquire(buf, at);
+			if (first == 0) {
+				return null;
+			}
+			if (first == key[0] && buf.getLong(at + 8) == key[1]) {
+				return read(buf.getLong(at + 16), key, start);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Stores the result of a search. Only complete results are stored: the
+	 * shortest solution, or the proof that there is none.
+	 *
+	 * @param board  the position searched from; not modified
+	 * @param result the complete result of searching from it
+	 * @return true if the result was added, false if the position was already
+	 *         stored or the index is full
+	 * @throws IOException if the file cannot be written
+	 */
+	public synchronized boolean put(SolverBoard board, SolverResult result) throws IOException {
+		if (!writable) {
+			throw new IllegalStateException("the database is open for reading only");
+		}
+		if (!result.isComplete()) {
+			throw new IllegalArgumentException("only complete results can be stored");
+		}
+		SolverBoard start = board.copy();
+		long[] key = keyOf(start);
+		int slot = (int) key[1] & (slots - 1);
+		while (true) {
+			int at = slotOffset(slot);
+			long first = map.getLong(at);
+			if (first == 0) {
+				break;
+			}
+			if (first == key[0] && map.getLong(at + 8) == key[1]) {
+				return false;
+			}
+			slot = (slot + 1) & (slots - 1);
+		}
+		if (count >= slots / 4 * 3) {
+			return false;
+		}
+
+		int[] moves = result.getMoves();
+		ByteBuffer payload = ByteBuffer.allocate(PAYLOAD_FIXED_BYTES + 4 * moves.length);
+		payload.putLong(key[0]).putLong(key[1]);
+		payload.put((byte) (result.isSolved() ? SOLVED_FLAG : 0));
+		payload.putLong(result.getNodesExpanded()).putLong(result.getStatesSeen());
+		payload.putInt(moves.length);
+		int symmetry = start.getCanonicalSymmetry();
+		for (int move : moves) {
+			payload.putInt(start.mapGameMove(move, symmetry, false));
+		}
+		CRC32 crc = new CRC32();
+		crc.update(payload.array());
+
+		// Write and flush the record, then the slot, so a crash never leaves a slot
+		// pointing at a missing record
+		long offset = dataEnd;
+		long end = offset + RECORD_HEADER_BYTES + payload.capacity();
+		MappedByteBuffer buf = ensureCapacity(end);
+		buf.putInt((int) offset, payload.capacity());
+		buf.putInt((int) offset + 4, (int) crc.getValue());
+		buf.put((int) offset + RECORD_HEADER_BYTES, payload.array());
+		dataEnd = end;
+		buf.force((int) offset, (int) (end - offset));
+		LONGS.setRelease(buf, DATA_END_AT, dataEnd);
+		buf.force(0, HEADER_BYTES);
+
+		int at = slotOffset(slot);
+		buf.putLong(at + 8, key[1]);
+		buf.putLong(at + 16, offset);
+		buf.force(at, SLOT_BYTES);
+		LONGS.setRelease(buf, at, key[0]);
+		buf.force(at, SLOT_BYTES);
+		count++;
+		LONGS.setRelease(buf, COUNT_AT, count);
+		buf.force(0, HEADER_BYTES);
+		return true;
+	}
+
+	/**
+	 * Closes the file and gives up the write lock. The mapping itself is only
+	 * released once it is no longer reachable, so lookups must not be started
+	 * after closing.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (lock != null && lock.isValid()) {
+			lock.release();
+		}
+		channel.close();
+	}
+
+	/**
+	 * Private helper method that computes the key of a position.
+	 *
+	 * @param board the position; its canonical symmetry is updated
+	 * @return the two halves of the key, the first never 0
+	 */
+	private static long[] keyOf(SolverBoard board) {
+		int cells = board.getWidth() * board.getHeight();
+		long[] lizards = board.canonicalKey().toLongArray();
+		long[] values = new long[3 + 2 * ((cells + 63) / 64) + lizards.length];
+		int n = 0;
+		values[n++] = board.getWidth();
+		values[n++] = board.getHeight();
+		for (int word = 0; word < (cells + 63) / 64; word++) {
+			long walls = 0;
+			long exits = 0;
+			for (int c = word * 64; c < Math.min(cells, word * 64 + 64); c++) {
+				walls |= board.isWall(c) ? 1L << (c & 63) : 0;
+				exits |= board.isExit(c) ? 1L << (c & 63) : 0;
+			}
+			values[n++] = walls;
+			values[n++] = exits;
+		}
+		values[n++] = lizards.length;
+		System.arraycopy(lizards, 0, values, n, lizards.length);
+
+		long first = 0x6A09E667F3BCC908L;
+		long second = 0xBB67AE8584CAA73BL;
+		for (long value : values) {
+			first = (first ^ mix(value)) * 0x9E3779B97F4A7C15L;
+			second = (second ^ mix(value + 0x3C6EF372FE94F82BL)) * 0xC6BC279692B5CC83L;
+		}
+		first = mix(first);
+		return new long[] { first == 0 ? 1 : first, mix(second) };
+	}
+
+	/**
+	 * Private helper method that scrambles the bits of a long.
+	 *
+	 * @param z the value
+	 * @return the scrambled value
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+		z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return z ^ (z >>> 33);
+	}
+
+	/**
+	 * Private helper method that reads and checks a record.
+	 *
+	 * @param offset position of the record in the file
+	 * @param key    the key it should hold
+	 * @param start  the position looked up, with its canonical symmetry set
+	 * @return the result, or null if the record is unreadable
+	 */
+	private SolverResult read(long offset, long[] key, SolverBoard start) {
+		MappedByteBuffer buf = map;
+		if (offset + RECORD_HEADER_BYTES > buf.capacity()) {
+			buf = remap();
+		}
+		if (buf == null || offset < dataStart() || offset + RECORD_HEADER_BYTES > buf.capacity()) {
+			return null;
+		}
+		int length = buf.getInt((int) offset);
+		if (length < PAYLOAD_FIXED_BYTES || offset + RECORD_HEADER_BYTES + length > buf.capacity()) {
+			buf = remap();
+			if (buf == null || length < PAYLOAD_FIXED_BYTES
+					|| offset + RECORD_HEADER_BYTES + length > buf.capacity()) {
+				return null;
+			}
+		}
+		byte[] bytes = new byte[length];
+		buf.get((int) offset + RECORD_HEADER_BYTES, bytes);
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+		ByteBuffer payload = ByteBuffer.wrap(bytes);
+		if ((int) crc.getValue() != buf.getInt((int) offset + 4) || payload.getLong() != key[0]
+				|| payload.getLong() != key[1]) {
+			return null;
+		}
+		boolean solved = (payload.get() & SOLVED_FLAG) != 0;
+		long expanded = payload.getLong();
+		long seen = payload.getLong();
+		int[] moves = new int[payload.getInt()];
+		if (moves.length != payload.remaining() / 4) {
+			return null;
+		}
+		int symmetry = start.getCanonicalSymmetry();
+		for (int i = 0; i < moves.length; i++) {
+			moves[i] = start.mapGameMove(payload.getInt(), symmetry, true);
+		}
+		return new SolverResult(solved, true, moves, Collections.emptyList(), expanded, seen);
+	}
+
+	/**
+	 * Private helper method that maps the file again after another process made
+	 * it grow.
+	 *
+	 * @return the new mapping, or null if the file cannot be mapped
+	 */
+	private synchronized MappedByteBuffer remap() {
+		try {
+			long size = Math.min(channel.size(), Integer.MAX_VALUE);
+			if (size > map.capacity()) {
+				map = channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0,
+						size);
+			}
+			return map;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Private helper method that grows the file until it reaches the given size.
+	 *
+	 * @param size number of bytes needed
+	 * @return the mapping of the whole file
+	 * @throws IOException if the file cannot grow
+	 */
+	private MappedByteBuffer ensureCapacity(long size) throws IOException {
+		if (size <= map.capacity()) {
+			return map;
+		}
+		long grown = Math.max(size, 2L * map.capacity());
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("the solution database is full");
+		}
+		grown = Math.min(grown, Integer.MAX_VALUE);
+		channel.write(ByteBuffer.allocate(1), grown - 1);
+		map = channel.map(FileChannel.MapMode.READ_WRITE, 0, grown);
+		return map;
+	}
+
+	/**
+	 * Private helper method that writes the header and empty index of a new,
+	 * empty file. The header goes first, so a file is never grown without it.
+	 *
+	 * @param slotCount number of index slots, a power of two
+	 * @return the header
+	 * @throws IOException if the file cannot be written
+	 */
+	private ByteBuffer create(int slotCount) throws IOException {
+		if (slotCount < 16 || Integer.bitCount(slotCount) != 1
+				|| slotCount > (Integer.MAX_VALUE - HEADER_BYTES - INITIAL_DATA_BYTES) / SLOT_BYTES) {
+			throw new IllegalArgumentException("slots must be a power of two of at least 16: " + slotCount);
+		}
+		long start = HEADER_BYTES + (long) slotCount * SLOT_BYTES;
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+		header.putInt(0, MAGIC).putInt(4, VERSION).putInt(SLOTS_AT, slotCount);
+		header.putLong(DATA_END_AT, start).putLong(COUNT_AT, 0);
+		channel.write(header.duplicate(), 0);
+		channel.force(true);
+		channel.write(ByteBuffer.allocate(1), start + INITIAL_DATA_BYTES - 1);
+		channel.force(true);
+		return header;
+	}
+
+	/**
+	 * Private helper method that counts the entries, since a writer that died may
+	 * have added one without counting it.
+	 */
+	private void recount() {
+		count = 0;
+		for (int slot = 0; slot < slots; slot++) {
+			if (map.getLong(slotOffset(slot)) != 0) {
+				count++;
+			}
+		}
+		LONGS.setRelease(map, COUNT_AT, count);
+	}
+
+	/**
+	 * Private helper method that takes the write lock of the file.
+	 *
+	 * @param filePath location of the file, for the message
+	 * @return the lock
+	 * @throws IOException if another writer holds it
+	 */
+	private FileLock lockForWriting(String filePath) throws IOException {
+		FileLock taken;
+		try {
+			taken = channel.tryLock();
+		} catch (OverlappingFileLockException e) {
+			taken = null;
+		}
+		if (taken == null) {
+			throw new IOException(filePath + " is already open for writing");
+		}
+		return taken;
+	}
+
+	/**
+	 * @return position in the file of the first record
+	 */
+	private long dataStart() {
+		return HEADER_BYTES + (long) slots * SLOT_BYTES;
+	}
+
+	/**
+	 * Private helper method that gives the position of an index slot.
+	 *
+	 * @param slot the slot
+	 * @return its position in the file
+	 */
+	private static int slotOffset(int slot) {
+		return HEADER_BYTES + slot * SLOT_BYTES;
+	}
+}
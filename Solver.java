@@ -0,0 +1,315 @@
+package hw3;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Finds shortest solutions with a breadth-first search over
+ * {@link SolverBoard} states. Every state is stored once by its
+ * {@link StateKey}, so a search uses memory in proportion to the number of
+ * distinct states found; the budget bounds that number.
+ * <p>
+ * By default states are stored by their canonical key (see
+ * {@link SolverBoard#canonicalKey()}), so states that only differ by a
+ * reflection or rotation of a symmetric level, by the order of lizards, or by
+ * which end of a lizard is its head are searched once.
+ * <p>
+ * A search stops early, returning an incomplete result, when the thread running
+ * it is interrupted.
+ * <p>
+ * A solver given a {@link SolutionDatabase} looks every position up there
+ * before searching, and stores the complete results of its searches there if
+ * the database is writable.
+ *
+ * @author Muhammad Blal
+ */
+public class Solver {
+	/**
+	 * Default maximum number of distinct states per search.
+	 */
+	public static final int DEFAULT_MAX_STATES = 2_000_000;
+
+	/**
+	 * Number of expanded states between checks for an interrupt.
+	 */
+	private static final int INTERRUPT_CHECK = 1024;
+
+	/**
+	 * Maximum number of distinct states per search.
+	 */
+	private final int maxStates;
+
+	/**
+	 * True to store states by canonical key.
+	 */
+	private final boolean symmetry;
+
+	/**
+	 * Solutions known from earlier searches, or null.
+	 */
+	private SolutionDatabase database;
+
+	/**
+	 * Constructs a solver with the default budget and symmetry reduction.
+	 */
+	public Solver() {
+		this(DEFAULT_MAX_STATES);
+	}
+
+	/**
+	 * Constructs a solver with the given budget and symmetry reduction.
+	 *
+	 * @param maxStates maximum number of distinct states per search
+	 */
+	public Solver(int maxStates) {
+		this(maxStates, true);
+	}
+
+	/**
+	 * Constructs a solver with the given budget.
+	 *
+	 * @param maxStates maximum number of distinct states per search
+	 * @param symmetry  true to treat equivalent states as one, false to search
+	 *                  every state exactly as laid out
+	 */
+	public Solver(int maxStates, boolean symmetry) {
+		this.maxStates = maxStates;
+		this.symmetry = symmetry;
+	}
+
+	/**
+	 * @return maximum number of distinct states per search
+	 */
+	int getMaxStates() {
+		return maxStates;
+	}
+
+	/**
+	 * @return true if states are stored by canonical key
+	 */
+	boolean isSymmetryReduced() {
+		return symmetry;
+	}
+
+	/**
+	 * Sets the database to look positions up in before searching. Set it before
+	 * the solver is used.
+	 *
+	 * @param database the database, or null to always search
+	 */
+	public void setDatabase(SolutionDatabase database) {
+		this.database = database;
+	}
+
+	/**
+	 * Gets the key this solver stores a state under.
+	 *
+	 * @param board the state
+	 * @return the canonical key if symmetry reduction is on, otherwise the plain key
+	 */
+	public StateKey keyOf(SolverBoard board) {
+		return symmetry ? board.canonicalKey() : board.key();
+	}
+
+	/**
+	 * Searches for a shortest solution from the given game's current position.
+	 *
+	 * @param game the game
+	 * @return the result
+	 */
+	public SolverResult solve(LizardGame game) {
+		return solve(SolverBoard.of(game));
+	}
+
+	/**
+	 * Searches for a shortest solution from the given board, unless the database
+	 * already knows it. The board is not modified.
+	 *
+	 * @param start the starting position
+	 * @return the result
+	 */
+	public SolverResult solve(SolverBoard start) {
+		if (database != null) {
+			SolverResult known = recall(start);
+			if (known != null) {
+				return known;
+			}
+		}
+		SolverResult result = search(start);
+		if (database != null && database.isWritable() && result.isComplete()) {
+			try {
+				database.put(start, result);
+			} catch (IOException e) {
+				// The result is still good, it just has to be found again next time
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Runs the search itself, without consulting the database. The board is not
+	 * modified.
+	 *
+	 * @param start the starting position
+	 * @return the result
+	 */
+	protected SolverResult search(SolverBoard start) {
+		ArrayList<StateKey> keys = new ArrayList<>();
+		HashMap<StateKey, Integer> seen = new HashMap<>();
+		// For each state, the state it was reached from
+		IntList parents = new IntList();
+
+		StateKey first = keyOf(start);
+		keys.add(first);
+		seen.put(first, 0);
+		parents.add(-1);
+		if (start.isSolved()) {
+			return result(start, true, true, 0, keys, parents, 0);
+		}
+
+		SolverBoard board = start.copy();
+		SolverBoard child = start.copy();
+		int[] moves = new int[start.maxMoves()];
+		long expanded = 0;
+		// The states are stored in the order they were found, so that list is the queue
+		for (int head = 0; head < keys.size(); head++) {
+			if (keys.size() >= maxStates
+					|| (expanded % INTERRUPT_CHECK == 0 && Thread.currentThread().isInterrupted())) {
+				return result(start, false, false, -1, keys, parents, expanded);
+			}
+			board.load(keys.get(head));
+			expanded++;
+			int n = board.moves(moves);
+			for (int i = 0; i < n; i++) {
+				child.copyFrom(board);
+				child.apply(moves[i]);
+				StateKey key = keyOf(child);
+				if (seen.putIfAbsent(key, keys.size()) != null) {
+					continue;
+				}
+				keys.add(key);
+				parents.add(head);
+				if (child.isSolved()) {
+					return result(start, true, true, keys.size() - 1, keys, parents, expanded);
+				}
+			}
+		}
+		return result(start, false, true, -1, keys, parents, expanded);
+	}
+
+	/**
+	 * Private helper method that looks a position up in the database and rebuilds
+	 * the path of the stored solution, checking that it really solves the
+	 * position.
+	 *
+	 * @param start the position
+	 * @return the stored result, or null if there is none or it does not fit
+	 */
+	private SolverResult recall(SolverBoard start) {
+		SolverResult stored = database.get(start);
+		if (stored == null) {
+			return null;
+		}
+		int[] gameMoves = stored.getMoves();
+		ArrayList<StateKey> path = new ArrayList<>();
+		SolverBoard board = start.copy();
+		path.add(keyOf(board));
+		for (int gameMove : gameMoves) {
+			int move = board.fromGameMove(gameMove);
+			if (move < 0) {
+				return null;
+			}
+			board.apply(move);
+			path.add(keyOf(board));
+		}
+		if (stored.isSolved() != board.isSolved()) {
+			return null;
+		}
+		return new SolverResult(stored.isSolved(), true, gameMoves, path, stored.getNodesExpanded(),
+				stored.getStatesSeen());
+	}
+
+	/**
+	 * Private helper method that builds a result by following parents back from
+	 * the solved state. Stored states may be reflected or rotated relative to one
+	 * another, so the moves are found again by replaying the path from the start.
+	 *
+	 * @param start    the starting position
+	 * @param solved   true if a solution was found
+	 * @param complete true if the search was not cut short
+	 * @param goal     index of the solved state, or -1
+	 * @param keys     all states found
+	 * @param parents  parent index of each state
+	 * @param expanded number of expanded states
+	 * @return the result
+	 */
+	private SolverResult result(SolverBoard start, boolean solved, boolean complete, int goal, List<StateKey> keys,
+			IntList parents, long expanded) {
+		ArrayList<StateKey> path = new ArrayList<>();
+		for (int s = goal; s >= 0; s = parents.get(s)) {
+			path.add(keys.get(s));
+		}
+		Collections.reverse(path);
+		return new SolverResult(solved, complete, replay(start, path), path, expanded, keys.size());
+	}
+
+	/**
+	 * Finds the game moves that lead from a position through the given states.
+	 *
+	 * @param start the position of the first state; not modified
+	 * @param path  keys of consecutive states as stored by this solver
+	 * @return one packed game move per step
+	 * @throws IllegalStateException if two consecutive states are not one move
+	 *                               apart
+	 */
+	int[] replay(SolverBoard start, List<StateKey> path) {
+		int[] gameMoves = new int[Math.max(path.size() - 1, 0)];
+		SolverBoard board = start.copy();
+		SolverBoard child = start.copy();
+		int[] moves = new int[start.maxMoves()];
+		for (int step = 0; step < gameMoves.length; step++) {
+			int n = board.moves(moves);
+			boolean linked = false;
+			for (int i = 0; i < n && !linked; i++) {
+				child.copyFrom(board);
+				child.apply(moves[i]);
+				if (keyOf(child).equals(path.get(step + 1))) {
+					gameMoves[step] = board.toGameMove(moves[i]);
+					board.copyFrom(child);
+					linked = true;
+				}
+			}
+			if (!linked) {
+				throw new IllegalStateException("no move leads from state " + step + " to state " + (step + 1));
+			}
+		}
+		return gameMoves;
+	}
+
+	/**
+	 * A growable list of ints without boxing.
+	 */
+	static class IntList {
+		private int[] values = new int[64];
+		private int size;
+
+		void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		int get(int index) {
+			return values[index];
+		}
+
+		int size() {
+			return size;
+		}
+	}
+}
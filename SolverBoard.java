@@ -0,0 +1,881 @@
+package hw3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import api.BodySegment;
+import api.Cell;
+import api.Direction;
+
+/**
+ * A compact, mutable copy of a game for search. Walls and exits are shared,
+ * read-only arrays; each lizard is a ring buffer of cell indices
+ * ({@code row * width + col}) inside one int array, so a move is constant time
+ * and copying a board is a few array copies with no per-move allocation.
+ * <p>
+ * Moves follow the rules of {@link LizardGame#move(int, int, Direction)}: a
+ * lizard can move forward with its head into any free neighbouring cell, or
+ * backward with its tail into any free neighbouring cell, and leaves the grid
+ * as soon as its head or tail is on an exit. A board move is an int of the
+ * form {@code lizard << 3 | (backward ? 4 : 0) | direction.ordinal()}; use
+ * {@link #toGameMove(int)} to turn it into a move for a LizardGame.
+ *
+ * @author Muhammad Blal
+ */
+public class SolverBoard {
+	/**
+	 * Bit of a board move that marks a backward (tail first) move.
+	 */
+	public static final int BACKWARD = 4;
+
+	/**
+	 * All directions in ordinal order.
+	 */
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	/**
+	 * Column change of one step in each direction, by ordinal.
+	 */
+	private static final int[] DCOL = new int[DIRECTIONS.length];
+
+	/**
+	 * Row change of one step in each direction, by ordinal.
+	 */
+	private static final int[] DROW = new int[DIRECTIONS.length];
+
+	static {
+		for (Direction d : DIRECTIONS) {
+			DCOL[d.ordinal()] = d == Direction.RIGHT ? 1 : d == Direction.LEFT ? -1 : 0;
+			DROW[d.ordinal()] = d == Direction.DOWN ? 1 : d == Direction.UP ? -1 : 0;
+		}
+	}
+
+	/**
+	 * Where each of the eight reflections and rotations of the grid sends each
+	 * direction, in the order used by the transform helper.
+	 */
+	private static final Direction[][] SYMMETRY_DIRECTIONS = {
+			{ Direction.UP, Direction.DOWN, Direction.RIGHT, Direction.LEFT },
+			{ Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT },
+			{ Direction.DOWN, Direction.UP, Direction.RIGHT, Direction.LEFT },
+			{ Direction.DOWN, Direction.UP, Direction.LEFT, Direction.RIGHT },
+			{ Direction.LEFT, Direction.RIGHT, Direction.DOWN, Direction.UP },
+			{ Direction.RIGHT, Direction.LEFT, Direction.DOWN, Direction.UP },
+			{ Direction.LEFT, Direction.RIGHT, Direction.UP, Direction.DOWN },
+			{ Direction.RIGHT, Direction.LEFT, Direction.UP, Direction.DOWN } };
+
+	/**
+	 * Number of bits used for a lizard's length in a state key.
+	 */
+	private static final int LENGTH_BITS = 16;
+
+	private final int width;
+	private final int height;
+
+	/**
+	 * Walls and exits by cell index, shared by all copies.
+	 */
+	private final boolean[] wall;
+	private final boolean[] exit;
+
+	/**
+	 * Number of bits needed for a cell index in a state key.
+	 */
+	private final int cellBits;
+
+	/**
+	 * For each symmetry of the walls and exits, the cell each cell is mapped to
+	 * and the direction each direction is mapped to. Symmetry 0 is the identity.
+	 */
+	private final int[][] cellMaps;
+	private final int[][] dirMaps;
+
+	/**
+	 * Index of the inverse of each symmetry.
+	 */
+	private final int[] inverseOf;
+
+	/**
+	 * Symmetry used by the last call to canonicalKey.
+	 */
+	private int canonicalSymmetry;
+
+	/**
+	 * Scratch space for encoding keys, allocated on first use by each board.
+	 */
+	private int[] order;
+	private int[] first;
+	private boolean[] reversed;
+	private long[] trialBits;
+
+	/**
+	 * Segments of all lizards. Lizard i uses seg[offset[i]] to
+	 * seg[offset[i] + len[i] - 1] as a ring whose tail is at position start[i].
+	 */
+	private int[] seg;
+	private int[] offset;
+	private int[] len;
+	private int[] start;
+	private boolean[] alive;
+
+	/**
+	 * Number of lizard slots in use, alive or not.
+	 */
+	private int count;
+
+	/**
+	 * Number of lizards still on the grid.
+	 */
+	private int remaining;
+
+	/**
+	 * The lizard on each cell plus one, or 0 for none.
+	 */
+	private int[] occ;
+
+	/**
+	 * Creates a board for the starting position of a level.
+	 *
+	 * @param level the level
+	 */
+	public SolverBoard(LevelTemplate level) {
+		width = level.getWidth();
+		height = level.getHeight();
+		wall = new boolean[width * height];
+		exit = new boolean[width * height];
+		level.getWalls().stream().forEach(i -> wall[i] = true);
+		level.getExits().stream().forEach(i -> exit[i] = true);
+		cellBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(width * height));
+		occ = new int[width * height];
+
+		// Keep the reflections and rotations that map walls onto walls and exits onto exits
+		List<int[]> cells = new ArrayList<>();
+		List<int[]> dirs = new ArrayList<>();
+		for (int t = 0; t < (width == height ? 8 : 4); t++) {
+			int[] map = new int[width * height];
+			boolean invariant = true;
+			for (int c = 0; c < map.length && invariant; c++) {
+				map[c] = transform(t, c % width, c / width);
+				invariant = wall[c] == wall[map[c]] && exit[c] == exit[map[c]];
+			}
+			if (invariant) {
+				int[] dir = new int[DIRECTIONS.length];
+				for (Direction d : DIRECTIONS) {
+					dir[d.ordinal()] = SYMMETRY_DIRECTIONS[t][d.ordinal()].ordinal();
+				}
+				cells.add(map);
+				dirs.add(dir);
+			}
+		}
+		cellMaps = cells.toArray(new int[0][]);
+		dirMaps = dirs.toArray(new int[0][]);
+		inverseOf = new int[cellMaps.length];
+		for (int t = 0; t < cellMaps.length; t++) {
+			for (int u = 0; u < cellMaps.length; u++) {
+				boolean undoes = true;
+				for (int c = 0; c < cellMaps[t].length && undoes; c++) {
+					undoes = cellMaps[u][cellMaps[t][c]] == c;
+				}
+				if (undoes) {
+					inverseOf[t] = u;
+					break;
+				}
+			}
+		}
+		setLizards(level.getAllLizardCells());
+	}
+
+	/**
+	 * Creates a board for the current position of a game.
+	 *
+	 * @param game the game to copy
+	 * @return the new board
+	 */
+	public static SolverBoard of(LizardGame game) {
+		return new SolverBoard(LevelTemplate.snapshot(game));
+	}
+
+	/**
+	 * Creates a copy of the given board sharing its walls and exits.
+	 *
+	 * @param other the board to copy
+	 */
+	private SolverBoard(SolverBoard other) {
+		width = other.width;
+		height = other.height;
+		wall = other.wall;
+		exit = other.exit;
+		cellBits = other.cellBits;
+		cellMaps = other.cellMaps;
+		dirMaps = other.dirMaps;
+		inverseOf = other.inverseOf;
+		seg = other.seg.clone();
+		offset = other.offset.clone();
+		len = other.len.clone();
+		start = other.start.clone();
+		alive = other.alive.clone();
+		count = other.count;
+		remaining = other.remaining;
+		occ = other.occ.clone();
+	}
+
+	/**
+	 * @return an independent copy of this board
+	 */
+	public SolverBoard copy() {
+		return new SolverBoard(this);
+	}
+
+	/**
+	 * Makes this board the same as another board of the same level without
+	 * allocating, as long as this board is at least as large.
+	 *
+	 * @param other the board to copy
+	 */
+	public void copyFrom(SolverBoard other) {
+		if (seg.length < other.seg.length || offset.length < other.count) {
+			seg = new int[other.seg.length];
+			offset = new int[other.offset.length];
+			len = new int[other.offset.length];
+			start = new int[other.offset.length];
+			alive = new boolean[other.offset.length];
+		}
+		System.arraycopy(other.seg, 0, seg, 0, other.seg.length);
+		System.arraycopy(other.offset, 0, offset, 0, other.count);
+		System.arraycopy(other.len, 0, len, 0, other.count);
+		System.arraycopy(other.start, 0, start, 0, other.count);
+		System.arraycopy(other.alive, 0, alive, 0, other.count);
+		System.arraycopy(other.occ, 0, occ, 0, occ.length);
+		count = other.count;
+		remaining = other.remaining;
+	}
+
+	/**
+	 * Removes every lizard, leaving the board in its solved state.
+	 */
+	public void clearLizards() {
+		setLizards(List.of());
+	}
+
+	/**
+	 * Puts a new lizard on the board, for searches that work back from the goal.
+	 * The cells must be free.
+	 *
+	 * @param cells cell indices of the lizard from tail to head
+	 */
+	public void addLizard(int[] cells) {
+		int used = count == 0 ? 0 : offset[count - 1] + len[count - 1];
+		if (seg.length < used + cells.length) {
+			seg = Arrays.copyOf(seg, used + cells.length);
+		}
+		if (offset.length == count) {
+			offset = Arrays.copyOf(offset, count + 1);
+			len = Arrays.copyOf(len, count + 1);
+			start = Arrays.copyOf(start, count + 1);
+			alive = Arrays.copyOf(alive, count + 1);
+		}
+		offset[count] = used;
+		len[count] = cells.length;
+		start[count] = 0;
+		alive[count] = true;
+		for (int k = 0; k < cells.length; k++) {
+			seg[used + k] = cells[k];
+			occ[cells[k]] = count + 1;
+		}
+		count++;
+		remaining++;
+	}
+
+	/**
+	 * Replaces the lizards of this board with those of the given game, keeping
+	 * the walls and exits. The game must be on the same level.
+	 *
+	 * @param game the game whose lizards to copy
+	 */
+	public void syncLizards(LizardGame game) {
+		List<int[]> paths = new ArrayList<>();
+		for (Lizard l : game.getLizards()) {
+			List<BodySegment> segments = l.segmentList();
+			int[] cells = new int[segments.size()];
+			for (int i = 0; i < cells.length; i++) {
+				Cell cell = segments.get(i).getCell();
+				cells[i] = cell.getRow() * width + cell.getCol();
+			}
+			paths.add(cells);
+		}
+		setLizards(paths);
+	}
+
+	/**
+	 * @return number of columns
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return number of rows
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @param cell index of a cell
+	 * @return true if the cell holds a wall
+	 */
+	public boolean isWall(int cell) {
+		return wall[cell];
+	}
+
+	/**
+	 * @param cell index of a cell
+	 * @return true if the cell holds an exit
+	 */
+	public boolean isExit(int cell) {
+		return exit[cell];
+	}
+
+	/**
+	 * @param cell index of a cell
+	 * @return the index of the lizard on the cell, or -1 if there is none
+	 */
+	public int lizardAt(int cell) {
+		return occ[cell] - 1;
+	}
+
+	/**
+	 * @return number of lizard slots, including lizards that have exited
+	 */
+	public int getLizardSlots() {
+		return count;
+	}
+
+	/**
+	 * @param lizard index of a lizard slot
+	 * @return true if the lizard is still on the grid
+	 */
+	public boolean isAlive(int lizard) {
+		return alive[lizard];
+	}
+
+	/**
+	 * @param lizard index of a lizard slot
+	 * @return number of segments of the lizard
+	 */
+	public int getLength(int lizard) {
+		return len[lizard];
+	}
+
+	/**
+	 * @param lizard index of a lizard slot
+	 * @param k      position of the segment counted from the tail
+	 * @return cell index of the segment
+	 */
+	public int getSegment(int lizard, int k) {
+		return seg[offset[lizard] + (start[lizard] + k) % len[lizard]];
+	}
+
+	/**
+	 * @param lizard index of a lizard slot
+	 * @return cell index of the lizard's head
+	 */
+	public int head(int lizard) {
+		return getSegment(lizard, len[lizard] - 1);
+	}
+
+	/**
+	 * @param lizard index of a lizard slot
+	 * @return cell index of the lizard's tail
+	 */
+	public int tail(int lizard) {
+		return seg[offset[lizard] + start[lizard]];
+	}
+
+	/**
+	 * @return number of lizards still on the grid
+	 */
+	public int remaining() {
+		return remaining;
+	}
+
+	/**
+	 * @return true if every lizard has exited
+	 */
+	public boolean isSolved() {
+		return remaining == 0;
+	}
+
+	/**
+	 * Gets the cell next to the given one in the given direction.
+	 *
+	 * @param cell      index of a cell
+	 * @param direction ordinal of a direction
+	 * @return index of the neighbouring cell, or -1 if it is outside the grid
+	 */
+	public int neighbor(int cell, int direction) {
+		int col = cell % width + DCOL[direction];
+		int row = cell / width + DROW[direction];
+		if (col < 0 || row < 0 || col >= width || row >= height) {
+			return -1;
+		}
+		return row * width + col;
+	}
+
+	/**
+	 * @param cell index of a cell, or -1
+	 * @return true if a lizard may move into the cell
+	 */
+	public boolean isFree(int cell) {
+		return cell >= 0 && !wall[cell] && occ[cell] == 0;
+	}
+
+	/**
+	 * @return the largest number of moves {@link #moves(int[])} can produce
+	 */
+	public int maxMoves() {
+		return 8 * count;
+	}
+
+	/**
+	 * Lists every legal move.
+	 *
+	 * @param out array of at least {@link #maxMoves()} entries to fill
+	 * @return number of moves written
+	 */
+	public int moves(int[] out) {
+		int n = 0;
+		for (int i = 0; i < count; i++) {
+			if (!alive[i]) {
+				continue;
+			}
+			int h = head(i);
+			for (int d = 0; d < 4; d++) {
+				if (isFree(neighbor(h, d))) {
+					out[n++] = i << 3 | d;
+				}
+			}
+			if (len[i] > 1) {
+				int t = tail(i);
+				for (int d = 0; d < 4; d++) {
+					if (isFree(neighbor(t, d))) {
+						out[n++] = i << 3 | BACKWARD | d;
+					}
+				}
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * @param move a board move
+	 * @return true if the move is legal on this board
+	 */
+	public boolean isLegal(int move) {
+		int i = move >>> 3;
+		if (i >= count || !alive[i]) {
+			return false;
+		}
+		int from = (move & BACKWARD) != 0 ? tail(i) : head(i);
+		return isFree(neighbor(from, move & 3));
+	}
+
+	/**
+	 * Applies a legal move. The result of applying an illegal move is undefined.
+	 *
+	 * @param move a board move
+	 * @return true if the lizard left the grid through an exit
+	 */
+	public boolean apply(int move) {
+		int i = move >>> 3;
+		int d = move & 3;
+		int base = offset[i];
+		int n = len[i];
+		if ((move & BACKWARD) == 0) {
+			// The tail's slot becomes the new head
+			int to = neighbor(head(i), d);
+			occ[seg[base + start[i]]] = 0;
+			seg[base + start[i]] = to;
+			start[i] = (start[i] + 1) % n;
+			occ[to] = i + 1;
+		} else {
+			// The head's slot becomes the new tail
+			int to = neighbor(tail(i), d);
+			int headSlot = (start[i] + n - 1) % n;
+			occ[seg[base + headSlot]] = 0;
+			start[i] = headSlot;
+			seg[base + headSlot] = to;
+			occ[to] = i + 1;
+		}
+
+		if (exit[head(i)] || exit[tail(i)]) {
+			for (int k = 0; k < n; k++) {
+				occ[seg[base + k]] = 0;
+			}
+			alive[i] = false;
+			remaining--;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Converts a board move into the equivalent move for
+	 * {@link LizardGame#move(int, int, Direction)}, packed with
+	 * {@link LizardGame#packMove(int, int, Direction)}.
+	 *
+	 * @param move a board move
+	 * @return the packed game move
+	 */
+	public int toGameMove(int move) {
+		int i = move >>> 3;
+		int from = (move & BACKWARD) != 0 ? tail(i) : head(i);
+		return LizardGame.packMove(from % width, from / width, DIRECTIONS[move & 3]);
+	}
+
+	/**
+	 * Finds the board move equivalent to a packed game move.
+	 *
+	 * @param gameMove a move packed with LizardGame.packMove
+	 * @return the legal board move, or -1 if the game move would do nothing
+	 */
+	public int fromGameMove(int gameMove) {
+		int col = LizardGame.unpackCol(gameMove);
+		int row = LizardGame.unpackRow(gameMove);
+		if (col >= width || row >= height) {
+			return -1;
+		}
+		int cell = row * width + col;
+		int i = occ[cell] - 1;
+		if (i < 0) {
+			return -1;
+		}
+		int d = LizardGame.unpackDirection(gameMove).ordinal();
+		int move;
+		if (cell == head(i)) {
+			move = i << 3 | d;
+		} else if (cell == tail(i)) {
+			move = i << 3 | BACKWARD | d;
+		} else {
+			// A middle segment moves the lizard along its body
+			int k = 0;
+			while (getSegment(i, k) != cell) {
+				k++;
+			}
+			int to = neighbor(cell, d);
+			if (to == getSegment(i, k + 1)) {
+				move = i << 3 | directionOf(head(i), getSegment(i, len[i] - 2), true);
+			} else if (to == getSegment(i, k - 1)) {
+				move = i << 3 | BACKWARD | directionOf(tail(i), getSegment(i, 1), true);
+			} else {
+				return -1;
+			}
+		}
+		return isLegal(move) ? move : -1;
+	}
+
+	/**
+	 * Encodes the positions of the lizards still on the grid. Lizards are listed
+	 * by tail cell and described by length and shape only, so the key does not
+	 * depend on the order or identity of the lizards.
+	 *
+	 * @return the key of the current state
+	 */
+	public StateKey key() {
+		long[] bits = new long[keyWords()];
+		encode(0, false, bits);
+		return new StateKey(bits);
+	}
+
+	/**
+	 * Encodes the current state in a form shared by every equivalent state: the
+	 * grid may be reflected or rotated by any symmetry of the walls and exits,
+	 * and each lizard may be read from either end, since a lizard can move head
+	 * or tail first and leaves through either. The smallest encoding is chosen.
+	 * The symmetry used is available from {@link #getCanonicalSymmetry()}.
+	 *
+	 * @return the canonical key of the current state
+	 */
+	public StateKey canonicalKey() {
+		int words = keyWords();
+		long[] best = new long[words];
+		encode(0, true, best);
+		canonicalSymmetry = 0;
+		if (cellMaps.length > 1) {
+			long[] trial = trialBits != null && trialBits.length == words ? trialBits : new long[words];
+			for (int t = 1; t < cellMaps.length; t++) {
+				Arrays.fill(trial, 0);
+				encode(t, true, trial);
+				if (Arrays.compare(trial, best) < 0) {
+					long[] swap = best;
+					best = trial;
+					trial = swap;
+					canonicalSymmetry = t;
+				}
+			}
+			trialBits = trial;
+		}
+		return new StateKey(best);
+	}
+
+	/**
+	 * @return the symmetry that maps this board onto the state returned by the
+	 *         last call to {@link #canonicalKey()}
+	 */
+	public int getCanonicalSymmetry() {
+		return canonicalSymmetry;
+	}
+
+	/**
+	 * @return number of reflections and rotations, including the identity, that
+	 *         leave the walls and exits unchanged
+	 */
+	public int getSymmetryCount() {
+		return cellMaps.length;
+	}
+
+	/**
+	 * Maps a packed game move through a symmetry of the grid, for example from
+	 * this board into the frame of its canonical key.
+	 *
+	 * @param gameMove a move packed with LizardGame.packMove
+	 * @param symmetry index of a symmetry, less than getSymmetryCount()
+	 * @param inverse  true to apply the inverse symmetry instead
+	 * @return the mapped move
+	 */
+	public int mapGameMove(int gameMove, int symmetry, boolean inverse) {
+		int t = inverse ? inverseOf[symmetry] : symmetry;
+		int cell = cellMaps[t][LizardGame.unpackRow(gameMove) * width + LizardGame.unpackCol(gameMove)];
+		int d = dirMaps[t][LizardGame.unpackDirection(gameMove).ordinal()];
+		return LizardGame.packMove(cell % width, cell / width, DIRECTIONS[d]);
+	}
+
+	/**
+	 * Private helper method that gives the number of longs of a key of the
+	 * current state, which only depends on the lengths of the live lizards.
+	 *
+	 * @return number of longs
+	 */
+	private int keyWords() {
+		int bitCount = LENGTH_BITS;
+		for (int i = 0; i < count; i++) {
+			if (alive[i]) {
+				bitCount += cellBits + LENGTH_BITS + 2 * (len[i] - 1);
+			}
+		}
+		return (bitCount + 63) / 64;
+	}
+
+	/**
+	 * Private helper method that encodes the live lizards as seen through a
+	 * symmetry of the grid.
+	 *
+	 * @param symmetry  index of the symmetry, 0 for the identity
+	 * @param normalize true to read each lizard from its smaller end cell rather
+	 *                  than from its tail
+	 * @param bits      zeroed array of keyWords() longs to write the key into
+	 */
+	private void encode(int symmetry, boolean normalize, long[] bits) {
+		int[] map = cellMaps[symmetry];
+		if (order == null || order.length < count) {
+			order = new int[count];
+			first = new int[count];
+			reversed = new boolean[count];
+		}
+
+		// Order the live lizards by first cell with an insertion sort (few lizards)
+		int n = 0;
+		for (int i = 0; i < count; i++) {
+			if (!alive[i]) {
+				continue;
+			}
+			first[i] = map[tail(i)];
+			reversed[i] = normalize && map[head(i)] < first[i];
+			if (reversed[i]) {
+				first[i] = map[head(i)];
+			}
+			int j = n++;
+			while (j > 0 && first[order[j - 1]] > first[i]) {
+				order[j] = order[j - 1];
+				j--;
+			}
+			order[j] = i;
+		}
+
+		int pos = write(bits, 0, n, LENGTH_BITS);
+		for (int k = 0; k < n; k++) {
+			int i = order[k];
+			pos = write(bits, pos, first[i], cellBits);
+			pos = write(bits, pos, len[i], LENGTH_BITS);
+			int prev = first[i];
+			for (int s = 1; s < len[i]; s++) {
+				int cell = map[getSegment(i, reversed[i] ? len[i] - 1 - s : s)];
+				pos = write(bits, pos, directionOf(prev, cell, false), 2);
+				prev = cell;
+			}
+		}
+	}
+
+	/**
+	 * Sets the lizards of this board from a key produced by a board of the same
+	 * level. Lizard indices after loading follow the order of the key.
+	 *
+	 * @param key the state to load
+	 */
+	public void load(StateKey key) {
+		long[] bits = key.bits();
+		int n = (int) read(bits, 0, LENGTH_BITS);
+		int pos = LENGTH_BITS;
+		List<int[]> paths = new ArrayList<>(n);
+		for (int k = 0; k < n; k++) {
+			int cell = (int) read(bits, pos, cellBits);
+			pos += cellBits;
+			int length = (int) read(bits, pos, LENGTH_BITS);
+			pos += LENGTH_BITS;
+			int[] cells = new int[length];
+			cells[0] = cell;
+			for (int s = 1; s < length; s++) {
+				cell = neighbor(cell, (int) read(bits, pos, 2));
+				pos += 2;
+				cells[s] = cell;
+			}
+			paths.add(cells);
+		}
+		setLizards(paths);
+	}
+
+	/**
+	 * Private helper method that applies one of the eight reflections and
+	 * rotations of the grid to a cell. The first four keep the grid's shape; the
+	 * others swap rows and columns and need a square grid.
+	 *
+	 * @param t   index of the transform, 0 for the identity
+	 * @param col column of the cell
+	 * @param row row of the cell
+	 * @return index of the transformed cell
+	 */
+	private int transform(int t, int col, int row) {
+		int lastCol = width - 1;
+		int lastRow = height - 1;
+		switch (t) {
+		case 1:
+			return row * width + (lastCol - col); // Mirror left to right
+		case 2:
+			return (lastRow - row) * width + col; // Mirror top to bottom
+		case 3:
+			return (lastRow - row) * width + (lastCol - col); // Half turn
+		case 4:
+			return col * width + row; // Mirror on the main diagonal
+		case 5:
+			return col * width + (lastRow - row); // Quarter turn clockwise
+		case 6:
+			return (lastCol - col) * width + row; // Quarter turn counterclockwise
+		case 7:
+			return (lastCol - col) * width + (lastRow - row); // Mirror on the other diagonal
+		default:
+			return row * width + col;
+		}
+	}
+
+	/**
+	 * Private helper method that replaces all lizards.
+	 *
+	 * @param paths cell indices of each lizard from tail to head
+	 */
+	private void setLizards(List<int[]> paths) {
+		int total = 0;
+		for (int[] p : paths) {
+			total += p.length;
+		}
+		if (seg == null || seg.length < total || offset.length < paths.size()) {
+			seg = new int[total];
+			offset = new int[paths.size()];
+			len = new int[paths.size()];
+			start = new int[paths.size()];
+			alive = new boolean[paths.size()];
+		}
+		Arrays.fill(occ, 0);
+		count = paths.size();
+		remaining = count;
+		int base = 0;
+		for (int i = 0; i < count; i++) {
+			int[] p = paths.get(i);
+			offset[i] = base;
+			len[i] = p.length;
+			start[i] = 0;
+			alive[i] = true;
+			for (int k = 0; k < p.length; k++) {
+				seg[base + k] = p[k];
+				occ[p[k]] = i + 1;
+			}
+			base += p.length;
+		}
+	}
+
+	/**
+	 * Private helper method that gives the direction from one cell to an adjacent
+	 * cell.
+	 *
+	 * @param from    index of the first cell
+	 * @param to      index of the adjacent cell
+	 * @param reverse true to give the direction from to towards from instead
+	 * @return ordinal of the direction
+	 */
+	private int directionOf(int from, int to, boolean reverse) {
+		int d;
+		if (to == from - width) {
+			d = Direction.UP.ordinal();
+		} else if (to == from + width) {
+			d = Direction.DOWN.ordinal();
+		} else if (to == from + 1) {
+			d = Direction.RIGHT.ordinal();
+		} else {
+			d = Direction.LEFT.ordinal();
+		}
+		if (!reverse) {
+			return d;
+		}
+		return d == Direction.UP.ordinal() ? Direction.DOWN.ordinal()
+				: d == Direction.DOWN.ordinal() ? Direction.UP.ordinal()
+						: d == Direction.RIGHT.ordinal() ? Direction.LEFT.ordinal() : Direction.RIGHT.ordinal();
+	}
+
+	/**
+	 * Private helper method that writes a value of at most the given width into a
+	 * bit array.
+	 *
+	 * @param bits  the bit array
+	 * @param pos   index of the first bit to write
+	 * @param value the value
+	 * @param width number of bits to write, at most 32
+	 * @return index of the bit after the value
+	 */
+	private static int write(long[] bits, int pos, long value, int width) {
+		int word = pos >>> 6;
+		int shift = pos & 63;
+		bits[word] |= value << shift;
+		if (shift + width > 64) {
+			bits[word + 1] |= value >>> (64 - shift);
+		}
+		return pos + width;
+	}
+
+	/**
+	 * Private helper method that reads a value from a bit array.
+	 *
+	 * @param bits  the bit array
+	 * @param pos   index of the first bit to read
+	 * @param width number of bits to read, at most 32
+	 * @return the value
+	 */
+	private static long read(long[] bits, int pos, int width) {
+		int word = pos >>> 6;
+		int shift = pos & 63;
+		long value = bits[word] >>> shift;
+		if (shift + width > 64) {
+			value |= bits[word + 1] << (64 - shift);
+		}
+		return value & ((1L << width) - 1);
+	}
+}
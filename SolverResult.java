@@ -0,0 +1,89 @@
+package hw3;
+
+import java.util.List;
+
+/**
+ * The outcome of a search by {@link Solver}.
+ *
+ * @author Muhammad Blal
+ */
+public class SolverResult {
+	private final boolean solved;
+	private final boolean complete;
+	private final int[] moves;
+	private final List<StateKey> path;
+	private final long nodesExpanded;
+	private final long statesSeen;
+
+	/**
+	 * Constructs a result.
+	 *
+	 * @param solved        true if a solution was found
+	 * @param complete      true if the search was not stopped by its budget or an
+	 *                      interrupt
+	 * @param moves         the solution as packed game moves, empty if unsolved
+	 * @param path          the states along the solution, one more than moves
+	 * @param nodesExpanded number of states whose moves were generated
+	 * @param statesSeen    number of distinct states found
+	 */
+	public SolverResult(boolean solved, boolean complete, int[] moves, List<StateKey> path, long nodesExpanded,
+			long statesSeen) {
+		this.solved = solved;
+		this.complete = complete;
+		this.moves = moves;
+		this.path = path;
+		this.nodesExpanded = nodesExpanded;
+		this.statesSeen = statesSeen;
+	}
+
+	/**
+	 * @return true if a solution was found
+	 */
+	public boolean isSolved() {
+		return solved;
+	}
+
+	/**
+	 * @return true if the search ran to the end, so an unsolved result means the
+	 *         level cannot be solved from the start state
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * @return the shortest solution as moves packed with
+	 *         {@link LizardGame#packMove(int, int, api.Direction)}
+	 */
+	public int[] getMoves() {
+		return moves.clone();
+	}
+
+	/**
+	 * @return the states along the solution; state i is the one before move i and
+	 *         the last state has no lizards
+	 */
+	public List<StateKey> getPath() {
+		return path;
+	}
+
+	/**
+	 * @return number of states whose moves were generated
+	 */
+	public long getNodesExpanded() {
+		return nodesExpanded;
+	}
+
+	/**
+	 * @return number of distinct states found
+	 */
+	public long getStatesSeen() {
+		return statesSeen;
+	}
+
+	@Override
+	public String toString() {
+		return "SolverResult[solved=" + solved + ", complete=" + complete + ", moves=" + moves.length + ", expanded="
+				+ nodesExpanded + ", seen=" + statesSeen + "]";
+	}
+}
@@ -0,0 +1,228 @@
+package hw3;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A uniform bucket grid over the cells occupied by lizard segments, for
+ * questions such as "which lizards are inside this rectangle" or "which lizard
+ * is closest to this exit" without scanning every lizard and segment.
+ * <p>
+ * The grid is divided into square buckets of {@link #BUCKET_SIZE} cells. Each
+ * bucket counts the segments of each lizard inside it, so a rectangle query
+ * only looks at individual cells along its border and takes whole buckets for
+ * the inside, and a nearest query visits buckets in rings around the point and
+ * stops as soon as no further ring can hold anything closer.
+ * <p>
+ * The index is kept up to date by {@link LizardGame} as lizards are added,
+ * removed and moved; see {@link LizardGame#getSpatialIndex()}.
+ *
+ * @author Muhammad Blal
+ */
+public class SpatialLizardIndex {
+	/**
+	 * Number of columns and rows covered by one bucket.
+	 */
+	public static final int BUCKET_SIZE = 8;
+
+	private final int width;
+	private final int height;
+
+	/**
+	 * Number of bucket columns.
+	 */
+	private final int bucketCols;
+
+	/**
+	 * The lizard on each cell, indexed by row * width + col, or null.
+	 */
+	private final Lizard[] occupant;
+
+	/**
+	 * Number of segments of each lizard in each bucket, indexed by
+	 * bucketRow * bucketCols + bucketCol.
+	 */
+	private final ArrayList<HashMap<Lizard, Integer>> buckets;
+
+	/**
+	 * Creates an empty index for a grid of the given size.
+	 *
+	 * @param width  number of columns
+	 * @param height number of rows
+	 */
+	public SpatialLizardIndex(int width, int height) {
+		this.width = width;
+		this.height = height;
+		bucketCols = (width + BUCKET_SIZE - 1) / BUCKET_SIZE;
+		int bucketRows = (height + BUCKET_SIZE - 1) / BUCKET_SIZE;
+		occupant = new Lizard[width * height];
+		buckets = new ArrayList<>(bucketCols * bucketRows);
+		for (int i = 0; i < bucketCols * bucketRows; i++) {
+			buckets.add(new HashMap<>(4));
+		}
+	}
+
+	/**
+	 * Records a segment of the given lizard on the given cell.
+	 *
+	 * @param lizard the lizard
+	 * @param col    column of the segment
+	 * @param row    row of the segment
+	 */
+	void add(Lizard lizard, int col, int row) {
+		occupant[row * width + col] = lizard;
+		buckets.get(bucketOf(col, row)).merge(lizard, 1, Integer::sum);
+	}
+
+	/**
+	 * Forgets a segment of the given lizard on the given cell.
+	 *
+	 * @param lizard the lizard
+	 * @param col    column of the segment
+	 * @param row    row of the segment
+	 */
+	void remove(Lizard lizard, int col, int row) {
+		int index = row * width + col;
+		if (occupant[index] == lizard) {
+			occupant[index] = null;
+		}
+		buckets.get(bucketOf(col, row)).computeIfPresent(lizard, (l, n) -> n == 1 ? null : n - 1);
+	}
+
+	/**
+	 * Gets the lizard on the given cell.
+	 *
+	 * @param col column of the cell
+	 * @param row row of the cell
+	 * @return the lizard, or null if there is none or the cell is outside the grid
+	 */
+	public Lizard lizardAt(int col, int row) {
+		if (col < 0 || row < 0 || col >= width || row >= height) {
+			return null;
+		}
+		return occupant[row * width + col];
+	}
+
+	/**
+	 * Gets every lizard with at least one segment inside the given rectangle. The
+	 * corners are inclusive and may lie outside the grid.
+	 *
+	 * @param col0 left column
+	 * @param row0 top row
+	 * @param col1 right column
+	 * @param row1 bottom row
+	 * @return the lizards found, each once
+	 */
+	public Set<Lizard> lizardsIn(int col0, int row0, int col1, int row1) {
+		Set<Lizard> result = new LinkedHashSet<>();
+		col0 = Math.max(col0, 0);
+		row0 = Math.max(row0, 0);
+		col1 = Math.min(col1, width - 1);
+		row1 = Math.min(row1, height - 1);
+		if (col0 > col1 || row0 > row1) {
+			return result;
+		}
+		for (int by = row0 / BUCKET_SIZE; by <= row1 / BUCKET_SIZE; by++) {
+			for (int bx = col0 / BUCKET_SIZE; bx <= col1 / BUCKET_SIZE; bx++) {
+				HashMap<Lizard, Integer> bucket = buckets.get(by * bucketCols + bx);
+				if (bucket.isEmpty()) {
+					continue;
+				}
+				int left = bx * BUCKET_SIZE;
+				int top = by * BUCKET_SIZE;
+				int right = Math.min(left + BUCKET_SIZE, width) - 1;
+				int bottom = Math.min(top + BUCKET_SIZE, height) - 1;
+				if (left >= col0 && right <= col1 && top >= row0 && bottom <= row1) {
+					// The whole bucket is inside the rectangle
+					result.addAll(bucket.keySet());
+				} else {
+					// Only part of the bucket is inside, so look at its cells
+					for (int row = Math.max(top, row0); row <= Math.min(bottom, row1); row++) {
+						for (int col = Math.max(left, col0); col <= Math.min(right, col1); col++) {
+							Lizard l = occupant[row * width + col];
+							if (l != null) {
+								result.add(l);
+							}
+						}
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the lizard with a segment closest to the given cell, measured in
+	 * steps along rows and columns. Ties are broken arbitrarily.
+	 *
+	 * @param col column of the cell
+	 * @param row row of the cell
+	 * @return the closest lizard, or null if there are no lizards
+	 */
+	public Lizard nearest(int col, int row) {
+		int bucketRows = buckets.size() / Math.max(bucketCols, 1);
+		int bx = Math.min(Math.max(col, 0), width - 1) / BUCKET_SIZE;
+		int by = Math.min(Math.max(row, 0), height - 1) / BUCKET_SIZE;
+		int maxRing = Math.max(Math.max(bx, bucketCols - 1 - bx), Math.max(by, bucketRows - 1 - by));
+
+		Lizard best = null;
+		int bestDistance = Integer.MAX_VALUE;
+		for (int ring = 0; ring <= maxRing; ring++) {
+			for (int y = by - ring; y <= by + ring; y++) {
+				for (int x = bx - ring; x <= bx + ring; x++) {
+					// Only the buckets on the edge of the ring are new
+					boolean onEdge = Math.abs(y - by) == ring || Math.abs(x - bx) == ring;
+					if (!onEdge || x < 0 || y < 0 || x >= bucketCols || y >= bucketRows
+							|| buckets.get(y * bucketCols + x).isEmpty()) {
+						continue;
+					}
+					int top = y * BUCKET_SIZE;
+					int left = x * BUCKET_SIZE;
+					for (int r = top; r < Math.min(top + BUCKET_SIZE, height); r++) {
+						for (int c = left; c < Math.min(left + BUCKET_SIZE, width); c++) {
+							Lizard l = occupant[r * width + c];
+							int distance = Math.abs(c - col) + Math.abs(r - row);
+							if (l != null && distance < bestDistance) {
+								best = l;
+								bestDistance = distance;
+							}
+						}
+					}
+				}
+			}
+
+			// Every cell in the next ring is more than ring * BUCKET_SIZE steps away
+			if (best != null && bestDistance <= ring * BUCKET_SIZE) {
+				break;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Gets the number of segments of each lizard in the bucket holding the given
+	 * cell, for callers that want to cull by bucket.
+	 *
+	 * @param col column of the cell
+	 * @param row row of the cell
+	 * @return a read-only view of the bucket's segment counts
+	 */
+	public Map<Lizard, Integer> bucketAt(int col, int row) {
+		return Collections.unmodifiableMap(buckets.get(bucketOf(col, row)));
+	}
+
+	/**
+	 * Private helper method that finds the bucket holding a cell.
+	 *
+	 * @param col column of the cell
+	 * @param row row of the cell
+	 * @return index of the bucket
+	 */
+	private int bucketOf(int col, int row) {
+		return (row / BUCKET_SIZE) * bucketCols + col / BUCKET_SIZE;
+	}
+}
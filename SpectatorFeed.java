@@ -0,0 +1,488 @@
+package hw3;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import api.BodySegment;
+import api.Cell;
+import api.GameEvent;
+import api.GameEventListener;
+import api.LevelLoadedEvent;
+import api.LizardCountEvent;
+import api.LizardMovedEvent;
+import api.MovesBatchEvent;
+
+/**
+ * Streams a live game to any number of spectators over TCP on the loopback
+ * address. A spectator first receives a snapshot of the whole grid and then one
+ * small delta per move, read back with {@link SpectatorView}.
+ * <p>
+ * The feed follows the game through its event bus and keeps its own
+ * {@link SolverBoard} copy of the position, whose lizard slots are the ids used
+ * on the wire. Each delta is encoded once and shared by every spectator. One
+ * selector thread writes to all sockets without blocking, so the game never
+ * waits for a spectator. A spectator whose unsent data grows past the queue
+ * limit is too slow to keep up and is disconnected.
+ * <p>
+ * Every frame is a type byte and the length of the payload as an int,
+ * followed by the payload:
+ * <pre>
+ * SNAPSHOT  width, height (int), walls and exits as bit sets of
+ *           (width * height + 7) / 8 bytes each (cell row * width + col is
+ *           bit col % 8 of byte cell / 8), lizard count (int), then for each
+ *           lizard its id (short), length (int) and cells from tail to head
+ *           (int each)
+ * MOVE      lizard id (short), then one byte: direction ordinal, plus
+ *           {@link SolverBoard#BACKWARD} if the tail moved, plus EXITED if the
+ *           lizard left the grid
+ * </pre>
+ * A new snapshot is sent whenever a level is loaded, and with the next move
+ * after lizards were added or removed other than by exiting; ids start over
+ * with it.
+ *
+ * @author Muhammad Blal
+ */
+public class SpectatorFeed implements GameEventListener, AutoCloseable {
+	/**
+	 * Frame type of a snapshot.
+	 */
+	public static final byte SNAPSHOT = 1;
+
+	/**
+	 * Frame type of a move.
+	 */
+	public static final byte MOVE = 2;
+
+	/**
+	 * Flag of a move after which the lizard left the grid.
+	 */
+	public static final int EXITED = 8;
+
+	/**
+	 * Default limit on the unsent bytes of one spectator.
+	 */
+	public static final int DEFAULT_MAX_QUEUED_BYTES = 1 << 20;
+
+	/**
+	 * Size of the type and length before every payload.
+	 */
+	static final int HEADER_BYTES = 5;
+
+	private final LizardGame game;
+	private final int maxQueuedBytes;
+	private final Selector selector;
+	private final ServerSocketChannel server;
+
+	/**
+	 * Spectators with new data to write, picked up by the selector thread.
+	 */
+	private final ConcurrentLinkedQueue<Spectator> ready = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * The copy of the game, the ids of its lizards and the spectators, all
+	 * guarded by this feed's lock so that a new spectator gets a snapshot that
+	 * the following deltas apply to.
+	 */
+	private SolverBoard board;
+	private IdentityHashMap<Lizard, Integer> ids = new IdentityHashMap<>();
+	private final List<Spectator> spectators = new ArrayList<>();
+	private long dropped;
+
+	/**
+	 * True when the number of lizards no longer matches the copy, which is then
+	 * taken again before the next move is sent.
+	 */
+	private boolean stale;
+
+	/**
+	 * Starts a feed for a game on the given port of the loopback address.
+	 *
+	 * @param game           the game to follow
+	 * @param port           the port to listen on, or 0 for any free port
+	 * @param maxQueuedBytes unsent bytes after which a spectator is dropped
+	 * @throws IOException if the port cannot be opened
+	 */
+	public SpectatorFeed(LizardGame game, int port, int maxQueuedBytes) throws IOException {
+		this.game = game;
+		this.maxQueuedBytes = maxQueuedBytes;
+		resync();
+		selector = Selector.open();
+		server = ServerSocketChannel.open();
+		try {
+			server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 128);
+			server.configureBlocking(false);
+			server.register(selector, SelectionKey.OP_ACCEPT);
+		} catch (IOException e) {
+			server.close();
+			selector.close();
+			throw e;
+		}
+		game.getEventBus().subscribe(this);
+		Thread thread = new Thread(this::selectLoop, "lizard-spectator-feed");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * @return the port the feed is listening on
+	 */
+	public int getPort() {
+		return server.socket().getLocalPort();
+	}
+
+	/**
+	 * @return number of spectators connected
+	 */
+	public synchronized int getSpectatorCount() {
+		return spectators.size();
+	}
+
+	/**
+	 * @return number of spectators disconnected for falling behind
+	 */
+	public synchronized long getDroppedCount() {
+		return dropped;
+	}
+
+	/**
+	 * Stops following the game and disconnects every spectator.
+	 *
+	 * @throws IOException if the server socket cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		game.getEventBus().unsubscribe(this);
+		selector.close();
+		server.close();
+		synchronized (this) {
+			for (Spectator s : spectators) {
+				s.closeQuietly();
+			}
+			spectators.clear();
+		}
+	}
+
+	@Override
+	public void onEvent(GameEvent event) {
+		if (event instanceof LizardMovedEvent) {
+			LizardMovedEvent moved = (LizardMovedEvent) event;
+			onMove(moved.getLizard(), moved.isForward());
+		} else if (event instanceof MovesBatchEvent) {
+			MovesBatchEvent batch = (MovesBatchEvent) event;
+			onBatch(batch.getMoves(), batch.getResults());
+		} else if (event instanceof LevelLoadedEvent) {
+			resync();
+		} else if (event instanceof LizardCountEvent) {
+			synchronized (this) {
+				// Lizards were added or removed other than by exiting
+				stale |= ((LizardCountEvent) event).getCount() != board.remaining();
+			}
+		}
+	}
+
+	/**
+	 * Private helper method that sends the move of one lizard.
+	 *
+	 * @param lizard  the lizard, already moved
+	 * @param forward true if it moved head first
+	 */
+	private synchronized void onMove(Lizard lizard, boolean forward) {
+		if (stale) {
+			resync(); // The snapshot already shows this move
+			return;
+		}
+		Integer id = ids.get(lizard);
+		if (id == null) {
+			return;
+		}
+		List<BodySegment> segments = lizard.segmentList();
+		Cell moved = segments.get(forward ? segments.size() - 1 : 0).getCell();
+		int to = moved.getRow() * board.getWidth() + moved.getCol();
+		int from = forward ? board.head(id) : board.tail(id);
+		for (int d = 0; d < 4; d++) {
+			if (board.neighbor(from, d) == to) {
+				send(id << 3 | (forward ? 0 : SolverBoard.BACKWARD) | d);
+				return;
+			}
+		}
+		resync(); // The copy has lost track of the game
+	}
+
+	/**
+	 * Private helper method that sends the moves of a batch that were applied.
+	 *
+	 * @param moves   the packed game moves
+	 * @param results the result of each move
+	 */
+	private synchronized void onBatch(int[] moves, byte[] results) {
+		if (stale) {
+			resync();
+			return;
+		}
+		for (int i = 0; i < moves.length; i++) {
+			if (results[i] == LizardGame.MOVE_REJECTED) {
+				continue;
+			}
+			int move = board.fromGameMove(moves[i]);
+			if (move < 0) {
+				resync();
+				return;
+			}
+			send(move);
+		}
+	}
+
+	/**
+	 * Private helper method that applies a move to the copy and sends it to every
+	 * spectator.
+	 *
+	 * @param move a move of the copy
+	 */
+	private void send(int move) {
+		boolean exited = board.apply(move);
+		ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + 3);
+		frame.put(MOVE).putInt(3).putShort((short) (move >>> 3)).put((byte) ((move & 7) | (exited ? EXITED : 0)));
+		frame.flip();
+		broadcast(frame);
+	}
+
+	/**
+	 * Private helper method that copies the game again and sends the snapshot to
+	 * every spectator.
+	 */
+	private synchronized void resync() {
+		stale = false;
+		board = SolverBoard.of(game);
+		ids = new IdentityHashMap<>();
+		List<Lizard> lizards = game.getLizards();
+		for (int i = 0; i < lizards.size(); i++) {
+			ids.put(lizards.get(i), i);
+		}
+		broadcast(snapshot());
+	}
+
+	/**
+	 * Private helper method that encodes the copy of the game as a snapshot
+	 * frame.
+	 *
+	 * @return the frame, ready to read
+	 */
+	private ByteBuffer snapshot() {
+		int width = board.getWidth();
+		int cells = width * board.getHeight();
+		byte[] walls = new byte[(cells + 7) / 8];
+		byte[] exits = new byte[walls.length];
+		for (int cell = 0; cell < cells; cell++) {
+			if (board.isWall(cell)) {
+				walls[cell >>> 3] |= 1 << (cell & 7);
+			}
+			if (board.isExit(cell)) {
+				exits[cell >>> 3] |= 1 << (cell & 7);
+			}
+		}
+		int size = 8 + 2 * walls.length + 4;
+		for (int i = 0; i < board.getLizardSlots(); i++) {
+			if (board.isAlive(i)) {
+				size += 6 + 4 * board.getLength(i);
+			}
+		}
+		ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + size);
+		frame.put(SNAPSHOT).putInt(size).putInt(width).putInt(board.getHeight()).put(walls).put(exits)
+				.putInt(board.remaining());
+		for (int i = 0; i < board.getLizardSlots(); i++) {
+			if (board.isAlive(i)) {
+				frame.putShort((short) i).putInt(board.getLength(i));
+				for (int k = 0; k < board.getLength(i); k++) {
+					frame.putInt(board.getSegment(i, k));
+				}
+			}
+		}
+		frame.flip();
+		return frame;
+	}
+
+	/**
+	 * Private helper method that queues a frame for every spectator, dropping
+	 * those that are too far behind.
+	 *
+	 * @param frame the frame, shared read-only by all spectators
+	 */
+	private void broadcast(ByteBuffer frame) {
+		for (int i = spectators.size() - 1; i >= 0; i--) {
+			Spectator s = spectators.get(i);
+			if (!s.offer(frame.duplicate())) {
+				spectators.remove(i);
+				s.closeQuietly();
+				dropped++;
+			}
+		}
+		if (!spectators.isEmpty()) {
+			selector.wakeup();
+		}
+	}
+
+	/**
+	 * Private helper method that accepts spectators and writes their queued
+	 * frames until the feed is closed.
+	 */
+	private void selectLoop() {
+		try {
+			while (selector.isOpen()) {
+				selector.select();
+				Spectator s;
+				while ((s = ready.poll()) != null) {
+					if (s.key.isValid()) {
+						s.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+					}
+				}
+				for (SelectionKey key : selector.selectedKeys()) {
+					if (!key.isValid()) {
+						continue;
+					}
+					if (key.isAcceptable()) {
+						accept();
+					} else {
+						Spectator spectator = (Spectator) key.attachment();
+						if (key.isReadable()) {
+							spectator.read();
+						}
+						if (key.isValid() && key.isWritable() && !spectator.write()) {
+							spectator.disconnect();
+						}
+					}
+				}
+				selector.selectedKeys().clear();
+			}
+		} catch (IOException | ClosedSelectorException e) {
+			// The feed was closed
+		}
+	}
+
+	/**
+	 * Private helper method that accepts a spectator and queues the current
+	 * snapshot for it, dropping it if the snapshot alone is over the limit.
+	 *
+	 * @throws IOException if the selector fails
+	 */
+	private void accept() throws IOException {
+		SocketChannel channel = server.accept();
+		if (channel == null) {
+			return;
+		}
+		channel.configureBlocking(false);
+		channel.socket().setTcpNoDelay(true);
+		Spectator spectator = new Spectator(channel);
+		spectator.key = channel.register(selector, SelectionKey.OP_READ, spectator);
+		synchronized (this) {
+			if (!spectator.offer(snapshot())) {
+				// A spectator without a snapshot would skip every move, so drop it now
+				spectator.closeQuietly();
+				dropped++;
+				return;
+			}
+			spectators.add(spectator);
+		}
+		// The ready queue was drained before the keys were handled and nothing wakes
+		// the selector, so ask for the snapshot to be written here on the selector thread
+		spectator.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+	}
+
+	/**
+	 * One connected spectator and the frames it has not received yet.
+	 */
+	private class Spectator {
+		private final SocketChannel channel;
+		private final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>();
+		private final ByteBuffer scratch = ByteBuffer.allocate(256);
+		private SelectionKey key;
+		private int queuedBytes;
+
+		private Spectator(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		/**
+		 * Queues a frame unless that would go over the limit.
+		 *
+		 * @param frame the frame
+		 * @return false if the spectator is too far behind and must be dropped
+		 */
+		private synchronized boolean offer(ByteBuffer frame) {
+			if (queuedBytes + frame.remaining() > maxQueuedBytes) {
+				return false;
+			}
+			boolean wasEmpty = queue.isEmpty();
+			queue.add(frame);
+			queuedBytes += frame.remaining();
+			if (wasEmpty) {
+				ready.add(this);
+			}
+			return true;
+		}
+
+		/**
+		 * Writes as much as the socket takes without blocking, and stops asking
+		 * to write once everything is sent.
+		 *
+		 * @return false if the connection failed
+		 */
+		private synchronized boolean write() {
+			try {
+				while (!queue.isEmpty()) {
+					ByteBuffer frame = queue.peek();
+					int written = channel.write(frame);
+					queuedBytes -= written;
+					if (frame.hasRemaining()) {
+						return true; // The socket is full, wait until it is writable again
+					}
+					queue.poll();
+				}
+				key.interestOps(SelectionKey.OP_READ);
+				return true;
+			} catch (IOException e) {
+				return false;
+			}
+		}
+
+		/**
+		 * Discards anything the spectator sends and notices when it leaves.
+		 */
+		private void read() {
+			try {
+				scratch.clear();
+				if (channel.read(scratch) < 0) {
+					disconnect();
+				}
+			} catch (IOException e) {
+				disconnect();
+			}
+		}
+
+		private void disconnect() {
+			synchronized (SpectatorFeed.this) {
+				spectators.remove(this);
+			}
+			closeQuietly();
+		}
+
+		private void closeQuietly() {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// Already gone
+			}
+		}
+	}
+}
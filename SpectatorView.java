@@ -0,0 +1,122 @@
+package hw3;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The spectator's side of a {@link SpectatorFeed}: reads the frames of the feed
+ * from a stream and keeps the position they describe on a {@link SolverBoard}.
+ *
+ * @author Muhammad Blal
+ */
+public class SpectatorView {
+	private final DataInputStream in;
+	private SolverBoard board;
+
+	/**
+	 * Board slot of each lizard id of the last snapshot.
+	 */
+	private int[] slots = new int[0];
+
+	/**
+	 * Constructs a view reading from the given stream, for example the input of
+	 * a socket connected to the feed.
+	 *
+	 * @param in the stream
+	 */
+	public SpectatorView(InputStream in) {
+		this.in = new DataInputStream(in);
+	}
+
+	/**
+	 * @return the position as of the last frame read, or null before the first
+	 *         snapshot
+	 */
+	public SolverBoard getBoard() {
+		return board;
+	}
+
+	/**
+	 * Reads one frame and applies it.
+	 *
+	 * @return the type of the frame, SpectatorFeed.SNAPSHOT or
+	 *         SpectatorFeed.MOVE, or -1 at the end of the stream
+	 * @throws IOException if the stream cannot be read or holds a bad frame
+	 */
+	public int next() throws IOException {
+		int type = in.read();
+		if (type < 0) {
+			return -1;
+		}
+		int length = in.readInt();
+		if (type == SpectatorFeed.SNAPSHOT) {
+			readSnapshot();
+		} else if (type == SpectatorFeed.MOVE && board != null) {
+			int id = in.readShort();
+			int flags = in.readByte();
+			if (id < 0 || id >= slots.length || slots[id] < 0) {
+				throw new IOException("move of unknown lizard " + id);
+			}
+			board.apply(slots[id] << 3 | (flags & 7));
+		} else {
+			skip(length); // Unknown frames are left for newer spectators
+		}
+		return type;
+	}
+
+	/**
+	 * Private helper method that reads a snapshot and starts a new board.
+	 *
+	 * @throws IOException if the stream cannot be read
+	 */
+	private void readSnapshot() throws IOException {
+		int width = in.readInt();
+		int height = in.readInt();
+		byte[] bits = new byte[(width * height + 7) / 8];
+		in.readFully(bits);
+		BitSet walls = BitSet.valueOf(bits);
+		in.readFully(bits);
+		BitSet exits = BitSet.valueOf(bits);
+		int count = in.readInt();
+		List<int[]> lizards = new ArrayList<>(count);
+		int[] ids = new int[count];
+		int maxId = -1;
+		for (int i = 0; i < count; i++) {
+			ids[i] = in.readShort();
+			int[] cells = new int[in.readInt()];
+			for (int k = 0; k < cells.length; k++) {
+				cells[k] = in.readInt();
+			}
+			lizards.add(cells);
+			maxId = Math.max(maxId, ids[i]);
+		}
+		board = new SolverBoard(new LevelTemplate(width, height, walls, exits, lizards));
+		slots = new int[maxId + 1];
+		Arrays.fill(slots, -1);
+		for (int i = 0; i < count; i++) {
+			slots[ids[i]] = i;
+		}
+	}
+
+	/**
+	 * Private helper method that skips the payload of a frame.
+	 *
+	 * @param length number of bytes to skip
+	 * @throws IOException if the stream ends first
+	 */
+	private void skip(int length) throws IOException {
+		while (length > 0) {
+			int skipped = in.skipBytes(length);
+			if (skipped <= 0) {
+				throw new EOFException();
+			}
+			length -= skipped;
+		}
+	}
+}
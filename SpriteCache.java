@@ -0,0 +1,149 @@
+package ui;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.imageio.ImageIO;
+
+// Process-wide store of the game sprites. Each image is decoded the first time it
+// is asked for and then shared by every panel and renderer. Scaled copies are
+// kept per size, in the pixel format of the screen when there is one, so drawing
+// at any zoom level is a plain copy.
+//
+// Images are looked up on the classpath first, under /resources/ and then at the
+// root, and then in the working directory, under resources/ and then directly.
+// A sprite that cannot be found anywhere is replaced by a plain colored square,
+// so a missing file never stops the game.
+public final class SpriteCache {
+	public enum Sprite {
+		HEAD("head.png", new Color(0x4CAF50)),
+		SKIN("skin.png", new Color(0x2E7D32)),
+		WALL("wall.png", new Color(0x795548)),
+		EXIT("exit.png", new Color(0x90CAF9));
+
+		private final String filename;
+		private final Color fallback;
+
+		Sprite(String filename, Color fallback) {
+			this.filename = filename;
+			this.fallback = fallback;
+		}
+
+		public String getFilename() {
+			return filename;
+		}
+	}
+
+	private static final int FALLBACK_SIZE = 30;
+	private static final ConcurrentHashMap<Sprite, BufferedImage> ORIGINALS = new ConcurrentHashMap<>();
+	private static final ConcurrentHashMap<ScaledKey, BufferedImage> SCALED = new ConcurrentHashMap<>();
+
+	private SpriteCache() {
+	}
+
+	// The sprite at its own size
+	public static BufferedImage get(Sprite sprite) {
+		return ORIGINALS.computeIfAbsent(sprite, SpriteCache::load);
+	}
+
+	// The sprite scaled to the given size
+	public static BufferedImage get(Sprite sprite, int width, int height) {
+		return SCALED.computeIfAbsent(new ScaledKey(sprite, width, height), SpriteCache::scale);
+	}
+
+	// Drops the scaled copies, for example after the screen configuration changes
+	public static void clearScaled() {
+		SCALED.clear();
+	}
+
+	private static BufferedImage load(Sprite sprite) {
+		String[] resources = { "/resources/" + sprite.filename, "/" + sprite.filename };
+		for (String resource : resources) {
+			try (InputStream in = SpriteCache.class.getResourceAsStream(resource)) {
+				BufferedImage image = in == null ? null : ImageIO.read(in);
+				if (image != null) {
+					return image;
+				}
+			} catch (IOException e) {
+				// Try the next place
+			}
+		}
+		File[] files = { new File("resources", sprite.filename), new File(sprite.filename) };
+		for (File file : files) {
+			try {
+				BufferedImage image = file.isFile() ? ImageIO.read(file) : null;
+				if (image != null) {
+					return image;
+				}
+			} catch (IOException e) {
+				// Try the next place
+			}
+		}
+		System.err.println("WARNING: cannot find " + sprite.filename + " on the classpath or in resources/,"
+				+ " drawing a plain square instead.");
+		BufferedImage image = new BufferedImage(FALLBACK_SIZE, FALLBACK_SIZE, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g2 = image.createGraphics();
+		g2.setColor(sprite.fallback);
+		g2.fillRect(0, 0, FALLBACK_SIZE, FALLBACK_SIZE);
+		g2.dispose();
+		return image;
+	}
+
+	private static BufferedImage scale(ScaledKey key) {
+		BufferedImage original = get(key.sprite);
+		BufferedImage image = compatibleImage(key.width, key.height);
+		Graphics2D g2 = image.createGraphics();
+		try {
+			g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+			g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			g2.drawImage(original, 0, 0, key.width, key.height, null);
+		} finally {
+			g2.dispose();
+		}
+		return image;
+	}
+
+	private static BufferedImage compatibleImage(int width, int height) {
+		if (!GraphicsEnvironment.isHeadless()) {
+			GraphicsConfiguration config = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+					.getDefaultConfiguration();
+			return config.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+		}
+		return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+	}
+
+	private static final class ScaledKey {
+		private final Sprite sprite;
+		private final int width;
+		private final int height;
+
+		private ScaledKey(Sprite sprite, int width, int height) {
+			this.sprite = sprite;
+			this.width = width;
+			this.height = height;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof ScaledKey)) {
+				return false;
+			}
+			ScaledKey other = (ScaledKey) o;
+			return sprite == other.sprite && width == other.width && height == other.height;
+		}
+
+		@Override
+		public int hashCode() {
+			return (sprite.ordinal() * 31 + width) * 31 + height;
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package hw3;
+
+import java.util.Arrays;
+
+/**
+ * An immutable, hashable encoding of the lizard positions of a
+ * {@link SolverBoard}. Two boards on the same level have equal keys exactly
+ * when the same cells are covered by lizards of the same shape, whatever order
+ * the lizards were added in.
+ *
+ * @author Muhammad Blal
+ */
+public final class StateKey {
+	private final long[] bits;
+	private final int hash;
+
+	/**
+	 * Creates a key from the given packed bits. The array is not copied and must
+	 * not be modified afterwards.
+	 *
+	 * @param bits the packed state
+	 */
+	StateKey(long[] bits) {
+		this.bits = bits;
+		this.hash = Arrays.hashCode(bits);
+	}
+
+	/**
+	 * @return the packed state; do not modify
+	 */
+	long[] bits() {
+		return bits;
+	}
+
+	/**
+	 * @return a copy of the packed state, for storing outside the process
+	 */
+	public long[] toLongArray() {
+		return bits.clone();
+	}
+
+	/**
+	 * Creates a key from a packed state previously obtained with
+	 * {@link #toLongArray()}.
+	 *
+	 * @param bits the packed state
+	 * @return the key
+	 */
+	public static StateKey fromLongArray(long[] bits) {
+		return new StateKey(bits.clone());
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof StateKey && hash == ((StateKey) o).hash && Arrays.equals(bits, ((StateKey) o).bits);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+}
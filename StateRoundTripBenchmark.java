@@ -0,0 +1,151 @@
+package hw3;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Round-trips randomly played game states through the save formats of
+ * {@link GameFileUtil} and times them. Every state goes through one bulk
+ * binary file with saveAll/loadAll, and a sample of them through the single
+ * text and binary files. Each loaded game must print the same level text as
+ * the game that was saved.
+ * <p>
+ * Usage: {@code StateRoundTripBenchmark [states] [side]}, default 20000 states
+ * on a 24 by 24 board.
+ *
+ * @author Muhammad Blal
+ */
+public class StateRoundTripBenchmark {
+	/**
+	 * Number of states between those also saved to single files.
+	 */
+	private static final int SAMPLE_EVERY = 200;
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args optional number of states and board side
+	 * @throws IOException if the temporary files cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+		int side = args.length > 1 ? Integer.parseInt(args[1]) : 24;
+		List<LizardGame> games = randomStates(count, side, new Random(count));
+
+		File bulk = File.createTempFile("lizard-states", ".bin");
+		File text = File.createTempFile("lizard-state", ".txt");
+		File binary = File.createTempFile("lizard-state", ".bin");
+		try {
+			long start = System.nanoTime();
+			GameFileUtil.saveAll(bulk.getPath(), games);
+			double saveMs = (System.nanoTime() - start) / 1e6;
+			start = System.nanoTime();
+			List<LizardGame> loaded = GameFileUtil.loadAll(bulk.getPath());
+			double loadMs = (System.nanoTime() - start) / 1e6;
+			if (loaded.size() != games.size()) {
+				throw new IllegalStateException("saved " + games.size() + " states, loaded " + loaded.size());
+			}
+			for (int i = 0; i < games.size(); i++) {
+				check(games.get(i), loaded.get(i), "bulk binary state " + i);
+			}
+			System.out.printf("%d states, %d bytes: saveAll %.1f ms, loadAll %.1f ms%n", games.size(), bulk.length(),
+					saveMs, loadMs);
+
+			int samples = 0;
+			for (int i = 0; i < games.size(); i += SAMPLE_EVERY) {
+				GameFileUtil.save(text.getPath(), games.get(i));
+				LizardGame fromText = new LizardGame(0, 0);
+				GameFileUtil.load(text.getPath(), fromText);
+				check(games.get(i), fromText, "text state " + i);
+
+				GameFileUtil.saveBinary(binary.getPath(), games.get(i));
+				LizardGame fromBinary = new LizardGame(0, 0);
+				GameFileUtil.loadBinary(binary.getPath(), fromBinary);
+				check(games.get(i), fromBinary, "binary state " + i);
+				samples++;
+			}
+			System.out.printf("%d sampled states round-tripped through the text and binary files%n", samples);
+		} finally {
+			bulk.delete();
+			text.delete();
+			binary.delete();
+		}
+	}
+
+	/**
+	 * Private helper method that fails if two games print different levels.
+	 *
+	 * @param saved  the game that was saved
+	 * @param loaded the game loaded back
+	 * @param what   which state, for the message
+	 */
+	private static void check(LizardGame saved, LizardGame loaded, String what) {
+		if (!GameTextWriter.toLevelString(saved).equals(GameTextWriter.toLevelString(loaded))) {
+			throw new IllegalStateException(what + " does not round trip");
+		}
+	}
+
+	/**
+	 * Private helper method that plays random legal moves on a random board and
+	 * keeps a copy of the game after each move. The board starts over when no
+	 * move is left.
+	 *
+	 * @param count  number of states
+	 * @param side   number of rows and columns
+	 * @param random source of randomness
+	 * @return the states
+	 */
+	private static List<LizardGame> randomStates(int count, int side, Random random) {
+		LevelTemplate level = randomLevel(side, random);
+		LizardGame game = new LizardGame(level);
+		SolverBoard board = new SolverBoard(level);
+		int[] moves = new int[board.maxMoves()];
+		List<LizardGame> states = new ArrayList<>(count);
+		while (states.size() < count) {
+			int n = board.moves(moves);
+			if (n == 0) {
+				game = new LizardGame(level);
+				board = new SolverBoard(level);
+				continue;
+			}
+			int chosen = moves[random.nextInt(n)];
+			int move = board.toGameMove(chosen);
+			board.apply(chosen);
+			game.move(LizardGame.unpackCol(move), LizardGame.unpackRow(move), LizardGame.unpackDirection(move));
+			states.add(new LizardGame(LevelTemplate.snapshot(game)));
+		}
+		return states;
+	}
+
+	/**
+	 * Private helper method that builds a level with a three-segment lizard at
+	 * the start of every fourth row, random walls elsewhere and two exits.
+	 *
+	 * @param side   number of rows and columns
+	 * @param random source of randomness
+	 * @return the level
+	 */
+	private static LevelTemplate randomLevel(int side, Random random) {
+		List<int[]> lizards = new ArrayList<>();
+		for (int row = 0; row < side; row += 4) {
+			lizards.add(new int[] { row * side, row * side + 1, row * side + 2 });
+		}
+		BitSet walls = new BitSet();
+		for (int row = 0; row < side; row++) {
+			for (int col = 3; col < side - 1; col++) {
+				if (random.nextInt(6) == 0) {
+					walls.set(row * side + col);
+				}
+			}
+		}
+		BitSet exits = new BitSet();
+		exits.set(side / 2 * side + side - 1);
+		exits.set((side - 1) * side + side / 2);
+		walls.andNot(exits);
+		return new LevelTemplate(side, side, walls, exits, lizards);
+	}
+}
@@ -0,0 +1,115 @@
+package hw3;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Random;
+
+import api.BodySegment;
+import api.Exit;
+import api.Wall;
+
+/**
+ * Compares the single-pass {@link GameTextWriter} with the string concatenation
+ * that LizardGame.toString used before, on square boards of growing size. Each
+ * run checks that both produce the same text and that the level format loads
+ * back into the same game.
+ * <p>
+ * Usage: {@code TextExportBenchmark [maxSide]}, default 160.
+ *
+ * @author Muhammad Blal
+ */
+public class TextExportBenchmark {
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args optional largest board side
+	 * @throws IOException never, the output is discarded
+	 */
+	public static void main(String[] args) throws IOException {
+		int maxSide = args.length > 0 ? Integer.parseInt(args[0]) : 160;
+		System.out.printf("%8s %14s %14s %14s%n", "side", "concat ms", "writer ms", "level ms");
+		for (int side = 10; side <= maxSide; side *= 2) {
+			LizardGame game = randomGame(side, new Random(side));
+
+			long start = System.nanoTime();
+			String legacy = concatenate(game);
+			double concatMs = (System.nanoTime() - start) / 1e6;
+
+			start = System.nanoTime();
+			String streamed = GameTextWriter.toDebugString(game);
+			double writerMs = (System.nanoTime() - start) / 1e6;
+
+			start = System.nanoTime();
+			GameTextWriter.writeLevel(game, Writer.nullWriter());
+			double levelMs = (System.nanoTime() - start) / 1e6;
+
+			if (!legacy.equals(streamed)) {
+				throw new IllegalStateException("debug layouts differ for side " + side);
+			}
+			String level = GameTextWriter.toLevelString(game);
+			if (!GameTextWriter.toLevelString(new LizardGame(LevelTemplate.forText(level))).equals(level)) {
+				throw new IllegalStateException("level text does not round trip for side " + side);
+			}
+			System.out.printf("%8d %14.2f %14.2f %14.2f%n", side, concatMs, writerMs, levelMs);
+		}
+	}
+
+	/**
+	 * Private helper method that builds the debug layout the way LizardGame did
+	 * before, with string concatenation in a nested loop.
+	 *
+	 * @param game the game to dump
+	 * @return the debug layout
+	 */
+	private static String concatenate(LizardGame game) {
+		String str = "---------- GRID ----------\n";
+		str += "Dimensions:\n";
+		str += game.getWidth() + " " + game.getHeight() + "\n";
+		str += "Layout:\n";
+		for (int y = 0; y < game.getHeight(); y++) {
+			if (y > 0) {
+				str += "\n";
+			}
+			for (int x = 0; x < game.getWidth(); x++) {
+				str += game.getCell(x, y);
+			}
+		}
+		str += "\nLizards:\n";
+		for (Lizard l : game.getLizards()) {
+			str += l;
+		}
+		str += "\n--------------------------\n";
+		return str;
+	}
+
+	/**
+	 * Private helper method that builds a board with random walls, an exit on the
+	 * right edge and a horizontal lizard on every fourth row.
+	 *
+	 * @param side   number of rows and columns
+	 * @param random source of randomness
+	 * @return the new game
+	 */
+	private static LizardGame randomGame(int side, Random random) {
+		LizardGame game = new LizardGame(side, side);
+		for (int row = 0; row < side; row += 4) {
+			Lizard lizard = new Lizard();
+			ArrayList<BodySegment> segments = new ArrayList<>();
+			for (int col = 0; col < 3; col++) {
+				segments.add(new BodySegment(lizard, game.getCell(col, row)));
+			}
+			lizard.setSegments(segments);
+			game.addLizard(lizard);
+		}
+		for (int row = 0; row < side; row++) {
+			for (int col = 3; col < side - 1; col++) {
+				if (random.nextInt(5) == 0) {
+					game.addWall(new Wall(game.getCell(col, row)));
+				}
+			}
+		}
+		game.addExit(new Exit(game.getCell(side - 1, side / 2)));
+		return game;
+	}
+}
@@ -0,0 +1,463 @@
+package hw3;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Plays every entered agent on every level of a pack and ranks the agents.
+ * Each (agent, level) pair is one match, played on its own {@link LizardGame}
+ * loaded with {@link GameFileUtil} by a new {@link TournamentAgent}. Matches
+ * run on a fixed pool with one thread per core, so the cores stay busy while
+ * any matches are left.
+ * <p>
+ * Every match has a time budget and a memory budget. When the time runs out
+ * the match's thread is interrupted and the match ends, so a slow agent only
+ * ever holds one thread, and only for its budget. The memory budget is passed
+ * to the agent when it is created; the search agents turn it into a limit on
+ * the number of states they store.
+ * <p>
+ * The leaderboard ranks agents by levels won, then by average moves per win,
+ * then by total time. Each match can also be written as a CSV row (see
+ * {@link MatchResult#CSV_HEADER}).
+ * <p>
+ * Usage: {@code Tournament [--threads n] [--max-ms n] [--max-mb n]
+ * [--max-moves n] [--agents a,b,...] [--mcts-ms n] [--out leaderboard.csv]
+ * [--matches matches.csv] path...}, where each path is a level file or a
+ * directory of ".txt" levels and the agents are among bfs, bfs-sym, bidir and
+ * mcts.
+ *
+ * @author Muhammad Blal
+ */
+public class Tournament {
+	/**
+	 * Column names of the leaderboard, in order.
+	 */
+	public static final String LEADERBOARD_HEADER = "rank,agent,matches,won,average_moves,total_millis,total_nodes";
+
+	/**
+	 * Estimated memory of one state stored by a search, apart from its key: map
+	 * entry, key object and list slots.
+	 */
+	private static final int STATE_OVERHEAD_BYTES = 96;
+
+	/**
+	 * Creates a new agent for each match.
+	 */
+	@FunctionalInterface
+	public interface AgentFactory {
+		/**
+		 * Creates an agent for one match.
+		 *
+		 * @param maxMillis time budget of the match, in milliseconds
+		 * @param maxBytes  memory budget of the match, in bytes
+		 * @return the new agent
+		 */
+		TournamentAgent create(long maxMillis, long maxBytes);
+	}
+
+	private final Map<String, AgentFactory> agents = new LinkedHashMap<>();
+	private final int threads;
+	private final long maxMillis;
+	private final long maxBytes;
+	private final int maxMoves;
+
+	/**
+	 * Constructs a tournament with no agents.
+	 *
+	 * @param threads   number of matches played at once
+	 * @param maxMillis time budget per match, in milliseconds
+	 * @param maxBytes  memory budget per match, in bytes
+	 * @param maxMoves  number of moves after which a match is lost
+	 */
+	public Tournament(int threads, long maxMillis, long maxBytes, int maxMoves) {
+		this.threads = threads;
+		this.maxMillis = maxMillis;
+		this.maxBytes = maxBytes;
+		this.maxMoves = maxMoves;
+	}
+
+	/**
+	 * Runs a tournament from the command line.
+	 *
+	 * @param args options and level paths, see the class description
+	 * @throws IOException          if the output cannot be written
+	 * @throws InterruptedException if interrupted while waiting for results
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int threads = Runtime.getRuntime().availableProcessors();
+		long maxMillis = 10_000;
+		long maxMb = 256;
+		int maxMoves = 1000;
+		long mctsMillis = 100;
+		String names = "bfs,bfs-sym,bidir,mcts";
+		String out = null;
+		String matches = null;
+		List<String> paths = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "--threads":
+				threads = Integer.parseInt(args[++i]);
+				break;
+			case "--max-ms":
+				maxMillis = Long.parseLong(args[++i]);
+				break;
+			case "--max-mb":
+				maxMb = Long.parseLong(args[++i]);
+				break;
+			case "--max-moves":
+				maxMoves = Integer.parseInt(args[++i]);
+				break;
+			case "--agents":
+				names = args[++i];
+				break;
+			case "--mcts-ms":
+				mctsMillis = Long.parseLong(args[++i]);
+				break;
+			case "--out":
+				out = args[++i];
+				break;
+			case "--matches":
+				matches = args[++i];
+				break;
+			default:
+				paths.addAll(LevelAnalyzer.levelsOf(args[i]));
+			}
+		}
+
+		Tournament tournament = new Tournament(threads, maxMillis, maxMb * 1024 * 1024, maxMoves);
+		for (String name : names.split(",")) {
+			switch (name) {
+			case "bfs":
+				tournament.addAgent(name, searchAgent(states -> new Solver(states, false)));
+				break;
+			case "bfs-sym":
+				tournament.addAgent(name, searchAgent(states -> new Solver(states, true)));
+				break;
+			case "bidir":
+				tournament.addAgent(name, searchAgent(states -> new BidirectionalSolver(states, true)));
+				break;
+			case "mcts":
+				tournament.addAgent(name, mctsAgent(mctsMillis));
+				break;
+			default:
+				throw new IllegalArgumentException("unknown agent " + name);
+			}
+		}
+
+		long start = System.nanoTime();
+		List<MatchResult> results = tournament.run(paths);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		try (PrintWriter writer = out == null ? new PrintWriter(System.out)
+				: new PrintWriter(out, StandardCharsets.UTF_8)) {
+			writeLeaderboard(results, writer);
+		}
+		if (matches != null) {
+			try (PrintWriter writer = new PrintWriter(matches, StandardCharsets.UTF_8)) {
+				writer.println(MatchResult.CSV_HEADER);
+				for (MatchResult r : results) {
+					writer.println(r.toCsv());
+				}
+			}
+		}
+		System.err.printf("%d matches in %.2f s on %d threads%n", results.size(), seconds, threads);
+	}
+
+	/**
+	 * Enters an agent. Agents appear in the results in the order entered.
+	 *
+	 * @param name    name of the agent, unique in this tournament
+	 * @param factory creates the agent for each match
+	 */
+	public void addAgent(String name, AgentFactory factory) {
+		agents.put(name, factory);
+	}
+
+	/**
+	 * Plays every agent on every level.
+	 *
+	 * @param levels locations of the level files
+	 * @return one result per match, level by level and agent by agent in the
+	 *         order entered
+	 * @throws InterruptedException if interrupted while waiting for results
+	 */
+	public List<MatchResult> run(List<String> levels) throws InterruptedException {
+		ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "lizard-tournament");
+			t.setDaemon(true);
+			return t;
+		});
+		ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "lizard-tournament-timer");
+			t.setDaemon(true);
+			return t;
+		});
+		try {
+			List<String> names = new ArrayList<>();
+			List<String> paths = new ArrayList<>();
+			List<Future<MatchResult>> futures = new ArrayList<>();
+			for (String level : levels) {
+				for (Map.Entry<String, AgentFactory> agent : agents.entrySet()) {
+					names.add(agent.getKey());
+					paths.add(level);
+					futures.add(pool.submit(() -> play(agent.getKey(), agent.getValue(), level, timer)));
+				}
+			}
+			List<MatchResult> results = new ArrayList<>();
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					results.add(futures.get(i).get());
+				} catch (ExecutionException e) {
+					results.add(new MatchResult(names.get(i), paths.get(i), String.valueOf(e.getCause()), 0, 0, 0));
+				}
+			}
+			return results;
+		} finally {
+			pool.shutdownNow();
+			timer.shutdownNow();
+		}
+	}
+
+	/**
+	 * Writes the leaderboard of a tournament as CSV, with a header row (see
+	 * {@link #LEADERBOARD_HEADER}) and one row per agent, best first.
+	 *
+	 * @param results the results of every match
+	 * @param writer  where to write
+	 */
+	public static void writeLeaderboard(List<MatchResult> results, PrintWriter writer) {
+		Map<String, Standing> standings = new LinkedHashMap<>();
+		for (MatchResult r : results) {
+			standings.computeIfAbsent(r.getAgent(), Standing::new).add(r);
+		}
+		List<Standing> ranked = new ArrayList<>(standings.values());
+		ranked.sort(Comparator.comparingInt((Standing s) -> -s.won).thenComparingDouble(Standing::averageMoves)
+				.thenComparingLong(s -> s.millis));
+		writer.println(LEADERBOARD_HEADER);
+		for (int i = 0; i < ranked.size(); i++) {
+			Standing s = ranked.get(i);
+			String average = s.won == 0 ? "" : String.format(Locale.ROOT, "%.2f", s.averageMoves());
+			writer.println((i + 1) + "," + MatchResult.quote(s.agent) + "," + s.matches + "," + s.won + "," + average
+					+ "," + s.millis + "," + s.nodes);
+		}
+	}
+
+	/**
+	 * Creates agents that search for a whole solution on their first move and
+	 * then play it.
+	 *
+	 * @param solvers creates the solver for a given limit on stored states
+	 * @return the factory
+	 */
+	public static AgentFactory searchAgent(IntFunction<Solver> solvers) {
+		return (maxMillis, maxBytes) -> new SearchAgent(solvers, maxBytes);
+	}
+
+	/**
+	 * Creates agents that choose each move with a single-threaded
+	 * {@link MctsAgent}.
+	 *
+	 * @param millisPerMove thinking time per move
+	 * @return the factory
+	 */
+	public static AgentFactory mctsAgent(long millisPerMove) {
+		return (maxMillis, maxBytes) -> new TreeSearchAgent(new MctsAgent(1, millisPerMove));
+	}
+
+	/**
+	 * Private helper method that plays one match on the current thread, which is
+	 * interrupted if the match runs out of time.
+	 *
+	 * @param name    name of the agent
+	 * @param factory creates the agent
+	 * @param level   location of the level file
+	 * @param timer   schedules the end of the time budget
+	 * @return the result of the match
+	 */
+	private MatchResult play(String name, AgentFactory factory, String level, ScheduledExecutorService timer) {
+		long start = System.nanoTime();
+		LizardGame game = new LizardGame(0, 0);
+		GameFileUtil.load(level, game);
+		if (game.getTemplate() == null) {
+			return new MatchResult(name, level, "cannot read level", 0, 0, 0);
+		}
+
+		TournamentAgent agent = factory.create(maxMillis, maxBytes);
+		Alarm alarm = new Alarm(Thread.currentThread());
+		ScheduledFuture<?> scheduled = timer.schedule(alarm, maxMillis, TimeUnit.MILLISECONDS);
+		String outcome = null;
+		int moves = 0;
+		try {
+			while (outcome == null) {
+				if (game.getLizards().isEmpty()) {
+					outcome = MatchResult.WON;
+				} else if (moves >= maxMoves) {
+					outcome = "move limit";
+				} else if (Thread.currentThread().isInterrupted()) {
+					outcome = "timeout";
+				} else {
+					int move = agent.nextMove(game);
+					if (move < 0) {
+						outcome = "gave up";
+					} else if (game.moveBatch(new int[] { move })[0] == LizardGame.MOVE_REJECTED) {
+						outcome = "illegal move";
+					} else {
+						moves++;
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			outcome = "timeout";
+		} catch (RuntimeException e) {
+			outcome = String.valueOf(e);
+		} finally {
+			scheduled.cancel(false);
+			alarm.finish();
+			agent.close();
+		}
+		long millis = (System.nanoTime() - start) / 1_000_000;
+		return new MatchResult(name, level, outcome, moves, millis, agent.getNodeCount());
+	}
+
+	/**
+	 * Interrupts the thread of a match when its time is up, unless the match
+	 * has already finished. Pool threads are reused, so a late alarm must not
+	 * interrupt the next match.
+	 */
+	private static class Alarm implements Runnable {
+		private final Thread thread;
+		private boolean finished;
+
+		private Alarm(Thread thread) {
+			this.thread = thread;
+		}
+
+		@Override
+		public synchronized void run() {
+			if (!finished) {
+				thread.interrupt();
+			}
+		}
+
+		/**
+		 * Marks the match as finished and clears an interrupt that arrived for it.
+		 */
+		private synchronized void finish() {
+			finished = true;
+			Thread.interrupted();
+		}
+	}
+
+	/**
+	 * An agent that finds a shortest solution with a {@link Solver} on the first
+	 * move and then plays it move by move.
+	 */
+	private static class SearchAgent implements TournamentAgent {
+		private final IntFunction<Solver> solvers;
+		private final long maxBytes;
+		private int[] plan;
+		private int next;
+		private long nodes;
+
+		private SearchAgent(IntFunction<Solver> solvers, long maxBytes) {
+			this.solvers = solvers;
+			this.maxBytes = maxBytes;
+		}
+
+		@Override
+		public int nextMove(LizardGame game) throws InterruptedException {
+			if (plan == null) {
+				SolverBoard board = SolverBoard.of(game);
+				long stateBytes = STATE_OVERHEAD_BYTES + 8L * board.key().toLongArray().length;
+				int states = (int) Math.min(Solver.DEFAULT_MAX_STATES, Math.max(1, maxBytes / stateBytes));
+				SolverResult result = solvers.apply(states).solve(board);
+				nodes = result.getNodesExpanded();
+				if (!result.isSolved() && Thread.currentThread().isInterrupted()) {
+					throw new InterruptedException();
+				}
+				plan = result.getMoves();
+			}
+			return next < plan.length ? plan[next++] : -1;
+		}
+
+		@Override
+		public long getNodeCount() {
+			return nodes;
+		}
+	}
+
+	/**
+	 * An agent that asks a {@link MctsAgent} for every move, counting its
+	 * playouts as nodes.
+	 */
+	private static class TreeSearchAgent implements TournamentAgent {
+		private final MctsAgent mcts;
+		private long nodes;
+
+		private TreeSearchAgent(MctsAgent mcts) {
+			this.mcts = mcts;
+		}
+
+		@Override
+		public int nextMove(LizardGame game) throws InterruptedException {
+			int move = mcts.chooseMove(game);
+			nodes += mcts.getLastPlayouts();
+			return move;
+		}
+
+		@Override
+		public long getNodeCount() {
+			return nodes;
+		}
+
+		@Override
+		public void close() {
+			mcts.shutdown();
+		}
+	}
+
+	/**
+	 * Totals of one agent over all its matches.
+	 */
+	private static class Standing {
+		private final String agent;
+		private int matches;
+		private int won;
+		private long wonMoves;
+		private long millis;
+		private long nodes;
+
+		private Standing(String agent) {
+			this.agent = agent;
+		}
+
+		private void add(MatchResult r) {
+			matches++;
+			if (r.isWon()) {
+				won++;
+				wonMoves += r.getMoves();
+			}
+			millis += r.getMillis();
+			nodes += r.getNodes();
+		}
+
+		private double averageMoves() {
+			return won == 0 ? Double.MAX_VALUE : (double) wonMoves / won;
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package hw3;
+
+/**
+ * A player entered in a {@link Tournament}. Each match gets a new agent, which
+ * is asked for one move at a time until the level is won, the agent gives up
+ * or the match runs out of time.
+ *
+ * @author Muhammad Blal
+ */
+public interface TournamentAgent {
+	/**
+	 * Chooses the next move for the current position of a game. The agent must
+	 * not change the game itself. When the match runs out of time the thread is
+	 * interrupted, and the agent should return or throw soon after.
+	 *
+	 * @param game the game, owned by this match
+	 * @return the move packed with
+	 *         {@link LizardGame#packMove(int, int, api.Direction)}, or -1 to give
+	 *         up
+	 * @throws InterruptedException if interrupted while thinking
+	 */
+	int nextMove(LizardGame game) throws InterruptedException;
+
+	/**
+	 * @return number of search nodes the agent has expanded so far in this
+	 *         match
+	 */
+	long getNodeCount();
+
+	/**
+	 * Releases anything the agent holds, such as threads. Called once when the
+	 * match ends.
+	 */
+	default void close() {
+	}
+}
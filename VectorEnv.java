@@ -0,0 +1,566 @@
+package hw3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Many independent games stepped together, for training agents that learn by
+ * playing. Nothing is stored per game as an object: every game lives in a few
+ * flat arrays of primitives indexed by game, so stepping thousands of them is
+ * a loop over arrays with no allocation and no Cell or Lizard lookups.
+ * <p>
+ * Levels come from a pool loaded once with {@link GameFileUtil}. All levels
+ * are laid out on one grid as large as the largest of them, the cells a
+ * smaller level does not have being walls. A game that is won or runs out of
+ * steps is reset straight away to a level picked at random from the pool, so
+ * every call to {@link #step(int[], float[], boolean[])} leaves every game
+ * ready for the next action.
+ * <p>
+ * An action is encoded the same way as a {@link SolverBoard} move:
+ * {@code lizard << 3 | dir}, plus {@link SolverBoard#BACKWARD} to move the
+ * tail instead of the head, where lizard is the index of the lizard in the
+ * level file and dir the ordinal of a {@link api.Direction}. An action that is
+ * not legal leaves the game as it was.
+ * <p>
+ * The observation of a game is one byte per cell of the grid, one of
+ * {@link #EMPTY}, {@link #WALL}, {@link #EXIT}, {@link #BODY}, {@link #HEAD}
+ * and {@link #TAIL}, stored for all games in one array. A step only rewrites
+ * the few cells that changed.
+ * <p>
+ * Usage: {@code VectorEnv [games] [steps] level...} plays random actions and
+ * prints the number of steps per second.
+ *
+ * @author Muhammad Blal
+ */
+public class VectorEnv {
+	/**
+	 * Observation of a cell with nothing in it.
+	 */
+	public static final byte EMPTY = 0;
+
+	/**
+	 * Observation of a wall, including cells outside a smaller level.
+	 */
+	public static final byte WALL = 1;
+
+	/**
+	 * Observation of an exit with no lizard on it.
+	 */
+	public static final byte EXIT = 2;
+
+	/**
+	 * Observation of a lizard segment other than its head and tail.
+	 */
+	public static final byte BODY = 3;
+
+	/**
+	 * Observation of a lizard's head, or of a lizard with one segment.
+	 */
+	public static final byte HEAD = 4;
+
+	/**
+	 * Observation of a lizard's tail.
+	 */
+	public static final byte TAIL = 5;
+
+	/**
+	 * Reward for each lizard that exits.
+	 */
+	public static final float EXIT_REWARD = 1.0f;
+
+	/**
+	 * Reward for winning a level, on top of the last lizard's exit.
+	 */
+	public static final float WIN_REWARD = 1.0f;
+
+	/**
+	 * Reward added on every step, so shorter solutions score more.
+	 */
+	public static final float STEP_REWARD = -0.01f;
+
+	/**
+	 * Reward added for an action that is not legal.
+	 */
+	public static final float ILLEGAL_REWARD = -0.05f;
+
+	/**
+	 * Change in column and row for each direction, by ordinal.
+	 */
+	private static final int[] DCOL = { 0, 0, 1, -1 };
+	private static final int[] DROW = { -1, 1, 0, 0 };
+
+	private final int numGames;
+	private final int maxSteps;
+	private final int width;
+	private final int height;
+	private final int cells;
+
+	/**
+	 * Most lizards and most segments in any level of the pool.
+	 */
+	private final int maxLizards;
+	private final int maxSegments;
+
+	/**
+	 * Neighbour of each cell in each direction, at cell * 4 + dir, or -1.
+	 */
+	private final int[] neighbors;
+
+	/**
+	 * The pool, by level: the observation of the empty level, the number of
+	 * lizards, where each lizard's segments start in a game's segment array,
+	 * each lizard's length and its starting cells from tail to head.
+	 */
+	private final byte[][] levelCells;
+	private final int[] levelLizards;
+	private final int[][] levelOffsets;
+	private final int[][] levelLengths;
+	private final int[][] levelSegments;
+
+	/**
+	 * Every game, by game: its level, lizards left, steps taken and random state
+	 * for picking the next level.
+	 */
+	private final int[] level;
+	private final int[] remaining;
+	private final int[] steps;
+	private final long[] seeds;
+
+	/**
+	 * Every lizard, at game * maxLizards + lizard: whether it is still in play,
+	 * and where its tail is in its segments. A lizard's segments form a ring, so
+	 * a move only overwrites one entry and shifts the start.
+	 */
+	private final boolean[] alive;
+	private final int[] start;
+
+	/**
+	 * Cell of every segment, at game * maxSegments + offset of the lizard +
+	 * (start + k) % length for the k-th segment from the tail.
+	 */
+	private final int[] segments;
+
+	/**
+	 * Lizard in every cell plus one, or 0, at game * cells + cell.
+	 */
+	private final byte[] occupant;
+
+	/**
+	 * Observation of every cell, at game * cells + cell.
+	 */
+	private final byte[] observations;
+
+	/**
+	 * Constructs the games and resets each to a random level of the pool.
+	 *
+	 * @param levelPaths files of the levels to play
+	 * @param numGames   number of games
+	 * @param maxSteps   steps after which a game is reset even if not won
+	 * @param seed       seed for picking levels
+	 * @throws IllegalArgumentException if there are no levels or a level file
+	 *                                  cannot be read
+	 */
+	public VectorEnv(List<String> levelPaths, int numGames, int maxSteps, long seed) {
+		if (levelPaths.isEmpty()) {
+			throw new IllegalArgumentException("no levels");
+		}
+		List<LevelTemplate> pool = new ArrayList<>();
+		for (String path : levelPaths) {
+			LizardGame game = new LizardGame(0, 0);
+			GameFileUtil.load(path, game);
+			if (game.getTemplate() == null) {
+				throw new IllegalArgumentException("cannot read level " + path);
+			}
+			pool.add(game.getTemplate());
+		}
+
+		int w = 0;
+		int h = 0;
+		int lizards = 0;
+		int segs = 0;
+		for (LevelTemplate t : pool) {
+			w = Math.max(w, t.getWidth());
+			h = Math.max(h, t.getHeight());
+			lizards = Math.max(lizards, t.getLizardCount());
+			int total = 0;
+			for (int i = 0; i < t.getLizardCount(); i++) {
+				total += t.getLizardCells(i).length;
+			}
+			segs = Math.max(segs, total);
+		}
+		if (lizards > Byte.MAX_VALUE) {
+			throw new IllegalArgumentException("too many lizards in one level");
+		}
+		this.numGames = numGames;
+		this.maxSteps = maxSteps;
+		width = w;
+		height = h;
+		cells = w * h;
+		maxLizards = lizards;
+		maxSegments = segs;
+
+		neighbors = new int[cells * 4];
+		for (int cell = 0; cell < cells; cell++) {
+			for (int d = 0; d < 4; d++) {
+				int col = cell % width + DCOL[d];
+				int row = cell / width + DROW[d];
+				boolean inside = col >= 0 && row >= 0 && col < width && row < height;
+				neighbors[cell * 4 + d] = inside ? row * width + col : -1;
+			}
+		}
+
+		// Lay out every level of the pool on the common grid
+		int levels = pool.size();
+		levelCells = new byte[levels][];
+		levelLizards = new int[levels];
+		levelOffsets = new int[levels][];
+		levelLengths = new int[levels][];
+		levelSegments = new int[levels][];
+		for (int l = 0; l < levels; l++) {
+			LevelTemplate t = pool.get(l);
+			byte[] grid = new byte[cells];
+			Arrays.fill(grid, WALL);
+			for (int row = 0; row < t.getHeight(); row++) {
+				for (int col = 0; col < t.getWidth(); col++) {
+					grid[row * width + col] = t.isWall(col, row) ? WALL : t.isExit(col, row) ? EXIT : EMPTY;
+				}
+			}
+			int n = t.getLizardCount();
+			levelCells[l] = grid;
+			levelLizards[l] = n;
+			levelOffsets[l] = new int[n];
+			levelLengths[l] = new int[n];
+			levelSegments[l] = new int[maxSegments];
+			int offset = 0;
+			for (int i = 0; i < n; i++) {
+				int[] body = t.getLizardCells(i);
+				levelOffsets[l][i] = offset;
+				levelLengths[l][i] = body.length;
+				for (int k = 0; k < body.length; k++) {
+					// Template cells are indexed on the level's own width
+					levelSegments[l][offset + k] = body[k] / t.getWidth() * width + body[k] % t.getWidth();
+				}
+				offset += body.length;
+			}
+		}
+
+		level = new int[numGames];
+		remaining = new int[numGames];
+		steps = new int[numGames];
+		seeds = new long[numGames];
+		alive = new boolean[numGames * maxLizards];
+		start = new int[numGames * maxLizards];
+		segments = new int[numGames * maxSegments];
+		occupant = new byte[numGames * cells];
+		observations = new byte[numGames * cells];
+		for (int g = 0; g < numGames; g++) {
+			seeds[g] = seed + g * 0x9E3779B97F4A7C15L;
+		}
+		reset();
+	}
+
+	/**
+	 * Runs random actions from the command line and reports the throughput.
+	 *
+	 * @param args number of games, number of steps per game, then level files
+	 */
+	public static void main(String[] args) {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+		List<String> paths = args.length > 2 ? Arrays.asList(args).subList(2, args.length)
+				: List.of("examples/game1.txt", "examples/game2.txt");
+		VectorEnv env = new VectorEnv(paths, games, 500, 42);
+		int[] actions = new int[games];
+		float[] rewards = new float[games];
+		boolean[] dones = new boolean[games];
+		long random = 1;
+		long episodes = 0;
+		long start = System.nanoTime();
+		for (int round = 0; round < rounds; round++) {
+			for (int g = 0; g < games; g++) {
+				random = next(random);
+				actions[g] = (int) ((random >>> 33) % env.getActionCount());
+			}
+			env.step(actions, rewards, dones);
+			for (int g = 0; g < games; g++) {
+				if (dones[g]) {
+					episodes++;
+				}
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%d games, %d steps, %d episodes in %.2f s: %.0f steps per second%n", games,
+				(long) games * rounds, episodes, seconds, games * (double) rounds / seconds);
+	}
+
+	/**
+	 * @return number of games
+	 */
+	public int getNumGames() {
+		return numGames;
+	}
+
+	/**
+	 * @return number of columns of the common grid
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return number of rows of the common grid
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @return number of bytes of observation per game
+	 */
+	public int getObservationSize() {
+		return cells;
+	}
+
+	/**
+	 * @return number of distinct actions, 8 per lizard of the largest level
+	 */
+	public int getActionCount() {
+		return maxLizards * 8;
+	}
+
+	/**
+	 * @param game which game
+	 * @return index in the level pool of the level the game is playing
+	 */
+	public int getLevel(int game) {
+		return level[game];
+	}
+
+	/**
+	 * Gets the observations of every game, game after game, each of
+	 * getObservationSize() bytes in row-major order. The array is updated in
+	 * place by every step and must not be modified.
+	 *
+	 * @return the observations
+	 */
+	public byte[] getObservations() {
+		return observations;
+	}
+
+	/**
+	 * Resets every game to a random level of the pool.
+	 */
+	public void reset() {
+		for (int g = 0; g < numGames; g++) {
+			reset(g);
+		}
+	}
+
+	/**
+	 * Applies one action to every game. A game that is won or reaches the step
+	 * limit reports done and is reset, and its observation is already that of
+	 * the new level.
+	 *
+	 * @param actions the action for each game
+	 * @param rewards filled with the reward of each game
+	 * @param dones   filled with true for each game whose episode ended
+	 */
+	public void step(int[] actions, float[] rewards, boolean[] dones) {
+		step(0, numGames, actions, rewards, dones);
+	}
+
+	/**
+	 * Applies one action to each game in a range, so that callers can step
+	 * disjoint ranges from different threads. Arrays are indexed by game.
+	 *
+	 * @param from    first game
+	 * @param to      one past the last game
+	 * @param actions the action for each game
+	 * @param rewards filled with the reward of each game in the range
+	 * @param dones   filled with true for each game in the range whose episode
+	 *                ended
+	 */
+	public void step(int from, int to, int[] actions, float[] rewards, boolean[] dones) {
+		for (int g = from; g < to; g++) {
+			float reward = STEP_REWARD + apply(g, actions[g]);
+			boolean done = remaining[g] == 0;
+			if (done) {
+				reward += WIN_REWARD;
+			}
+			if (++steps[g] >= maxSteps) {
+				done = true;
+			}
+			if (done) {
+				reset(g);
+			}
+			rewards[g] = reward;
+			dones[g] = done;
+		}
+	}
+
+	/**
+	 * Marks the legal actions of every game.
+	 *
+	 * @param mask filled with numGames * getActionCount() entries, true where the
+	 *             action is legal in that game
+	 */
+	public void legalActions(boolean[] mask) {
+		int actionCount = getActionCount();
+		Arrays.fill(mask, 0, numGames * actionCount, false);
+		for (int g = 0; g < numGames; g++) {
+			int l = level[g];
+			for (int i = 0; i < levelLizards[l]; i++) {
+				if (!alive[g * maxLizards + i]) {
+					continue;
+				}
+				for (int a = 0; a < 8; a++) {
+					int action = i << 3 | a;
+					mask[g * actionCount + action] = target(g, action) >= 0;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Private helper method that applies one action to one game.
+	 *
+	 * @param g      the game
+	 * @param action the action
+	 * @return the reward for the action itself
+	 */
+	private float apply(int g, int action) {
+		int to = target(g, action);
+		if (to < 0) {
+			return ILLEGAL_REWARD;
+		}
+		int l = level[g];
+		int i = action >>> 3;
+		int slot = g * maxLizards + i;
+		int n = levelLengths[l][i];
+		int base = g * maxSegments + levelOffsets[l][i];
+		int s = start[slot];
+		int grid = g * cells;
+		byte[] empty = levelCells[l];
+
+		// The ring turns one way or the other, overwriting the end that leaves
+		int oldHead = segments[base + (s + n - 1) % n];
+		int oldTail = segments[base + s];
+		int newHead;
+		int newTail;
+		if ((action & SolverBoard.BACKWARD) == 0) {
+			occupant[grid + oldTail] = 0;
+			observations[grid + oldTail] = empty[oldTail];
+			segments[base + s] = to;
+			s = s + 1 == n ? 0 : s + 1;
+			newHead = to;
+			newTail = segments[base + s];
+			if (n > 1) {
+				observations[grid + oldHead] = n > 2 ? BODY : TAIL;
+			}
+		} else {
+			occupant[grid + oldHead] = 0;
+			observations[grid + oldHead] = empty[oldHead];
+			s = s == 0 ? n - 1 : s - 1;
+			segments[base + s] = to;
+			newHead = segments[base + (s + n - 1) % n];
+			newTail = to;
+			observations[grid + oldTail] = n > 2 ? BODY : HEAD;
+		}
+		start[slot] = s;
+		occupant[grid + to] = (byte) (i + 1);
+		observations[grid + newTail] = TAIL;
+		observations[grid + newHead] = HEAD;
+
+		if (empty[newHead] != EXIT && empty[newTail] != EXIT) {
+			return 0;
+		}
+		// The lizard leaves the grid
+		for (int k = 0; k < n; k++) {
+			int cell = segments[base + k];
+			occupant[grid + cell] = 0;
+			observations[grid + cell] = empty[cell];
+		}
+		alive[slot] = false;
+		remaining[g]--;
+		return EXIT_REWARD;
+	}
+
+	/**
+	 * Private helper method that finds the cell an action moves a lizard into.
+	 *
+	 * @param g      the game
+	 * @param action the action
+	 * @return the cell, or -1 if the action is not legal
+	 */
+	private int target(int g, int action) {
+		int l = level[g];
+		int i = action >>> 3;
+		if (action < 0 || i >= levelLizards[l] || !alive[g * maxLizards + i]) {
+			return -1;
+		}
+		int n = levelLengths[l][i];
+		int base = g * maxSegments + levelOffsets[l][i];
+		int s = start[g * maxLizards + i];
+		int from;
+		if ((action & SolverBoard.BACKWARD) == 0) {
+			from = segments[base + (s + n - 1) % n];
+		} else if (n > 1) {
+			from = segments[base + s];
+		} else {
+			return -1; // A lizard with one segment only moves forward
+		}
+		int to = neighbors[from * 4 + (action & 3)];
+		if (to < 0 || levelCells[l][to] == WALL || occupant[g * cells + to] != 0) {
+			return -1;
+		}
+		return to;
+	}
+
+	/**
+	 * Private helper method that puts one game back at the start of a random
+	 * level.
+	 *
+	 * @param g the game
+	 */
+	private void reset(int g) {
+		seeds[g] = next(seeds[g]);
+		int l = (int) ((seeds[g] >>> 33) % levelCells.length);
+		level[g] = l;
+		steps[g] = 0;
+		remaining[g] = levelLizards[l];
+		int grid = g * cells;
+		System.arraycopy(levelCells[l], 0, observations, grid, cells);
+		Arrays.fill(occupant, grid, grid + cells, (byte) 0);
+		System.arraycopy(levelSegments[l], 0, segments, g * maxSegments, maxSegments);
+		for (int i = 0; i < maxLizards; i++) {
+			int slot = g * maxLizards + i;
+			alive[slot] = i < levelLizards[l];
+			start[slot] = 0;
+			if (!alive[slot]) {
+				continue;
+			}
+			int base = g * maxSegments + levelOffsets[l][i];
+			int n = levelLengths[l][i];
+			for (int k = 0; k < n; k++) {
+				int cell = segments[base + k];
+				occupant[grid + cell] = (byte) (i + 1);
+				observations[grid + cell] = k == n - 1 ? HEAD : k == 0 ? TAIL : BODY;
+			}
+		}
+	}
+
+	/**
+	 * Private helper method that advances a random state, using the SplitMix64
+	 * generator so that each game keeps its own sequence in one long.
+	 *
+	 * @param state the current state
+	 * @return the next state, well mixed in its high bits
+	 */
+	private static long next(long state) {
+		long z = state + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}